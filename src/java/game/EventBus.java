@@ -0,0 +1,103 @@
+package game;
+
+import game.entities.Entity;
+
+// Event bus of the game: during a tick, events are written as primitive records (type, entity id, tile)
+// into preallocated arrays, and the observers drain them all at once when the tick is over
+public class EventBus implements Sujet {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Game game; // Used to resolve the entity ids of the events
+
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] entityIds = new int[INITIAL_CAPACITY];
+    private int[] tiles = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private Observer[] observers = new Observer[4];
+    private int observerCount = 0;
+
+    public EventBus(Game game) {
+        this.game = game;
+    }
+
+    // Record an event; it will only be seen by the observers on the next call to notifyObservers()
+    public void post(int type, int entityId, int tile) {
+        if (size == types.length) {
+            grow();
+        }
+        types[size] = type;
+        entityIds[size] = entityId;
+        tiles[size] = tile;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getType(int i) {
+        return types[i];
+    }
+
+    public int getEntityId(int i) {
+        return entityIds[i];
+    }
+
+    public Entity getEntity(int i) {
+        return game.getEntity(entityIds[i]);
+    }
+
+    public int getTile(int i) {
+        return tiles[i];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public void registerObserver(Observer observer) {
+        if (observerCount == observers.length) {
+            Observer[] newObservers = new Observer[observerCount * 2];
+            System.arraycopy(observers, 0, newObservers, 0, observerCount);
+            observers = newObservers;
+        }
+        observers[observerCount++] = observer;
+    }
+
+    @Override
+    public void removeObserver(Observer observer) {
+        for (int i = 0; i < observerCount; i++) {
+            if (observers[i] == observer) {
+                System.arraycopy(observers, i + 1, observers, i, observerCount - i - 1);
+                observers[--observerCount] = null;
+                return;
+            }
+        }
+    }
+
+    // Hand the whole batch of the tick to every observer (in registration order), then empty the buffer
+    @Override
+    public void notifyObservers() {
+        if (size == 0) return;
+        for (int i = 0; i < observerCount; i++) {
+            observers[i].onEvents(this);
+        }
+        size = 0;
+    }
+
+    // The buffer only grows if a single tick produces more events than ever before, so it stabilizes quickly
+    private void grow() {
+        int newCapacity = types.length * 2;
+        int[] newTypes = new int[newCapacity];
+        int[] newEntityIds = new int[newCapacity];
+        int[] newTiles = new int[newCapacity];
+        System.arraycopy(types, 0, newTypes, 0, size);
+        System.arraycopy(entityIds, 0, newEntityIds, 0, size);
+        System.arraycopy(tiles, 0, newTiles, 0, size);
+        types = newTypes;
+        entityIds = newEntityIds;
+        tiles = newTiles;
+    }
+}
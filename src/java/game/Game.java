@@ -1,166 +1,497 @@
 package game;
 
+import game.agent.Agent;
+import game.agent.Observation;
 import game.entities.*;
 import game.entities.ghosts.Blinky;
 import game.entities.ghosts.Ghost;
 import game.ghostFactory.*;
 import game.ghostStates.EatenMode;
 import game.ghostStates.FrightenedMode;
+import game.pathfinding.PathCache;
+import game.pathfinding.SearchBudget;
+import game.pathfinding.TileGrid;
+import game.profiling.Profiler;
+import game.replay.ReplayWriter;
+import game.telemetry.TraceWriter;
 import game.utils.CollisionDetector;
-import game.utils.CsvReader;
 import game.utils.KeyHandler;
 
 import java.awt.*;
-import java.net.URISyntaxException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 // Class that manages the game itself.
+// Several games can run at the same time (e.g. headless games on several threads): the static accessors used by the
+// entities and the strategies (getPacman(), getWalls()...) return the state of the game current on the calling thread,
+// i.e. the last one created or updated on it.
 public class Game implements Observer {
-    // To list the different entities present on the window
+    public static final String DEFAULT_LEVEL = "level/leveltest.csv";
+
+    // Directions held by whoever controls Pacman during a tick (see inputKeys())
+    public static final int KEY_LEFT = 1;
+    public static final int KEY_RIGHT = 2;
+    public static final int KEY_UP = 4;
+    public static final int KEY_DOWN = 8;
+
+    private static final ThreadLocal<Game> current = new ThreadLocal<>();
+    private static volatile Game lastCreated; // For the threads that never created a game (e.g. the EDT)
+
+    private static final int SNAPSHOT_HEADER_SIZE = 8; // Ints saved before the entities (see save())
+
+    // To list the different entities present on the window (the walls and the Pac-Gums belong to the level)
     private List<Entity> objects = new ArrayList();
     private List<Ghost> ghosts = new ArrayList();
-    private static List<Wall> walls = new ArrayList();
+    private final Level level; // Shared by every game played on the same level
+    private long[] eatenPacGums; // One bit per Pac-Gum of the level
+    private boolean eatenPacGumsShared = false; // Also referenced by a copy-on-write snapshot: copied before it is changed
+    private int cellsPerRow;
+    private int cellsPerColumn;
 
-    private static Pacman pacman;
-    private static Blinky blinky;
+    private Pacman pacman;
+    private Blinky blinky;
 
-    private static boolean firstInput = false;
+    private boolean firstInput = false;
+    private long tick = 0; // Number of updates since the start
+    private final long seed;
+    private final SeededRandom random;
+    private final UIPanel uiPanel; // null in a headless game
 
-    public Game(){
-        // Game initialization
+    // End of a headless game (with the UI, the application exits at the end of the game)
+    private int pacGumsLeft = 0;
+    private int score = 0; // Shown by the HUD
+    private boolean over = false;
+    private Ghost caughtBy;
+
+    // Events posted by Pacman during a tick, dispatched to the observers at the end of the tick
+    private final EventBus eventBus = new EventBus(this);
+
+    private ReplayWriter recorder; // null unless the game is recorded
+    private TraceWriter tracer; // null unless the game is traced
+    private int keys = 0; // Directions given to Pacman since the last tick
+    private PathCache pathCache; // Next steps already computed by the ghosts of this game, created on first use
+
+    public Game() {
+        this(DEFAULT_LEVEL, System.nanoTime());
+    }
+
+    // Game on a level of the resources, with a seed for everything random in it (frightened ghosts)
+    public Game(String levelResource, long seed){
+        this(Level.get(levelResource), seed);
+    }
+
+    public Game(Level level, long seed){
+        this(level, seed, false);
+    }
+
+    // Game on the next level of a session: the score of the previous levels goes on
+    // (it is part of the state of the game, so the replays and the traces of the level start from it)
+    public Game(Level level, long seed, int score){
+        this(level, seed, false);
+        this.score = score;
+    }
 
-        // Loading the level CSV file
-        List<List<String>> data = null;
-        try {
-            data = new CsvReader().parseCsv(getClass().getClassLoader().getResource("level/leveltest.csv").toURI());
-        } catch (URISyntaxException e) {
-            e.printStackTrace();
+    // A simulation (a copy of a game that an agent plays forward to plan its moves, see restore()) never has a UI,
+    // and is never seen by the threads that didn't create it
+    public Game(Level level, long seed, boolean simulation){
+        // Game initialization
+        current.set(this);
+        if (!simulation) {
+            lastCreated = this;
         }
-        int cellsPerRow = data.get(0).size();
-        int cellsPerColumn = data.size();
-        int cellSize = 8;
+        uiPanel = simulation ? null : GameLauncher.getUIPanel();
+        this.seed = seed;
+        random = new SeededRandom(seed);
+
+        // The level CSV file is only loaded by the first game played on it
+        this.level = level;
+        cellsPerRow = level.getCols();
+        cellsPerColumn = level.getRows();
+        pacGumsLeft = level.getPacGumCount();
+        eatenPacGums = new long[(pacGumsLeft + 63) / 64];
+
+        // The game observes its own events (the HUD shows the score the game computed, see update())
+        eventBus.registerObserver(this);
 
         CollisionDetector collisionDetector = new CollisionDetector(this);
         AbstractGhostFactory abstractGhostFactory = null;
 
-        // The level has a "grid", and for each cell in the CSV file, we display a particular entity
-        // on a grid cell depending on the character present
-        for(int xx = 0 ; xx < cellsPerRow ; xx++) {
-            for(int yy = 0 ; yy < cellsPerColumn ; yy++) {
-                String dataChar = data.get(yy).get(xx);
-                if (dataChar.equals("x")) { // Creation of the walls
-                    objects.add(new Wall(xx * cellSize, yy * cellSize));
-                }else if (dataChar.equals("P")) { // Creation of Pacman
-                    pacman = new Pacman(xx * cellSize, yy * cellSize);
-                    pacman.setCollisionDetector(collisionDetector);
-
-                    // Register Pacman’s various observers
-                    pacman.registerObserver(GameLauncher.getUIPanel());
-                    pacman.registerObserver(this);
-                }else if (dataChar.equals("b") || dataChar.equals("p") || dataChar.equals("i") || dataChar.equals("c")) { // Creation of the ghosts using the different factories
-                    switch (dataChar) {
-                        case "b":
-                            abstractGhostFactory = new BlinkyFactory();
-                            break;
-                        case "p":
-                            abstractGhostFactory = new PinkyFactory();
-                            break;
-                        case "i":
-                            abstractGhostFactory = new InkyFactory();
-                            break;
-                        case "c":
-                            abstractGhostFactory = new ClydeFactory();
-                            break;
-                    }
+        // Creation of Pacman and of the ghosts (using the different factories) where the level file puts them
+        for (int[] spawn : level.getSpawns()) {
+            char dataChar = (char) spawn[0];
+            int x = spawn[1];
+            int y = spawn[2];
+            if (dataChar == 'P') {
+                pacman = new Pacman(x, y);
+                pacman.setCollisionDetector(collisionDetector);
+                pacman.setEventBus(eventBus);
+            } else {
+                switch (dataChar) {
+                    case 'b':
+                        abstractGhostFactory = new BlinkyFactory();
+                        break;
+                    case 'p':
+                        abstractGhostFactory = new PinkyFactory();
+                        break;
+                    case 'i':
+                        abstractGhostFactory = new InkyFactory();
+                        break;
+                    case 'c':
+                        abstractGhostFactory = new ClydeFactory();
+                        break;
+                }
 
-                    Ghost ghost = abstractGhostFactory.makeGhost(xx * cellSize, yy * cellSize);
-                    ghosts.add(ghost);
-                    if (dataChar.equals("b")) {
-                        blinky = (Blinky) ghost;
-                    }
-                }else if (dataChar.equals(".")) { // Creation of the Pac-Gums
-                    objects.add(new PacGum(xx * cellSize, yy * cellSize));
-                }else if (dataChar.equals("o")) { // Creation of the Super Pac-Gums
-                    objects.add(new SuperPacGum(xx * cellSize, yy * cellSize));
-                }else if (dataChar.equals("-")) { // Creation of the walls of the ghosts' house
-                    objects.add(new GhostHouse(xx * cellSize, yy * cellSize));
+                Ghost ghost = abstractGhostFactory.makeGhost(x, y);
+                ghosts.add(ghost);
+                if (dataChar == 'b') {
+                    blinky = (Blinky) ghost;
                 }
             }
         }
         objects.add(pacman);
         objects.addAll(ghosts);
 
-        for (Entity o : objects) {
-            if (o instanceof Wall) {
-                walls.add((Wall) o);
-            }
+        for (int i = 0; i < objects.size(); i++) {
+            objects.get(i).setId(i);
         }
     }
 
+    // Game current on the calling thread
+    public static Game current() {
+        Game game = current.get();
+        return game != null ? game : lastCreated;
+    }
+
     public static List<Wall> getWalls() {
-        return walls;
+        return current().level.getWalls();
+    }
+
+    public static Level getLevel() {
+        return current().level;
+    }
+
+    public static long getTick() {
+        return current().tick;
+    }
+
+    public static TileGrid getTileGrid() {
+        return current().level.getTileGrid();
+    }
+
+    public static Random getRandom() {
+        return current().random;
+    }
+
+    // Each game has its own cache: the level and its grid are shared by every game, on every thread
+    public static PathCache getPathCache() {
+        Game game = current();
+        synchronized (game) {
+            if (game.pathCache == null) {
+                game.pathCache = new PathCache();
+            }
+            return game.pathCache;
+        }
+    }
+
+    // Size of the level in pixels
+    public static int getWidth() {
+        return current().cellsPerRow * 8;
+    }
+
+    public static int getHeight() {
+        return current().cellsPerColumn * 8;
+    }
+
+    public int getCellsPerRow() {
+        return cellsPerRow;
+    }
+
+    public int getCellsPerColumn() {
+        return cellsPerColumn;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isPacGumEaten(int pacGum) {
+        return (eatenPacGums[pacGum >> 6] & (1L << pacGum)) != 0;
+    }
+
+    public int getPacGumsLeft() {
+        return pacGumsLeft;
+    }
+
+    // True once Pacman was caught or ate every Pac-Gum (headless games only)
+    public boolean isOver() {
+        return over;
+    }
+
+    // Ghost that caught Pacman, or null
+    public Ghost getCaughtBy() {
+        return caughtBy;
     }
 
     public List<Entity> getEntities() {
         return objects;
     }
 
-    // Update all entities
+    public List<Ghost> getGhosts() {
+        return ghosts;
+    }
+
+    public Entity getEntity(int id) {
+        return objects.get(id);
+    }
+
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    // Update all entities (each update is measured by the profiler under the type of the entity),
+    // then dispatch the events of the tick in one batch
     public void update() {
-        for (Entity o: objects) {
-            if (!o.isDestroyed()) o.update();
+        current.set(this);
+        tick++;
+        SearchBudget.newTick();
+        for (int i = 0; i < objects.size(); i++) {
+            Entity o = objects.get(i);
+            if (!o.isDestroyed()) {
+                long t = Profiler.start();
+                o.update();
+                Profiler.stop(Profiler.entityPhase(o), t);
+            }
         }
+        eventBus.notifyObservers();
+        if (uiPanel != null) {
+            uiPanel.setScore(score); // Once the events of the tick are applied
+        }
+        if (recorder != null) {
+            recorder.tick(tick, keys);
+        }
+        if (tracer != null) {
+            tracer.tick();
+        }
+        keys = 0;
     }
 
     // Handle inputs
     public void input(KeyHandler k) {
-        pacman.input(k);
+        inputKeys((k.k_left.isPressed ? KEY_LEFT : 0) | (k.k_right.isPressed ? KEY_RIGHT : 0)
+                | (k.k_up.isPressed ? KEY_UP : 0) | (k.k_down.isPressed ? KEY_DOWN : 0));
+    }
+
+    // Input of an agent instead of the keyboard (one of the Agent actions)
+    public void input(int action) {
+        inputKeys(action == Agent.LEFT ? KEY_LEFT : action == Agent.RIGHT ? KEY_RIGHT
+                : action == Agent.UP ? KEY_UP : action == Agent.DOWN ? KEY_DOWN : 0);
+    }
+
+    // Directions held for the next tick (KEY_LEFT | KEY_UP...), whoever controls Pacman: this is what a replay records
+    public void inputKeys(int keys) {
+        current.set(this);
+        this.keys = keys;
+        pacman.input((keys & KEY_LEFT) != 0, (keys & KEY_RIGHT) != 0, (keys & KEY_UP) != 0, (keys & KEY_DOWN) != 0);
+    }
+
+    // Records the inputs of the game from now on (see ReplayWriter); null to stop
+    public void setRecorder(ReplayWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    // Writes the trace of the game from now on (see TraceWriter); null to stop
+    public void setTracer(TraceWriter tracer) {
+        if (this.tracer != null) {
+            eventBus.removeObserver(this.tracer);
+        }
+        this.tracer = tracer;
+        if (tracer != null) {
+            eventBus.registerObserver(tracer);
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Fills an observation with the current state of the game
+    public void observe(Observation observation) {
+        current.set(this);
+        observation.update(this);
+    }
+
+    // Saves the state of the game into a snapshot (whose buffers are reused) and returns it.
+    // Must be called between two ticks, i.e. not from an entity's update
+    public GameSnapshot save(GameSnapshot snapshot) {
+        int size = SNAPSHOT_HEADER_SIZE;
+        for (int i = 0; i < objects.size(); i++) {
+            size += objects.get(i).getStateSize();
+        }
+        int[] data = snapshot.ensureCapacity(size);
+        long randomState = random.getState();
+        data[0] = (int) (tick >>> 32);
+        data[1] = (int) tick;
+        data[2] = (int) (randomState >>> 32);
+        data[3] = (int) randomState;
+        data[4] = (firstInput ? 1 : 0) | (over ? 2 : 0);
+        data[5] = pacGumsLeft;
+        data[6] = score;
+        data[7] = caughtBy == null ? -1 : caughtBy.getId();
+        int offset = SNAPSHOT_HEADER_SIZE;
+        for (int i = 0; i < objects.size(); i++) {
+            offset = objects.get(i).saveState(data, offset);
+        }
+        snapshot.size = offset;
+        snapshot.level = level;
+
+        if (snapshot.isCopyOnWrite()) {
+            snapshot.eatenPacGums = eatenPacGums;
+            eatenPacGumsShared = true;
+        } else {
+            if (snapshot.eatenPacGums == null || snapshot.eatenPacGums.length != eatenPacGums.length) {
+                snapshot.eatenPacGums = new long[eatenPacGums.length];
+            }
+            System.arraycopy(eatenPacGums, 0, snapshot.eatenPacGums, 0, eatenPacGums.length);
+        }
+        return snapshot;
+    }
+
+    // Puts the game back in the state of a snapshot saved by a game on the same level (this one or another one)
+    public void restore(GameSnapshot snapshot) {
+        if (snapshot.level != level) {
+            throw new IllegalArgumentException("The snapshot was not saved on the level " + level.getName());
+        }
+        current.set(this);
+        int[] data = snapshot.data;
+        tick = ((long) data[0] << 32) | (data[1] & 0xFFFFFFFFL);
+        random.setState(((long) data[2] << 32) | (data[3] & 0xFFFFFFFFL));
+        firstInput = (data[4] & 1) != 0;
+        over = (data[4] & 2) != 0;
+        pacGumsLeft = data[5];
+        score = data[6];
+        caughtBy = data[7] < 0 ? null : (Ghost) objects.get(data[7]);
+        int offset = SNAPSHOT_HEADER_SIZE;
+        for (int i = 0; i < objects.size(); i++) {
+            offset = objects.get(i).restoreState(data, offset);
+        }
+
+        if (snapshot.isCopyOnWrite()) {
+            eatenPacGums = snapshot.eatenPacGums;
+            eatenPacGumsShared = true;
+        } else {
+            if (eatenPacGumsShared) {
+                eatenPacGums = new long[eatenPacGums.length];
+                eatenPacGumsShared = false;
+            }
+            System.arraycopy(snapshot.eatenPacGums, 0, eatenPacGums, 0, eatenPacGums.length);
+        }
+        eventBus.clear();
     }
 
-    // Render all entities
+    // Render the Pac-Gums that are left, then all entities
     public void render(Graphics2D g) {
+        List<StaticEntity> pacGums = level.getPacGums();
+        for (int i = 0; i < pacGums.size(); i++) {
+            if (isPacGumEaten(i)) continue;
+            StaticEntity pacGum = pacGums.get(i);
+            if (pacGum instanceof SuperPacGum) {
+                ((SuperPacGum) pacGum).render(g, tick);
+            } else {
+                pacGum.render(g);
+            }
+        }
         for (Entity o: objects) {
             if (!o.isDestroyed()) o.render(g);
         }
     }
 
     public static Pacman getPacman() {
-        return pacman;
+        return current().pacman;
     }
     public static Blinky getBlinky() {
-        return blinky;
+        return current().blinky;
     }
 
     // The game is notified when Pacman is in contact with a Pac-Gum, a Super Pac-Gum, or a ghost
     @Override
-    public void updatePacGumEaten(PacGum pg) {
-        pg.destroy(); // The Pac-Gum is destroyed when Pacman eats it
+    public void onEvents(EventBus events) {
+        for (int i = 0; i < events.size(); i++) {
+            switch (events.getType(i)) {
+                case GameEvent.PAC_GUM_EATEN:
+                    pacGumEaten(events.getEntityId(i));
+                    break;
+                case GameEvent.SUPER_PAC_GUM_EATEN:
+                    superPacGumEaten(events.getEntityId(i));
+                    break;
+                case GameEvent.GHOST_COLLISION:
+                    ghostCollision((Ghost) events.getEntity(i));
+                    break;
+            }
+        }
     }
 
-    @Override
-    public void updateSuperPacGumEaten(SuperPacGum spg) {
-        spg.destroy(); // The Super Pac-Gum is destroyed when Pacman eats it
+    // (the events of the Pac-Gums carry their index in the level)
+    private void pacGumEaten(int pacGum) {
+        pacGumDestroyed(pacGum); // The Pac-Gum is destroyed when Pacman eats it
+        score += 10;
+    }
+
+    private void superPacGumEaten(int pacGum) {
+        pacGumDestroyed(pacGum); // The Super Pac-Gum is destroyed when Pacman eats it
+        score += 100;
         for (Ghost gh : ghosts) {
             gh.getState().superPacGumEaten(); // If there is a specific transition when a Super Pac-Gum is eaten, the ghosts' state changes
         }
     }
 
-    @Override
-    public void updateGhostCollision(Ghost gh) {
+    private void ghostCollision(Ghost gh) {
         if (gh.getState() instanceof FrightenedMode) {
+            score += 500;
             gh.getState().eaten(); // If there is a specific transition when the ghost is eaten, its state changes accordingly
-        }else if (!(gh.getState() instanceof EatenMode)) {
-            System.out.println("Game over !\nScore : " + GameLauncher.getUIPanel().getScore()); // When Pacman comes into contact with a ghost that is neither frightened nor eaten, it's game over!
-            System.exit(0); //TODO
+        }else if (!(gh.getState() instanceof EatenMode) && !over) {
+            // When Pacman comes into contact with a ghost that is neither frightened nor eaten, it's game over!
+            over = true;
+            caughtBy = gh;
+            if (uiPanel != null) {
+                try {
+                    // The game ends here
+                    if (recorder != null) {
+                        recorder.tick(tick, keys);
+                        recorder.close();
+                    }
+                    if (tracer != null) {
+                        tracer.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                System.out.println("Game over !\nScore : " + score);
+                System.exit(0); //TODO
+            }
+        }
+    }
+
+    // Without the UI, the game is over when the last Pac-Gum is eaten (nothing happens yet with the UI)
+    private void pacGumDestroyed(int pacGum) {
+        if (isPacGumEaten(pacGum)) return;
+        if (eatenPacGumsShared) {
+            eatenPacGums = eatenPacGums.clone();
+            eatenPacGumsShared = false;
+        }
+        eatenPacGums[pacGum >> 6] |= 1L << pacGum;
+        pacGumsLeft--;
+        if (pacGumsLeft == 0 && uiPanel == null) {
+            over = true;
         }
     }
 
     public static void setFirstInput(boolean b) {
-        firstInput = b;
+        current().firstInput = b;
     }
 
     public static boolean getFirstInput() {
-        return firstInput;
+        return current().firstInput;
     }
 }
@@ -0,0 +1,25 @@
+package game;
+
+import game.entities.Entity;
+
+// Types of the events posted on the EventBus (stored as plain ints so posting an event never allocates)
+public final class GameEvent {
+    public static final int PAC_GUM_EATEN = 0;
+    public static final int SUPER_PAC_GUM_EATEN = 1;
+    public static final int GHOST_COLLISION = 2;
+
+    private GameEvent() {}
+
+    // Packs the grid cell of an entity into a single int (row in the high bits, column in the low bits)
+    public static int tileOf(Entity e) {
+        return ((e.getyPos() / 8) << 16) | ((e.getxPos() / 8) & 0xFFFF);
+    }
+
+    public static int tileX(int tile) {
+        return (short) tile;
+    }
+
+    public static int tileY(int tile) {
+        return tile >> 16;
+    }
+}
@@ -1,38 +1,74 @@
 package game;
 
+import game.pathfinding.PathCache;
+import game.profiling.Profiler;
+import game.profiling.Startup;
+import game.utils.Scaling;
+import game.utils.Sprites;
+
 import javax.swing.*;
+import java.awt.*;
 import java.io.IOException;
 
-// Entry point of the application
+// Entry point of the application: java game.GameLauncher [levels...] (see LevelManager)
 public class GameLauncher {
     private static UIPanel uiPanel;
+    private static LevelManager levels;
 
+    // Until the first frame, the images are decoded in parallel (Sprites) and the first level is loaded (LevelManager) while
+    // this thread creates the window; the MBeans, which the first frame doesn't need, are registered on their own thread
     public static void main(String[] args) {
+        Startup.mark("main");
+        Sprites.preload(Sprites.ALL);
+        levels = LevelManager.fromArgs(args);
+        Thread mbeans = new Thread(() -> {
+            Profiler.registerMBean();
+            PathCache.registerMBean();
+        }, "mbeans");
+        mbeans.setDaemon(true);
+        mbeans.start();
+
         JFrame window = new JFrame();
         window.setTitle("Pacman");
         window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        JPanel gameWindow = new JPanel();
+        JPanel gameWindow = new JPanel(new BorderLayout());
 
-        // Create the "game area"
+        // Create the "game area", of the size of the first level (448x496 for the level files) at the scale of
+        // -Dpacman.scale (it then follows the size of the window)
+        Level first = levels.current();
+        Startup.mark("level");
+        Scaling.setScale(scaleOf(System.getProperty("pacman.scale", "1"), first.getCols() * 8, first.getRows() * 8));
         try {
-            gameWindow.add(new GameplayPanel(448, 496));
+            gameWindow.add(new GameplayPanel(first.getCols() * 8, first.getRows() * 8), BorderLayout.CENTER);
         } catch (IOException e) {
             e.printStackTrace();
         }
 
         // Create the UI (to display the score)
-        uiPanel = new UIPanel(256, 496);
-        gameWindow.add(uiPanel);
+        uiPanel = new UIPanel(256, Scaling.scaled(first.getRows() * 8));
+        gameWindow.add(uiPanel, BorderLayout.EAST);
 
         window.setContentPane(gameWindow);
-        window.setResizable(false);
+        window.setResizable(true);
         window.pack();
         window.setLocationRelativeTo(null);
         window.setVisible(true);
+        Startup.mark("window");
+    }
+
+    // A factor (2, 2.5...), or "auto": the largest integer factor at which the game and the HUD fit on the screen
+    private static double scaleOf(String property, int width, int height) {
+        if (!property.equals("auto")) return Double.parseDouble(property);
+        Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+        return Math.max(1, Math.floor(Math.min((screen.width - 256) / (double) width, (screen.height - 40) / (double) height)));
     }
 
     public static UIPanel getUIPanel() {
         return uiPanel;
     }
+
+    public static LevelManager getLevels() {
+        return levels;
+    }
 }
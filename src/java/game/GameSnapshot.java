@@ -0,0 +1,95 @@
+package game;
+
+import java.util.Arrays;
+
+// State of a game between two ticks (see Game.save() and Game.restore()), kept in primitive arrays that are reused
+// from one save to the next, so that a tree search or a rollback can save and restore thousands of states per second
+// without allocating.
+// Only what changes while the level is played is saved: the tick, the score, the state of the random generator,
+// the position, speed and animation of each entity, the state and timers of each ghost, and which Pac-Gums were eaten.
+// The searches of the ghosts that are running in the background or sliced over several ticks are not part of it.
+public class GameSnapshot {
+    // With copy-on-write, saving and restoring share the bitset of the eaten Pac-Gums instead of copying it:
+    // the game copies it the next time it eats a Pac-Gum (worth it when most saved states are restored without eating one)
+    private final boolean copyOnWrite;
+
+    int[] data = new int[0];
+    int size = 0;
+    long[] eatenPacGums;
+    Level level; // Level of the game that was saved, null until the first save
+
+    public GameSnapshot() {
+        this(false);
+    }
+
+    public GameSnapshot(boolean copyOnWrite) {
+        this.copyOnWrite = copyOnWrite;
+    }
+
+    public boolean isCopyOnWrite() {
+        return copyOnWrite;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public boolean isEmpty() {
+        return level == null;
+    }
+
+    public long getTick() {
+        return ((long) data[0] << 32) | (data[1] & 0xFFFFFFFFL);
+    }
+
+    // Size of the saved state, Pac-Gums included
+    public int getSizeInBytes() {
+        return size * 4 + (eatenPacGums == null ? 0 : eatenPacGums.length * 8);
+    }
+
+    // Saved state, in the first getSize() ints (the layout is the one of Game.save()); must not be changed
+    public int[] getData() {
+        return data;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // One bit per Pac-Gum of the level, set if it was eaten; must not be changed
+    public long[] getEatenPacGums() {
+        return eatenPacGums;
+    }
+
+    // Prepares the buffers of a snapshot that is rebuilt from another form than a game (e.g. received from a server),
+    // for a state of the given size on a level: the caller then fills getData() and getEatenPacGums()
+    public void prepare(Level level, int size) {
+        if (copyOnWrite) throw new IllegalStateException("The Pac-Gums of a copy-on-write snapshot can't be written");
+        ensureCapacity(size);
+        this.size = size;
+        this.level = level;
+        int words = (level.getPacGumCount() + 63) / 64;
+        if (eatenPacGums == null || eatenPacGums.length != words) {
+            eatenPacGums = new long[words];
+        }
+    }
+
+    public void copyFrom(GameSnapshot other) {
+        prepare(other.level, other.size);
+        System.arraycopy(other.data, 0, data, 0, other.size);
+        System.arraycopy(other.eatenPacGums, 0, eatenPacGums, 0, eatenPacGums.length);
+    }
+
+    // True if both snapshots hold the same state of a game on the same level
+    public boolean sameState(GameSnapshot other) {
+        return level == other.level && Arrays.equals(data, 0, size, other.data, 0, other.size)
+                && Arrays.equals(eatenPacGums, other.eatenPacGums);
+    }
+
+    int[] ensureCapacity(int size) {
+        if (data.length < size) {
+            data = new int[size];
+        }
+        return data;
+    }
+}
@@ -1,35 +1,77 @@
 package game;
 
+import game.agent.Agent;
+import game.agent.Agents;
+import game.agent.Observation;
+import game.entities.ghosts.Ghost;
+import game.pathfinding.PathfindingStats;
+import game.profiling.Profiler;
+import game.profiling.RenderEvent;
+import game.profiling.Startup;
+import game.profiling.TickEvent;
+import game.replay.Replay;
+import game.replay.ReplayPlayer;
+import game.replay.ReplayWriter;
+import game.telemetry.TraceWriter;
 import game.utils.KeyHandler;
+import game.utils.Scaling;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
 
 // Panel for the "game area"
+// The game is drawn at the scale of the panel (see Scaling): width and height are the size of the level in pixels, the
+// image the game is drawn on has the size of the level at that scale and is copied to the panel without scaling.
+// When the panel is resized, the scale changes and the images are scaled once for the new one.
 public class GameplayPanel extends JPanel implements Runnable {
     public static int width;
     public static int height;
     private Thread thread;
-    private boolean running = false;
+    private volatile boolean running = false;
 
     private BufferedImage img;
     private Graphics2D g;
-    private Image backgroundImage;
+    private Level backgroundLevel; // Level whose maze is drawn under the entities
 
     private KeyHandler key;
 
     private Game game;
 
+    private Agent agent; // Controls Pacman instead of the keyboard with -Dpacman.agent=<name> (see Agents)
+    private final Observation observation = new Observation();
+
+    private ReplayWriter recorder; // Records the game with -Dpacman.record=<directory> (see ReplayWriter)
+    private TraceWriter tracer; // Writes the trace of the game with -Dpacman.trace=<directory> (see TraceWriter)
+    private ReplayPlayer replayPlayer; // Plays a recorded game instead with -Dpacman.replay=<file> (see ReplayPlayer)
+    private double replaySpeed = 1; // Ticks of the replay per tick, -Dpacman.replay.speed (up to ReplayPlayer.MAX_SPEED)
+
+    // Colors of the pathfinding debug overlay, one per ghost (in the order of the level file)
+    private static final Color[] DEBUG_COLORS = {
+            new Color(255, 0, 0), new Color(255, 184, 255), new Color(0, 255, 255), new Color(255, 184, 82)
+    };
+    // Same colors, translucent, for the explored tiles
+    private static final Color[] DEBUG_EXPLORED_COLORS = new Color[DEBUG_COLORS.length];
+    static {
+        for (int i = 0; i < DEBUG_COLORS.length; i++) {
+            Color color = DEBUG_COLORS[i];
+            DEBUG_EXPLORED_COLORS[i] = new Color(color.getRed(), color.getGreen(), color.getBlue(), 50);
+        }
+    }
+    private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 9);
+
     public GameplayPanel(int width, int height) throws IOException {
         this.width = width;
         this.height = height;
-        setPreferredSize(new Dimension(width, height));
+        setPreferredSize(new Dimension(Scaling.scaled(width), Scaling.scaled(height)));
+        setBackground(Color.BLACK);
         setFocusable(true);
         requestFocus();
-        backgroundImage = ImageIO.read(getClass().getClassLoader().getResource("img/background.png"));
     }
 
     @Override
@@ -45,42 +87,220 @@ public class GameplayPanel extends JPanel implements Runnable {
     // Game initialization
     public void init() {
         running = true;
-        img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        g = (Graphics2D) img.getGraphics();
+        createImage(Scaling.getScale());
 
         key = new KeyHandler(this);
 
-        game = new Game();
+        String replayFile = System.getProperty("pacman.replay");
+        if (replayFile != null && startReplay(replayFile)) return;
+
+        LevelManager levels = GameLauncher.getLevels();
+        startLevel(levels != null ? levels.current() : Level.get(Game.DEFAULT_LEVEL), 0);
+
+        String agentName = System.getProperty("pacman.agent");
+        if (agentName != null) {
+            agent = Agents.create(agentName);
+            agent.reset(System.nanoTime());
+        }
+
+        if (System.getProperty("pacman.record") != null || System.getProperty("pacman.trace") != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::closeFiles, "game-files"));
+        }
+    }
+
+    // Image the game is drawn on, at the given scale
+    private void createImage(double scale) {
+        Scaling.setScale(scale);
+        if (g != null) g.dispose();
+        img = Scaling.createImage(Scaling.scaled(width), Scaling.scaled(height), Transparency.OPAQUE);
+        g = img.createGraphics();
+        // Everything is drawn at its size: the images are copied without interpolation and the shapes without antialiasing
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+    }
+
+    // Largest scale at which the level fits in the panel (it doesn't change until the panel is resized)
+    private void fitToPanel() {
+        int panelWidth = getWidth();
+        int panelHeight = getHeight();
+        if (panelWidth <= 0 || panelHeight <= 0) return;
+        if (Scaling.scaled(width) == panelWidth && Scaling.scaled(height) <= panelHeight) return;
+        if (Scaling.scaled(height) == panelHeight && Scaling.scaled(width) <= panelWidth) return;
+        createImage(Math.min((double) panelWidth / width, (double) panelHeight / height));
+        repaint(); // The borders around the image
+    }
+
+    // New game on a level (already loaded by the LevelManager, with its sprites and its maze image), starting from the
+    // score of the previous levels, with its own replay and trace
+    private void startLevel(Level level, int score) {
+        game = new Game(level, System.nanoTime(), score);
+        backgroundLevel = level;
+        try {
+            String recordDirectory = System.getProperty("pacman.record");
+            if (recordDirectory != null) {
+                Files.createDirectories(Paths.get(recordDirectory));
+                recorder = new ReplayWriter(Paths.get(recordDirectory, "game-" + game.getSeed() + ".replay"), game);
+            }
+            String traceDirectory = System.getProperty("pacman.trace");
+            if (traceDirectory != null) {
+                Files.createDirectories(Paths.get(traceDirectory));
+                tracer = new TraceWriter(Paths.get(traceDirectory, "game-" + game.getSeed() + ".trace"), game);
+            }
+        } catch (IOException | IllegalStateException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // When every Pac-Gum is eaten, the next level (loaded while this one was played) replaces it; the score goes on
+    private void nextLevel() {
+        LevelManager levels = GameLauncher.getLevels();
+        if (levels == null) return;
+        try {
+            if (recorder != null) recorder.close();
+            if (tracer != null) tracer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        startLevel(levels.next(), game.getScore());
+        GameLauncher.getUIPanel().setLevel(levels.getLevelNumber());
+    }
+
+    // The replay and the trace are closed when the program ends (the game closes them itself when Pacman is caught)
+    private void closeFiles() {
+        if ((recorder == null || recorder.isClosed()) && (tracer == null || tracer.isClosed())) return;
+        running = false;
+        try {
+            thread.join(1000); // The last tick
+            if (recorder != null) recorder.close();
+            if (tracer != null) tracer.close();
+        } catch (InterruptedException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // The replay is played in a game without UI (the game doesn't end the program when Pacman is caught), from the start
+    // or from -Dpacman.replay.seek=<tick> ("catch": 2 seconds before Pacman was caught)
+    private boolean startReplay(String file) {
+        try {
+            replayPlayer = new ReplayPlayer(Replay.read(Paths.get(file)), true);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        game = replayPlayer.getGame();
+        backgroundLevel = replayPlayer.getReplay().getLevel();
+        replaySpeed = Math.max(0, Math.min(ReplayPlayer.MAX_SPEED, Double.parseDouble(System.getProperty("pacman.replay.speed", "1"))));
+        String seek = System.getProperty("pacman.replay.seek");
+        if ("catch".equals(seek)) {
+            replayPlayer.seekToCatch(120);
+        } else if (seek != null) {
+            replayPlayer.seek(Long.parseLong(seek));
+        }
+        return true;
     }
 
     // Game update
     public void update() {
-        game.update();
+        long t = Profiler.start();
+        if (replayPlayer != null) {
+            replayPlayer.advance(replaySpeed);
+        } else {
+            game.update();
+            if (game.getPacGumsLeft() == 0) nextLevel();
+        }
+        Profiler.stop(Profiler.UPDATE, t);
     }
 
-    // Input handling
+    // Input handling (none during a replay: the directions are in the replay)
     public void input(KeyHandler key) {
-        game.input(key);
+        if (replayPlayer != null) return;
+        long t = Profiler.start();
+        if (agent != null) {
+            game.observe(observation);
+            game.input(agent.act(observation));
+        } else {
+            game.input(key);
+        }
+        Profiler.stop(Profiler.INPUT, t);
     }
 
     // "Game rendering"; we prepare what will be displayed by drawing on an "image":
-    // a background and the game entities on top
+    // a background and the game entities on top (both already at the scale of the image),
+    // then the debug overlays, drawn in level pixels
     public void render() {
         if (g != null) {
-            g.drawImage(backgroundImage, 0, 0, width, height, null);
+            long t = Profiler.start();
+            fitToPanel();
+            try {
+                g.drawImage(Scaling.getMaze(backgroundLevel), 0, 0, null);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
             game.render(g);
+            Profiler.stop(Profiler.RENDER, t);
+            AffineTransform transform = g.getTransform();
+            g.scale(Scaling.getScale(), Scaling.getScale());
+            renderReplayStatus(g);
+            renderPathfindingDebug(g);
+            Profiler.renderOverlay(g, width);
+            g.setTransform(transform);
+        }
+    }
+
+    // Debug overlay (toggled with the O key): tiles explored by the last search of each ghost, the path it chose,
+    // and the statistics of its strategy
+    private void renderPathfindingDebug(Graphics2D g) {
+        if (!PathfindingStats.isCaptureDebug()) return;
+        List<Ghost> ghosts = game.getGhosts();
+        g.setFont(OVERLAY_FONT);
+        int textY = height - 4 - 11 * (ghosts.size() - 1);
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            PathfindingStats stats = ghost.getStrategy().getStats();
+            if (stats == null) continue;
+            Color color = DEBUG_COLORS[i % DEBUG_COLORS.length];
+
+            boolean[] explored = stats.getExplored();
+            int cols = stats.getExploredCols();
+            if (explored != null) {
+                g.setColor(DEBUG_EXPLORED_COLORS[i % DEBUG_EXPLORED_COLORS.length]);
+                for (int tile = 0; tile < explored.length; tile++) {
+                    if (explored[tile]) g.fillRect(tile % cols * 8, tile / cols * 8, 8, 8);
+                }
+            }
+
+            g.setColor(color);
+            for (int tile : stats.getPath()) {
+                g.fillRect(tile % cols * 8 + 2, tile / cols * 8 + 2, 4, 4);
+            }
+            g.drawString(ghost.getClass().getSimpleName() + " " + stats, 4, textY + 11 * i);
         }
     }
 
+    // Tick of the replay, its speed and the score (the HUD only follows the games with a UI)
+    private void renderReplayStatus(Graphics2D g) {
+        if (replayPlayer == null) return;
+        Replay replay = replayPlayer.getReplay();
+        g.setFont(OVERLAY_FONT);
+        g.setColor(Color.WHITE);
+        g.drawString(String.format("Replay %d/%d x%s score %d%s", replayPlayer.getTick(), replay.getLastTick(),
+                replaySpeed, game.getScore(), replayPlayer.isFinished() ? " (end)" : ""), 4, 10);
+    }
+
     // Display the game: we display the image with the rendering
     public void draw() {
+        long t = Profiler.start();
         Graphics g2 = this.getGraphics();
-        g2.drawImage(img, 0, 0, width, height, null);
+        g2.drawImage(img, (getWidth() - img.getWidth()) / 2, (getHeight() - img.getHeight()) / 2, null);
         g2.dispose();
+        Profiler.stop(Profiler.DRAW, t);
     }
 
     @Override
     public void run() {
+        Profiler.setGameThread(Thread.currentThread());
         init();
 
         // To ensure the game runs at 60 FPS (tutorial referenced: https://www.youtube.com/watch?v=LhUN3EKZiio)
@@ -99,12 +319,22 @@ public class GameplayPanel extends JPanel implements Runnable {
         int lastSecondTime = (int) (lastUpdateTime / 1000000000);
         int oldFrameCount = 0;
 
+        long tickNanos = 0;
+        long tickCount = 0;
+        long renderCount = 0;
+
         while (running) {
             double now = System.nanoTime();
             int updateCount = 0;
             while ((now - lastUpdateTime) > TBU && (updateCount < MUBR)) {
+                long tickStart = System.nanoTime();
+                TickEvent tickEvent = new TickEvent();
+                tickEvent.begin();
                 input(key);
                 update();
+                tickEvent.tick = tickCount++;
+                tickEvent.commit();
+                tickNanos = System.nanoTime() - tickStart;
                 lastUpdateTime += TBU;
                 updateCount++;
             }
@@ -113,17 +343,25 @@ public class GameplayPanel extends JPanel implements Runnable {
                 lastUpdateTime = now - TBU;
             }
 
+            long renderStart = System.nanoTime();
+            RenderEvent renderEvent = new RenderEvent();
+            renderEvent.begin();
             render();
             draw();
+            renderEvent.frame = renderCount++;
+            renderEvent.commit();
+            if (renderCount == 1) Startup.firstFrame();
+            UIPanel uiPanel = GameLauncher.getUIPanel();
+            uiPanel.setFrameTimes(tickNanos, System.nanoTime() - renderStart);
+            uiPanel.frameDone(); // The HUD is repainted at most once per frame
+            Profiler.endFrame();
             lastRenderTime = now;
             frameCount++;
 
             int thisSecond = (int) (lastUpdateTime / 1000000000);
             if (thisSecond > lastSecondTime) {
-                if (frameCount != oldFrameCount) {
-                    // System.out.println("FPS : " + frameCount);
-                    oldFrameCount = frameCount;
-                }
+                GameLauncher.getUIPanel().setFps(frameCount); // Also refreshes the GC counter once per second
+                oldFrameCount = frameCount;
                 frameCount = 0;
                 lastSecondTime = thisSecond;
             }
@@ -0,0 +1,269 @@
+package game;
+
+import game.entities.GhostHouse;
+import game.entities.PacGum;
+import game.entities.StaticEntity;
+import game.entities.SuperPacGum;
+import game.entities.Wall;
+import game.pathfinding.TileGrid;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Everything about a level that doesn't change while it is played: the cells of the CSV file (or of a generated maze),
+// the walls, the Pac-Gums, the tile grid of the ghosts' pathfinding (and its precomputed tables) and where the entities start.
+// A level is loaded once and shared by every game played on it, so a game only keeps what changes
+// (the entities that move and which Pac-Gums were eaten).
+public class Level {
+    private static final ConcurrentHashMap<String, Level> loaded = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final int cols;
+    private final int rows;
+    private final byte[] tiles; // TileMap values, Pac-Gums included
+    private List<Wall> walls; // Built on first use: the collisions and the pathfinding use the tiles
+    private final List<StaticEntity> pacGums; // Pac-Gums and Super Pac-Gums, numbered by their index in this list
+    private final int[] pacGumAtCell; // Pac-Gum whose hitbox covers each cell, or -1
+    private final int[] pacGumCells; // Cell of each Pac-Gum in the level file
+    private final List<int[]> spawns; // Character of the level file, x and y in pixels of each entity to create
+    private final int houseX; // Pixels of the cell just above the ghosts' house, and of the one in its middle
+    private final int houseExitY;
+    private final int houseInsideY;
+    private final TileGrid tileGrid;
+    private final long hash;
+
+    // Level from the characters of its cells (index y * cols + x, same characters as the level files), e.g. a generated maze
+    Level(String name, int cols, int rows, char[] cells) {
+        this.name = name;
+        this.cols = cols;
+        this.rows = rows;
+        tiles = TileMap.fromCells(cells);
+
+        List<StaticEntity> pacGums = new ArrayList<>();
+        List<Integer> pacGumCellList = new ArrayList<>();
+        List<int[]> spawns = new ArrayList<>();
+        int door = -1;
+        // Same order as the original loading of the level: column by column
+        for (int x = 0; x < cols; x++) {
+            for (int y = 0; y < rows; y++) {
+                char cell = cells[y * cols + x];
+                switch (cell) {
+                    case '-':
+                        if (door < 0 || y * cols + x < door) door = y * cols + x;
+                        break;
+                    case '.':
+                        pacGums.add(new PacGum(x * 8, y * 8));
+                        pacGumCellList.add(y * cols + x);
+                        break;
+                    case 'o':
+                        pacGums.add(new SuperPacGum(x * 8, y * 8));
+                        pacGumCellList.add(y * cols + x);
+                        break;
+                    case 'P':
+                    case 'b':
+                    case 'p':
+                    case 'i':
+                    case 'c':
+                        spawns.add(new int[] { cell, x * 8, y * 8 });
+                        break;
+                }
+            }
+        }
+        this.pacGums = Collections.unmodifiableList(pacGums);
+        this.spawns = Collections.unmodifiableList(spawns);
+
+        pacGumCells = new int[pacGums.size()];
+        pacGumAtCell = new int[cols * rows];
+        Arrays.fill(pacGumAtCell, -1);
+        for (int i = 0; i < pacGums.size(); i++) {
+            pacGumCells[i] = pacGumCellList.get(i);
+            Rectangle hitbox = pacGums.get(i).getHitbox();
+            for (int y = hitbox.y / 8; y <= (hitbox.y + hitbox.height - 1) / 8 && y < rows; y++) {
+                for (int x = hitbox.x / 8; x <= (hitbox.x + hitbox.width - 1) / 8 && x < cols; x++) {
+                    pacGumAtCell[y * cols + x] = i;
+                }
+            }
+        }
+
+        // The ghosts leave their house from the cell just above its door (where Blinky starts), and go back to the cell
+        // at the door's top-left corner; without a door, from where Blinky starts and to 4 cells under it
+        int[] blinky = { 'b', -1, -1 };
+        for (int[] spawn : spawns) {
+            if (spawn[0] == 'b') blinky = spawn;
+        }
+        houseX = door >= 0 ? door % cols * 8 : blinky[1];
+        houseInsideY = door >= 0 ? door / cols * 8 : blinky[2] + 32;
+        houseExitY = houseInsideY - 32;
+
+        tileGrid = TileGrid.fromTiles(cols, rows, tiles);
+        tileGrid.getJumpTable(); // JPS+ preprocessing is done while loading the level
+
+        // FNV-1a of the cells and of the spawns
+        long h = 0xcbf29ce484222325L;
+        h = (h ^ cols) * 0x100000001b3L;
+        h = (h ^ rows) * 0x100000001b3L;
+        for (byte tile : tiles) {
+            h = (h ^ tile) * 0x100000001b3L;
+        }
+        for (int[] spawn : spawns) {
+            for (int value : spawn) {
+                h = (h ^ value) * 0x100000001b3L;
+            }
+        }
+        hash = h;
+    }
+
+    // Cells of a level file: lines of cells separated by ';' whose first character is kept (like String.split(), the empty
+    // cells at the end of a line are ignored). The bytes are scanned once, without a String per cell
+    static Level parse(String name, byte[] csv) {
+        List<char[]> lines = new ArrayList<>();
+        int cols = 0;
+        int start = 0;
+        while (start < csv.length) {
+            int end = start;
+            while (end < csv.length && csv[end] != '\n') end++;
+            int lineEnd = end > start && csv[end - 1] == '\r' ? end - 1 : end;
+            char[] line = new char[lineEnd - start + 1];
+            int count = 0;
+            int length = 0; // Without the empty cells at the end
+            int cellStart = start;
+            for (int i = start; i <= lineEnd; i++) {
+                if (i == lineEnd || csv[i] == ';') {
+                    line[count++] = i > cellStart ? (char) csv[cellStart] : ' ';
+                    if (i > cellStart) length = count;
+                    cellStart = i + 1;
+                }
+            }
+            if (lines.isEmpty()) cols = length;
+            lines.add(line);
+            start = end + 1;
+        }
+        char[] cells = new char[cols * lines.size()];
+        Arrays.fill(cells, ' ');
+        for (int y = 0; y < lines.size(); y++) {
+            char[] line = lines.get(y);
+            System.arraycopy(line, 0, cells, y * cols, Math.min(cols, line.length));
+        }
+        return new Level(name, cols, lines.size(), cells);
+    }
+
+    // Level of the resources (or a level file), loaded on first use; a name like "generated:112x124:42" is a maze
+    // of MazeGenerator (columns x rows : seed), generated on first use
+    public static Level get(String resource) {
+        return loaded.computeIfAbsent(resource, Level::load);
+    }
+
+    private static Level load(String resource) {
+        if (resource.startsWith(MazeGenerator.PREFIX)) {
+            return MazeGenerator.fromName(resource);
+        }
+        // A level file outside of the resources is read from the disk
+        URL url = Level.class.getClassLoader().getResource(resource);
+        if (url == null && Files.isRegularFile(Paths.get(resource))) {
+            try {
+                url = Paths.get(resource).toUri().toURL();
+            } catch (MalformedURLException e) {
+                e.printStackTrace();
+            }
+        }
+        if (url == null) throw new IllegalArgumentException("No level " + resource);
+        try (InputStream in = url.openStream()) {
+            return parse(resource, in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the level " + resource, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Hash of the content of the level, to check that a replay is played on the level it was recorded on
+    public long getHash() {
+        return hash;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // Cells of the level when no Pac-Gum has been eaten yet (must not be modified)
+    public byte[] getTiles() {
+        return tiles;
+    }
+
+    public synchronized List<Wall> getWalls() {
+        if (walls == null) {
+            List<Wall> walls = new ArrayList<>();
+            for (int x = 0; x < cols; x++) {
+                for (int y = 0; y < rows; y++) {
+                    byte tile = tiles[y * cols + x];
+                    if (tile == TileMap.WALL) {
+                        walls.add(new Wall(x * 8, y * 8));
+                    } else if (tile == TileMap.GHOST_HOUSE) {
+                        walls.add(new GhostHouse(x * 8, y * 8));
+                    }
+                }
+            }
+            this.walls = Collections.unmodifiableList(walls);
+        }
+        return walls;
+    }
+
+    public List<StaticEntity> getPacGums() {
+        return pacGums;
+    }
+
+    public int getPacGumCount() {
+        return pacGums.size();
+    }
+
+    // Cell of the level file where a Pac-Gum is
+    public int getPacGumCell(int pacGum) {
+        return pacGumCells[pacGum];
+    }
+
+    // Pac-Gum whose hitbox contains this pixel, or -1
+    public int pacGumAt(int px, int py) {
+        if (px < 0 || py < 0 || px >= cols * 8 || py >= rows * 8) return -1;
+        int pacGum = pacGumAtCell[(py / 8) * cols + px / 8];
+        if (pacGum < 0 || !pacGums.get(pacGum).getHitbox().contains(px, py)) return -1;
+        return pacGum;
+    }
+
+    public List<int[]> getSpawns() {
+        return spawns;
+    }
+
+    // Where the ghosts leave their house, and where they go back to when they are eaten (pixels)
+    public int getHouseX() {
+        return houseX;
+    }
+
+    public int getHouseExitY() {
+        return houseExitY;
+    }
+
+    public int getHouseInsideY() {
+        return houseInsideY;
+    }
+
+    public TileGrid getTileGrid() {
+        return tileGrid;
+    }
+}
@@ -0,0 +1,152 @@
+package game;
+
+import game.profiling.Startup;
+import game.utils.Scaling;
+import game.utils.Sprites;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Levels played one after the other (back to the first after the last), given on the command line of GameLauncher or by
+// -Dpacman.level=<name>[,<name>...]. A name is a resource ("level/level.csv"), the name of a level file of the resources
+// ("leveltest"), a file, or a generated maze ("generated:112x124:42", see MazeGenerator).
+// While a level is played, the next ones (-Dpacman.level.preload, 1 by default) are loaded on a background thread:
+// the Level (cells, walls, tile grid and its tables), the sprites of the entities it creates and the image of its maze
+// (at the scale of the rendering).
+// Going to the next level then only creates a Game on structures that are already built.
+public class LevelManager {
+    private static final int PRELOAD = Math.max(0, Integer.getInteger("pacman.level.preload", 1));
+
+    private final List<String> names;
+    private final List<Future<Level>> loading = new ArrayList<>(); // By index in names, null until asked for
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "level-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int current = 0;
+    private int played = 1; // Number of the current level, counting the levels played again
+
+    public LevelManager(List<String> names) {
+        if (names.isEmpty()) throw new IllegalArgumentException("No level");
+        this.names = new ArrayList<>();
+        for (String name : names) {
+            this.names.add(resolve(name));
+            loading.add(null);
+        }
+        preload(current); // The first level is loaded while the window is created
+        preloadNext();
+    }
+
+    // Levels of the command line, else of -Dpacman.level, else the default level
+    public static LevelManager fromArgs(String[] args) {
+        if (args.length > 0) return new LevelManager(Arrays.asList(args));
+        String property = System.getProperty("pacman.level");
+        if (property != null && !property.trim().isEmpty()) return new LevelManager(Arrays.asList(property.trim().split("\\s*,\\s*")));
+        return new LevelManager(Arrays.asList(Game.DEFAULT_LEVEL));
+    }
+
+    // Name given to Level.get(): "leveltest" is the level file "level/leveltest.csv" of the resources
+    public static String resolve(String name) {
+        if (name.startsWith(MazeGenerator.PREFIX) || name.contains("/") || name.contains("\\")) return name;
+        if (LevelManager.class.getClassLoader().getResource(name) != null) return name;
+        String resource = "level/" + name + ".csv";
+        return LevelManager.class.getClassLoader().getResource(resource) != null ? resource : name;
+    }
+
+    // Current level, waiting for it if it is still loading
+    public Level current() {
+        return waitFor(current);
+    }
+
+    // Number of the current level, from 1 (it keeps increasing when the list starts again)
+    public int getLevelNumber() {
+        return played;
+    }
+
+    // Goes to the next level (loaded in the background while the current one was played) and starts loading the following ones
+    public Level next() {
+        current = (current + 1) % names.size();
+        played++;
+        preloadNext();
+        return current();
+    }
+
+    private void preloadNext() {
+        for (int i = 1; i <= Math.min(PRELOAD, names.size() - 1); i++) {
+            preload((current + i) % names.size());
+        }
+    }
+
+    private synchronized void preload(int index) {
+        if (loading.get(index) == null) {
+            String name = names.get(index);
+            loading.set(index, loader.submit(() -> load(name)));
+        }
+    }
+
+    private Level waitFor(int index) {
+        preload(index);
+        Future<Level> level;
+        synchronized (this) {
+            level = loading.get(index);
+        }
+        try {
+            return level.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + names.get(index), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Can't load the level " + names.get(index), e.getCause());
+        }
+    }
+
+    // On the loader thread: everything the first tick and the first frame of the level will need
+    private static Level load(String name) throws IOException {
+        Level level = Level.get(name);
+        List<String> sprites = spritesOf(level);
+        Sprites.preload(sprites.toArray(new String[0])); // Decoded in parallel
+        for (String sprite : sprites) {
+            Sprites.get(sprite);
+        }
+        Scaling.getMaze(level);
+        Startup.mark("loaded " + name);
+        return level;
+    }
+
+    // Images of the entities the level creates (the factories of the ghosts use the same names)
+    static List<String> spritesOf(Level level) {
+        List<String> sprites = new ArrayList<>();
+        boolean ghosts = false;
+        for (int[] spawn : level.getSpawns()) {
+            switch (spawn[0]) {
+                case 'P':
+                    sprites.add("pacman.png");
+                    break;
+                case 'b':
+                    sprites.add("blinky.png");
+                    break;
+                case 'p':
+                    sprites.add("pinky.png");
+                    break;
+                case 'i':
+                    sprites.add("inky.png");
+                    break;
+                case 'c':
+                    sprites.add("clyde.png");
+                    break;
+            }
+            ghosts |= spawn[0] != 'P';
+        }
+        if (ghosts) {
+            sprites.addAll(Arrays.asList("ghost_frightened.png", "ghost_frightened_2.png", "ghost_eaten.png"));
+        }
+        return sprites;
+    }
+}
@@ -0,0 +1,450 @@
+package game;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+// Mazes generated from a seed, of any size, for the stress tests and the benchmarks: the same seed and size always give
+// the same maze, so a generated level can be named ("generated:112x124:42") and found again by Level.get() (replays...).
+// The maze is a lattice of nodes, 6 cells apart: a node is a 4x4 cells square (an entity fits exactly), and two neighbor
+// nodes are joined by a corridor, so corridors are 4 cells wide and walls at least 2 cells thick, like the level files.
+// The corridors of the left half are a random spanning tree (the maze is connected), mirrored to the right half (the
+// maze is symmetric); then the nodes with a single corridor get another one (no dead end), and a few corridors are added
+// to make loops. The ghosts' house is the one of the level files (its door, and where the ghosts start, are at the same
+// place relative to it), in the middle of the maze with corridors all around it; a few rows open on the sides (tunnels).
+// The cells are written in a char array the Level is built from: there is no level file to write and read again.
+public final class MazeGenerator {
+    public static final String PREFIX = "generated:";
+
+    private static final int PITCH = 6; // Cells between two nodes
+    private static final int CORRIDOR = 4;
+    private static final int HOUSE_WIDTH = 14;
+    private static final int HOUSE_HEIGHT = 7;
+    private static final double LOOPS = 0.15; // Probability of adding each corridor that isn't in the maze yet
+
+    private final int cols;
+    private final int rows;
+    private final int nodesX; // Even: the middle of the maze is between two columns of nodes
+    private final int nodesY;
+    private final boolean[] right; // Corridor from the node (y * nodesX + x) to the node on its right
+    private final boolean[] down; // Corridor from the node to the one under it
+    private final boolean[] hole; // Nodes replaced by the ghosts' house
+    private final boolean[] tunnel; // Rows of nodes that open on both sides of the maze
+    private final int houseRow; // Row of nodes of the corridor above the house
+    private final int pacmanRow; // Row of nodes where Pacman starts
+    private final Random random;
+
+    private MazeGenerator(int cols, int rows, long seed) {
+        nodesX = Math.max(4, cols / PITCH) & ~1;
+        nodesY = Math.max(5, rows / PITCH);
+        this.cols = nodesX * PITCH;
+        this.rows = nodesY * PITCH;
+        right = new boolean[nodesX * nodesY];
+        down = new boolean[nodesX * nodesY];
+        hole = new boolean[nodesX * nodesY];
+        tunnel = new boolean[nodesY];
+        houseRow = (nodesY - 3) / 2;
+        pacmanRow = houseRow + 3;
+        random = new SeededRandom(seed);
+    }
+
+    // Maze of (about) cols x rows cells: the size is rounded down to a multiple of 6 cells (12 for the columns),
+    // with at least 24 x 30 cells
+    public static Level generate(int cols, int rows, long seed) {
+        MazeGenerator generator = new MazeGenerator(cols, rows, seed);
+        generator.carveCorridors();
+        return new Level(name(generator.cols, generator.rows, seed), generator.cols, generator.rows, generator.cells());
+    }
+
+    // Mazes of the same size for each seed, generated in parallel (in the order of the seeds)
+    public static List<Level> generateAll(int cols, int rows, long[] seeds) {
+        return Arrays.stream(seeds).parallel().mapToObj(seed -> generate(cols, rows, seed)).collect(Collectors.toList());
+    }
+
+    public static String name(int cols, int rows, long seed) {
+        return PREFIX + cols + "x" + rows + ":" + seed;
+    }
+
+    // Maze of a name given by name() (used by Level.get())
+    static Level fromName(String name) {
+        String[] parts = name.substring(PREFIX.length()).split("[x:]");
+        if (parts.length != 3) throw new IllegalArgumentException("Not a generated level: " + name);
+        MazeGenerator generator = new MazeGenerator(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        generator.carveCorridors();
+        return new Level(name, generator.cols, generator.rows, generator.cells());
+    }
+
+    private int node(int x, int y) {
+        return y * nodesX + x;
+    }
+
+    private int mirror(int x) {
+        return nodesX - 1 - x;
+    }
+
+    // Adds the corridor from (x, y) to its right (horizontal) or down neighbor, and the one symmetric to it
+    private void open(int x, int y, boolean horizontal) {
+        if (horizontal) {
+            right[node(x, y)] = true;
+            right[node(mirror(x + 1), y)] = true;
+        } else {
+            down[node(x, y)] = true;
+            down[node(mirror(x), y)] = true;
+        }
+    }
+
+    private int degree(int x, int y) {
+        int degree = 0;
+        if (x > 0 ? right[node(x - 1, y)] : tunnel[y]) degree++;
+        if (x < nodesX - 1 ? right[node(x, y)] : tunnel[y]) degree++;
+        if (y > 0 && down[node(x, y - 1)]) degree++;
+        if (y < nodesY - 1 && down[node(x, y)]) degree++;
+        return degree;
+    }
+
+    private void carveCorridors() {
+        int half = nodesX / 2;
+        int middle = half - 1; // Last column of the left half: its corridor to the right crosses the middle of the maze
+
+        // The house takes the place of the two nodes in the middle of the row under houseRow, with corridors all around it,
+        // and Pacman starts in the middle of pacmanRow (above the house, the ghosts leave it in the middle of houseRow)
+        hole[node(middle, houseRow + 1)] = true;
+        hole[node(half, houseRow + 1)] = true;
+        for (int x = middle - 1; x <= middle; x++) {
+            open(x, houseRow, true);
+            open(x, houseRow + 2, true);
+        }
+        open(middle - 1, houseRow, false);
+        open(middle - 1, houseRow + 1, false);
+        open(middle, pacmanRow, true);
+        for (int i = Math.max(1, nodesY / 6); i > 0; i--) {
+            tunnel[1 + random.nextInt(nodesY - 2)] = true;
+        }
+
+        // Spanning tree of the left half (Kruskal, in a random order), starting with the corridors above
+        int[] parent = new int[nodesX * nodesY];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        int[] candidates = new int[2 * nodesX * nodesY]; // 2 * node, + 1 for the corridor going down
+        int candidateCount = 0;
+        for (int y = 0; y < nodesY; y++) {
+            for (int x = 0; x < half; x++) {
+                if (hole[node(x, y)]) continue;
+                if (x + 1 < half && !hole[node(x + 1, y)]) {
+                    if (right[node(x, y)]) union(parent, node(x, y), node(x + 1, y));
+                    else candidates[candidateCount++] = 2 * node(x, y);
+                }
+                if (y + 1 < nodesY && !hole[node(x, y + 1)]) {
+                    if (down[node(x, y)]) union(parent, node(x, y), node(x, y + 1));
+                    else candidates[candidateCount++] = 2 * node(x, y) + 1;
+                }
+            }
+        }
+        shuffle(candidates, candidateCount);
+        int unusedCount = 0; // Candidates that would have made a loop, moved to the beginning of the array
+        for (int i = 0; i < candidateCount; i++) {
+            int candidate = candidates[i];
+            int from = candidate / 2;
+            int to = candidate % 2 == 0 ? from + 1 : from + nodesX;
+            if (union(parent, from, to)) {
+                open(from % nodesX, from / nodesX, candidate % 2 == 0);
+            } else {
+                candidates[unusedCount++] = candidate;
+            }
+        }
+
+        // No dead end: a node with a single corridor gets another one, preferably to a node that has a single corridor too
+        int[] nodes = new int[half * nodesY];
+        int nodeCount = 0;
+        for (int y = 0; y < nodesY; y++) {
+            for (int x = 0; x < half; x++) {
+                if (!hole[node(x, y)]) nodes[nodeCount++] = node(x, y);
+            }
+        }
+        shuffle(nodes, nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            int n = nodes[i];
+            int x = n % nodesX;
+            int y = n / nodesX;
+            if (degree(x, y) >= 2) continue;
+            List<int[]> closed = new ArrayList<>(); // x, y and direction of the corridors that could be added
+            if (x > 0 && !right[node(x - 1, y)]) closed.add(new int[] { x - 1, y, 1 });
+            if (x < nodesX - 1 && !right[node(x, y)] && !hole[node(x + 1, y)]) closed.add(new int[] { x, y, 1 });
+            if (y > 0 && !down[node(x, y - 1)] && !hole[node(x, y - 1)]) closed.add(new int[] { x, y - 1, 0 });
+            if (y < nodesY - 1 && !down[node(x, y)] && !hole[node(x, y + 1)]) closed.add(new int[] { x, y, 0 });
+            int[] chosen = closed.get(random.nextInt(closed.size()));
+            for (int[] corridor : closed) {
+                int ox = corridor[2] == 1 ? (corridor[0] == x ? x + 1 : x - 1) : x;
+                int oy = corridor[2] == 0 ? (corridor[1] == y ? y + 1 : y - 1) : y;
+                if (degree(ox, oy) < 2) {
+                    chosen = corridor;
+                    break;
+                }
+            }
+            open(chosen[0], chosen[1], chosen[2] == 1);
+        }
+
+        // Loops, in the middle of the maze too
+        for (int i = 0; i < unusedCount; i++) {
+            int candidate = candidates[i];
+            if (random.nextDouble() < LOOPS) {
+                open(candidate / 2 % nodesX, candidate / 2 / nodesX, candidate % 2 == 0);
+            }
+        }
+        for (int y = 0; y < nodesY; y++) {
+            if (!hole[node(middle, y)] && random.nextDouble() < LOOPS) {
+                open(middle, y, true);
+            }
+        }
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    // False if the nodes were already connected
+    private static boolean union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA == rootB) return false;
+        parent[rootA] = rootB;
+        return true;
+    }
+
+    private void shuffle(int[] values, int count) {
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    // Characters of the cells, as in a level file
+    private char[] cells() {
+        char[] cells = new char[cols * rows];
+        Arrays.fill(cells, 'x');
+        for (int y = 0; y < nodesY; y++) {
+            for (int x = 0; x < nodesX; x++) {
+                if (hole[node(x, y)]) continue;
+                int left = 1 + x * PITCH;
+                int top = 1 + y * PITCH;
+                fill(cells, left, top, right[node(x, y)] ? PITCH + CORRIDOR : CORRIDOR, CORRIDOR, ' ');
+                if (down[node(x, y)]) fill(cells, left, top, CORRIDOR, PITCH + CORRIDOR, ' ');
+            }
+            if (tunnel[y]) {
+                fill(cells, 0, 1 + y * PITCH, 1, CORRIDOR, ' ');
+                fill(cells, cols - 1, 1 + y * PITCH, 1, CORRIDOR, ' ');
+            }
+        }
+
+        // Pac-Gums every 2 cells along the corridors (on the second row/column of the corridor, like the level files),
+        // and a Super Pac-Gum near each corner
+        for (int y = 0; y < nodesY; y++) {
+            for (int x = 0; x < nodesX; x++) {
+                int px = 2 + x * PITCH;
+                int py = 2 + y * PITCH;
+                for (int i = 0; i <= PITCH; i += 2) {
+                    if (right[node(x, y)]) cells[py * cols + px + i] = '.';
+                    if (down[node(x, y)]) cells[(py + i) * cols + px] = '.';
+                }
+            }
+        }
+        for (int y : new int[] { 1, nodesY - 2 }) {
+            for (int x : new int[] { 0, nodesX - 1 }) {
+                cells[(2 + y * PITCH) * cols + 2 + x * PITCH] = 'o';
+            }
+        }
+
+        // The house, between the corridors around it: 1 cell thick walls, with its door in the middle of the top one
+        int center = cols / 2;
+        int houseLeft = center - HOUSE_WIDTH / 2;
+        int houseTop = 1 + houseRow * PITCH + CORRIDOR;
+        fill(cells, houseLeft, houseTop, HOUSE_WIDTH, HOUSE_HEIGHT, 'x');
+        fill(cells, houseLeft + 1, houseTop + 1, HOUSE_WIDTH - 2, HOUSE_HEIGHT - 2, ' ');
+        fill(cells, center - 2, houseTop, 4, 1, '-');
+
+        // Blinky above the door, the other ghosts in the house and Pacman in the middle of his row
+        cells[(houseTop - CORRIDOR) * cols + center - 2] = 'b';
+        cells[(houseTop + 2) * cols + houseLeft + 1] = 'i';
+        cells[(houseTop + 2) * cols + center - 2] = 'p';
+        cells[(houseTop + 2) * cols + center + 2] = 'c';
+        cells[(1 + pacmanRow * PITCH) * cols + center - 2] = 'P';
+        return cells;
+    }
+
+    private void fill(char[] cells, int left, int top, int width, int height, char c) {
+        for (int y = top; y < top + height; y++) {
+            Arrays.fill(cells, y * cols + left, y * cols + left + width, c);
+        }
+    }
+
+    // Why a level isn't a valid maze, or null: it must be symmetric, and Pacman (an entity of 4x4 cells, going through the
+    // sides of the level) must be able to reach every Pac-Gum and the cell above the ghosts' house, without a dead end
+    public static String check(Level level) {
+        int cols = level.getCols();
+        int rows = level.getRows();
+        byte[] tiles = level.getTiles();
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                byte tile = tiles[y * cols + x];
+                boolean pacGum = tile == TileMap.PAC_GUM || tile == TileMap.SUPER_PAC_GUM;
+                if (tile != tiles[y * cols + cols - 1 - x] && !pacGum && !isPacGum(tiles[y * cols + cols - 1 - x])) {
+                    return "not symmetric at " + x + "," + y;
+                }
+                if (pacGum && (x > cols - 2 || tiles[y * cols + cols - 2 - x] != tile)) {
+                    return "Pac-Gums not symmetric at " + x + "," + y;
+                }
+            }
+        }
+
+        // Positions of the top-left cell of Pacman, from x = -3 (partly out of the level on the left) to cols - 1
+        // (partly out on the right), the two ends being next to each other
+        int width = cols + 3;
+        boolean[] free = new boolean[width * rows];
+        for (int y = 0; y + CORRIDOR <= rows; y++) {
+            for (int x = -3; x < cols; x++) {
+                boolean fits = true;
+                for (int dy = 0; dy < CORRIDOR && fits; dy++) {
+                    for (int dx = 0; dx < CORRIDOR; dx++) {
+                        int cx = x + dx;
+                        if (cx >= 0 && cx < cols && TileMap.isWall(tiles[(y + dy) * cols + cx], false)) {
+                            fits = false;
+                            break;
+                        }
+                    }
+                }
+                free[y * width + x + 3] = fits;
+            }
+        }
+        int start = -1;
+        for (int[] spawn : level.getSpawns()) {
+            if (spawn[0] == 'P') start = spawn[2] / 8 * width + spawn[1] / 8 + 3;
+        }
+        if (start < 0 || !free[start]) return "no place for Pacman";
+
+        boolean[] reached = new boolean[free.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        reached[start] = true;
+        queue.add(start);
+        int[] next = new int[4];
+        while (!queue.isEmpty()) {
+            int position = queue.poll();
+            int x = position % width;
+            int y = position / width;
+            next[0] = y * width + (x + 1) % width;
+            next[1] = y * width + (x + width - 1) % width;
+            next[2] = y + 1 < rows ? position + width : -1;
+            next[3] = y > 0 ? position - width : -1;
+            int neighbors = 0;
+            for (int n : next) {
+                if (n >= 0 && free[n]) {
+                    neighbors++;
+                    if (!reached[n]) {
+                        reached[n] = true;
+                        queue.add(n);
+                    }
+                }
+            }
+            if (neighbors < 2) return "dead end at " + (x - 3) + "," + y;
+        }
+
+        // Cells Pacman can go over
+        boolean[] covered = new boolean[cols * rows];
+        for (int position = 0; position < free.length; position++) {
+            if (!reached[position]) continue;
+            int x = position % width - 3;
+            int y = position / width;
+            for (int dy = 0; dy < CORRIDOR; dy++) {
+                for (int dx = Math.max(0, -x); dx < CORRIDOR && x + dx < cols; dx++) {
+                    covered[(y + dy) * cols + x + dx] = true;
+                }
+            }
+        }
+        for (int i = 0; i < level.getPacGumCount(); i++) {
+            int cell = level.getPacGumCell(i);
+            if (!covered[cell + cols + 1]) return "Pac-Gum out of reach at " + cell % cols + "," + cell / cols;
+        }
+        int exit = level.getHouseExitY() / 8 * width + level.getHouseX() / 8 + 3;
+        if (exit < 0 || exit >= free.length || !reached[exit]) return "the ghosts' house can't be left";
+        return null;
+    }
+
+    private static boolean isPacGum(byte tile) {
+        return tile == TileMap.PAC_GUM || tile == TileMap.SUPER_PAC_GUM;
+    }
+
+    // Generates mazes from the command line, in parallel, checks them and prints how long it took:
+    //   java game.MazeGenerator <cols>x<rows> [mazes] [first seed]
+    // or prints a maze as a level file:
+    //   java game.MazeGenerator csv <cols>x<rows> [seed]
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java game.MazeGenerator <cols>x<rows> [mazes] [first seed]");
+            System.out.println("       java game.MazeGenerator csv <cols>x<rows> [seed]");
+            return;
+        }
+        if (args[0].equals("csv")) {
+            String[] size = args[1].split("x");
+            Level level = generate(Integer.parseInt(size[0]), Integer.parseInt(size[1]), args.length > 2 ? Long.parseLong(args[2]) : 0);
+            printCsv(level);
+            return;
+        }
+        String[] size = args[0].split("x");
+        int cols = Integer.parseInt(size[0]);
+        int rows = Integer.parseInt(size[1]);
+        int mazes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long firstSeed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        long[] seeds = new long[mazes];
+        for (int i = 0; i < mazes; i++) {
+            seeds[i] = firstSeed + i;
+        }
+
+        generateAll(cols, rows, Arrays.copyOf(seeds, Math.min(mazes, 8))); // Warm-up
+        long start = System.nanoTime();
+        List<Level> levels = generateAll(cols, rows, seeds);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int invalid = 0;
+        long pacGums = 0;
+        for (Level level : levels) {
+            String error = check(level);
+            if (error != null) {
+                invalid++;
+                System.out.println(level.getName() + ": " + error);
+            }
+            pacGums += level.getPacGumCount();
+        }
+        Level first = levels.get(0);
+        System.out.printf("%d mazes of %dx%d cells in %.2f s (%.1f ms per maze, %d threads), %.0f Pac-Gums per maze, %d invalid%n",
+                mazes, first.getCols(), first.getRows(), seconds, seconds * 1000 / mazes,
+                Runtime.getRuntime().availableProcessors(), (double) pacGums / mazes, invalid);
+    }
+
+    private static void printCsv(Level level) {
+        char[] characters = { ' ', 'x', '-', '.', 'o' };
+        char[] cells = new char[level.getCols() * level.getRows()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = characters[level.getTiles()[i]];
+        }
+        for (int[] spawn : level.getSpawns()) {
+            cells[spawn[2] / 8 * level.getCols() + spawn[1] / 8] = (char) spawn[0];
+        }
+        StringBuilder line = new StringBuilder();
+        for (int y = 0; y < level.getRows(); y++) {
+            line.setLength(0);
+            for (int x = 0; x < level.getCols(); x++) {
+                if (x > 0) line.append(';');
+                line.append(cells[y * level.getCols() + x]);
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -1,12 +1,7 @@
 package game;
 
-import game.entities.PacGum;
-import game.entities.SuperPacGum;
-import game.entities.ghosts.Ghost;
-
 //Interface de l'observer
 public interface Observer {
-    void updatePacGumEaten(PacGum pg);
-    void updateSuperPacGumEaten(SuperPacGum spg);
-    void updateGhostCollision(Ghost gh);
+    // Called once per tick with every event posted during that tick, in posting order
+    void onEvents(EventBus events);
 }
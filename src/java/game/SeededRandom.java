@@ -0,0 +1,40 @@
+package game;
+
+import java.util.Random;
+
+// Same generator as java.util.Random (same numbers for the same seed), whose state can be read and set back,
+// so that a snapshot of a game also brings back what the game will draw next
+class SeededRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state; // Set by setSeed(), which the constructor of Random calls
+
+    SeededRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    long getState() {
+        return state;
+    }
+
+    // (nextGaussian() keeps a second number aside, which is not part of the state: the game never uses it)
+    void setState(long state) {
+        this.state = state;
+    }
+}
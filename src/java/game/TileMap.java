@@ -0,0 +1,65 @@
+package game;
+
+import java.util.List;
+
+// Content of the cells of a level, one byte per cell (index y * cellsPerRow + x): this is what the agents observe
+// of the maze, and what the wall collisions are tested against
+public final class TileMap {
+    public static final byte EMPTY = 0;
+    public static final byte WALL = 1;
+    public static final byte GHOST_HOUSE = 2; // Walls of the ghosts' house (the ghosts go through them)
+    public static final byte PAC_GUM = 3;
+    public static final byte SUPER_PAC_GUM = 4;
+
+    private TileMap() {}
+
+    public static byte[] fromCsv(List<List<String>> data) {
+        int cols = data.get(0).size();
+        byte[] tiles = new byte[cols * data.size()];
+        for (int y = 0; y < data.size(); y++) {
+            for (int x = 0; x < cols; x++) {
+                switch (data.get(y).get(x)) {
+                    case "x":
+                        tiles[y * cols + x] = WALL;
+                        break;
+                    case "-":
+                        tiles[y * cols + x] = GHOST_HOUSE;
+                        break;
+                    case ".":
+                        tiles[y * cols + x] = PAC_GUM;
+                        break;
+                    case "o":
+                        tiles[y * cols + x] = SUPER_PAC_GUM;
+                        break;
+                }
+            }
+        }
+        return tiles;
+    }
+
+    // Same as fromCsv(), from the characters of the cells (index y * cols + x)
+    public static byte[] fromCells(char[] cells) {
+        byte[] tiles = new byte[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            switch (cells[i]) {
+                case 'x':
+                    tiles[i] = WALL;
+                    break;
+                case '-':
+                    tiles[i] = GHOST_HOUSE;
+                    break;
+                case '.':
+                    tiles[i] = PAC_GUM;
+                    break;
+                case 'o':
+                    tiles[i] = SUPER_PAC_GUM;
+                    break;
+            }
+        }
+        return tiles;
+    }
+
+    public static boolean isWall(byte tile, boolean ignoreGhostHouses) {
+        return tile == WALL || (tile == GHOST_HOUSE && !ignoreGhostHouses);
+    }
+}
@@ -1,58 +1,109 @@
 package game;
 
-import game.entities.PacGum;
-import game.entities.SuperPacGum;
-import game.entities.ghosts.Ghost;
-import game.ghostStates.FrightenedMode;
-
 import javax.swing.*;
 import java.awt.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-// Panel for the user interface
-public class UIPanel extends JPanel implements Observer {
+// Panel for the user interface (HUD)
+// The game thread only writes the values below; the panel is painted on the EDT, at most once per frame.
+// The score is the one of the game (Game.getScore()), set at the end of each tick
+public class UIPanel extends JPanel {
     public static int width;
     public static int height;
 
-    private int score = 0;
-    private JLabel scoreLabel;
+    private final AtomicInteger score = new AtomicInteger(0);
+    private final AtomicInteger lives = new AtomicInteger(1);
+    private final AtomicInteger level = new AtomicInteger(1);
+    private final AtomicInteger fps = new AtomicInteger(0);
+
+    // Performance counters, in nanoseconds for the times
+    private final AtomicLong tickTime = new AtomicLong(0);
+    private final AtomicLong renderTime = new AtomicLong(0);
+    private final AtomicLong gcCount = new AtomicLong(0);
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true); // Set when a value changed since the last repaint
+    private final AtomicBoolean repaintPending = new AtomicBoolean(false);
+
+    private final Font scoreFont;
+    private final Font statsFont;
 
     public UIPanel(int width, int height) {
         this.width = width;
         this.height = height;
         setPreferredSize(new Dimension(width, height));
         this.setBackground(Color.black);
-        scoreLabel = new JLabel("Score: " + score);
-        scoreLabel.setFont(scoreLabel.getFont().deriveFont(20.0F));
-        scoreLabel.setForeground(Color.white);
-        this.add(scoreLabel, BorderLayout.WEST);
+        scoreFont = getFont().deriveFont(20.0F);
+        statsFont = new Font(Font.MONOSPACED, Font.PLAIN, 12);
     }
 
-    public void updateScore(int incrScore) {
-        this.score += incrScore;
-        this.scoreLabel.setText("Score: " + score);
+    public void setScore(int score) {
+        if (this.score.getAndSet(score) != score) {
+            dirty.set(true);
+        }
     }
 
     public int getScore() {
-        return score;
+        return score.get();
     }
 
-    // The UI is notified when Pacman is in contact with a Pac-Gum, a Super Pac-Gum or a ghost,
-    // and we update the displayed score accordingly
-    @Override
-    public void updatePacGumEaten(PacGum pg) {
-        updateScore(10);
+    public void setLives(int lives) {
+        this.lives.set(lives);
+        dirty.set(true);
     }
 
-    @Override
-    public void updateSuperPacGumEaten(SuperPacGum spg) {
-        updateScore(100);
+    public void setLevel(int level) {
+        this.level.set(level);
+        dirty.set(true);
     }
 
-    @Override
-    public void updateGhostCollision(Ghost gh) {
-        // If Pacman contacts a ghost, we only update the score when the ghost is in "frightened" mode
-        if (gh.getState() instanceof FrightenedMode) {
-            updateScore(500);
+    // Called by the game loop once per second
+    public void setFps(int fps) {
+        this.fps.set(fps);
+        long collections = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, gc.getCollectionCount());
         }
+        gcCount.set(collections);
+        dirty.set(true);
+    }
+
+    // Called by the game loop with the duration of the last update and of the last render + draw
+    public void setFrameTimes(long tickNanos, long renderNanos) {
+        tickTime.set(tickNanos);
+        renderTime.set(renderNanos);
+        dirty.set(true);
+    }
+
+    // Called by the game loop at the end of each frame: if something changed, a single repaint is queued on the EDT
+    public void frameDone() {
+        if (dirty.get() && repaintPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                repaintPending.set(false);
+                dirty.set(false);
+                paintImmediately(0, 0, getWidth(), getHeight());
+            });
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        g.setColor(Color.white);
+        g.setFont(scoreFont);
+        g.drawString("Score: " + score.get(), 10, 30);
+        g.drawString("Lives: " + lives.get(), 10, 60);
+        g.drawString("Level: " + level.get(), 10, 90);
+
+        g.setColor(Color.gray);
+        g.setFont(statsFont);
+        int y = height - 60;
+        g.drawString("FPS: " + fps.get(), 10, y);
+        g.drawString(String.format("Tick: %.2f ms", tickTime.get() / 1e6), 10, y + 15);
+        g.drawString(String.format("Render: %.2f ms", renderTime.get() / 1e6), 10, y + 30);
+        g.drawString("GC: " + gcCount.get(), 10, y + 45);
     }
 }
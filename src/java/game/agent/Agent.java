@@ -0,0 +1,17 @@
+package game.agent;
+
+// Controls Pacman instead of the keyboard: every tick, the agent gets an observation of the game and returns an action.
+// Pacman only turns when he is exactly on a cell (like with the keyboard), so an action may be ignored until then.
+public interface Agent {
+    int NONE = 0;
+    int LEFT = 1;
+    int RIGHT = 2;
+    int UP = 3;
+    int DOWN = 4;
+    int ACTION_COUNT = 5;
+
+    int act(Observation observation);
+
+    // Called before the first tick of a new game
+    default void reset(long seed) {}
+}
@@ -0,0 +1,110 @@
+package game.agent;
+
+import java.io.IOException;
+import java.io.EOFException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+// Bridge letting an external trainer drive a VectorEnv over a local TCP socket (one client at a time, loopback only).
+// Requests (big-endian):
+//   'R' + seed (long)          resets every environment
+//   'S' + one action per env   steps every environment (Agent.NONE, LEFT, RIGHT, UP or DOWN, one byte each)
+//   'Q'                        closes the connection
+// Both 'R' and 'S' are answered with the number of environments (int), then for each environment its reward (float),
+// its done flag (byte) and its observation (see Observation.write). After a done flag, the observation is already
+// the first one of the next episode.
+// Usage: java game.agent.AgentServer [port] [envs] [threads] [frameSkip] [level]
+public class AgentServer {
+    private final VectorEnv env;
+    private final int[] actions;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    public AgentServer(VectorEnv env) {
+        this.env = env;
+        actions = new int[env.size()];
+        rewards = new float[env.size()];
+        dones = new boolean[env.size()];
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 5555;
+        int envs = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int frameSkip = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        String level = args.length > 4 ? args[4] : game.Game.DEFAULT_LEVEL;
+        try (VectorEnv env = new VectorEnv(envs, level, frameSkip, 60 * 60 * 2, threads);
+             ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            System.out.println("Waiting for a trainer on port " + server.socket().getLocalPort());
+            AgentServer agentServer = new AgentServer(env);
+            while (true) {
+                try (SocketChannel client = server.accept()) {
+                    agentServer.serve(client);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // Answers the requests of a client until it quits or disconnects
+    public void serve(SocketChannel client) throws IOException {
+        client.socket().setTcpNoDelay(true);
+        ByteBuffer request = ByteBuffer.allocateDirect(Math.max(9, 1 + env.size()));
+        while (true) {
+            read(client, request, 1);
+            byte command = request.get();
+            if (command == 'Q') return;
+            if (command == 'R') {
+                read(client, request, 8);
+                env.reset(request.getLong());
+                java.util.Arrays.fill(rewards, 0);
+                java.util.Arrays.fill(dones, false);
+            } else if (command == 'S') {
+                read(client, request, env.size());
+                for (int i = 0; i < actions.length; i++) {
+                    actions[i] = request.get();
+                }
+                env.step(actions, rewards, dones);
+            } else {
+                throw new IOException("Unknown command: " + command);
+            }
+            writeResponse(client);
+        }
+    }
+
+    private void writeResponse(SocketChannel client) throws IOException {
+        int size = 4;
+        for (int i = 0; i < env.size(); i++) {
+            size += 4 + 1 + env.getObservation(i).getEncodedSize();
+        }
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) * 2);
+        }
+        buffer.clear();
+        buffer.putInt(env.size());
+        for (int i = 0; i < env.size(); i++) {
+            buffer.putFloat(rewards[i]);
+            buffer.put((byte) (dones[i] ? 1 : 0));
+            env.getObservation(i).write(buffer);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    private static void read(SocketChannel client, ByteBuffer buffer, int count) throws IOException {
+        buffer.clear();
+        buffer.limit(count);
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) throw new EOFException("The trainer disconnected");
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,23 @@
+package game.agent;
+
+// Creation of the agents by name ("random", "greedy" or "evasive", or "mcts", which is much slower and not in NAMES)
+public final class Agents {
+    public static final String[] NAMES = { "random", "greedy", "evasive" };
+
+    private Agents() {}
+
+    public static Agent create(String name) {
+        switch (name.toLowerCase()) {
+            case "random":
+                return new RandomAgent();
+            case "greedy":
+                return new GreedyAgent();
+            case "evasive":
+                return new EvasiveAgent();
+            case "mcts":
+                return new MctsAgent();
+            default:
+                throw new IllegalArgumentException("Unknown agent: " + name);
+        }
+    }
+}
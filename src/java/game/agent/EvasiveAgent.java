@@ -0,0 +1,79 @@
+package game.agent;
+
+// Agent going to the closest Pac-Gum that can be reached without passing near a dangerous ghost (chasing or scattering):
+// the distance of every cell to the closest dangerous ghost is computed first, and the cells closer than SAFE_DISTANCE
+// are avoided. If Pacman is already too close, he moves to the neighbor cell farthest from the ghosts.
+public class EvasiveAgent extends MazeAgent {
+    private static final int SAFE_DISTANCE = 6; // In cells
+    private static final int FAR = Integer.MAX_VALUE;
+
+    private int[] danger = new int[0];
+    private int[] dangerQueue = new int[0];
+
+    @Override
+    protected int decide(Observation observation, int cellX, int cellY) {
+        computeDanger(observation);
+        int cols = observation.cols;
+        if (danger[cellY * cols + cellX] > SAFE_DISTANCE) {
+            int action = searchPacGum(observation, cellX, cellY);
+            if (action != NONE) return action;
+        }
+
+        // Flee: neighbor cell the farthest from the ghosts (turning back only if it is the best move)
+        int best = lastAction;
+        int bestDanger = -1;
+        for (int action = LEFT; action <= DOWN; action++) {
+            int nx = cellX + DX[action];
+            int ny = cellY + DY[action];
+            if (nx < 0 || ny < 0 || nx >= cols || ny >= observation.rows || !canStand(observation, nx, ny)) continue;
+            int d = danger[ny * cols + nx];
+            if (d > bestDanger || (d == bestDanger && action == lastAction)) {
+                best = action;
+                bestDanger = d;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    protected boolean allowed(Observation observation, int cellX, int cellY) {
+        return danger[cellY * observation.cols + cellX] > SAFE_DISTANCE;
+    }
+
+    // Breadth-first search from every dangerous ghost at once (over the cells Pacman can stand on)
+    private void computeDanger(Observation observation) {
+        int cols = observation.cols;
+        int n = cols * observation.rows;
+        if (danger.length != n) {
+            danger = new int[n];
+            dangerQueue = new int[n];
+        }
+        java.util.Arrays.fill(danger, FAR);
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < observation.ghostCount; i++) {
+            int state = observation.ghostState[i];
+            if (state != Observation.CHASE && state != Observation.SCATTER) continue;
+            int gx = Math.max(0, Math.min(cols - 1, Math.floorDiv(observation.ghostX[i], 8)));
+            int gy = Math.max(0, Math.min(observation.rows - 1, Math.floorDiv(observation.ghostY[i], 8)));
+            int cell = gy * cols + gx;
+            if (danger[cell] == 0) continue;
+            danger[cell] = 0;
+            dangerQueue[tail++] = cell;
+        }
+        while (head < tail) {
+            int cell = dangerQueue[head++];
+            int x = cell % cols;
+            int y = cell / cols;
+            for (int action = LEFT; action <= DOWN; action++) {
+                int nx = x + DX[action];
+                int ny = y + DY[action];
+                if (nx < 0 || ny < 0 || nx >= cols || ny >= observation.rows) continue;
+                int next = ny * cols + nx;
+                if (danger[next] != FAR || !canStand(observation, nx, ny)) continue;
+                danger[next] = danger[cell] + 1;
+                dangerQueue[tail++] = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package game.agent;
+
+// Scripted agent going to the closest Pac-Gum, whatever the ghosts do
+public class GreedyAgent extends MazeAgent {
+    @Override
+    protected int decide(Observation observation, int cellX, int cellY) {
+        int action = searchPacGum(observation, cellX, cellY);
+        return action != NONE ? action : lastAction;
+    }
+}
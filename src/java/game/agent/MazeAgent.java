@@ -0,0 +1,110 @@
+package game.agent;
+
+import game.TileMap;
+
+// Base class of the scripted agents: they reason on the cells Pacman can stand on (top-left corner of his 32x32 sprite
+// on a cell, like when he turns), with breadth-first searches whose buffers are kept between ticks.
+// Pacman only turns on a cell, so the agents only think then and repeat their last action in between.
+public abstract class MazeAgent implements Agent {
+    protected static final int PACMAN_SIZE = 32;
+    protected static final int[] DX = { 0, -1, 1, 0, 0 }; // Indexed by action
+    protected static final int[] DY = { 0, 0, 0, -1, 1 };
+
+    protected int lastAction = NONE;
+
+    protected int[] queue = new int[0];
+    protected int[] stamps = new int[0];
+    protected int[] distances = new int[0];
+    protected int[] firstActions = new int[0];
+    protected int stamp = 0;
+
+    @Override
+    public int act(Observation observation) {
+        if (observation.isPacmanOnTheGrid()) {
+            lastAction = decide(observation, observation.pacmanX / 8, observation.pacmanY / 8);
+        }
+        return lastAction;
+    }
+
+    @Override
+    public void reset(long seed) {
+        lastAction = NONE;
+    }
+
+    // Action to take with Pacman on this cell
+    protected abstract int decide(Observation observation, int cellX, int cellY);
+
+    protected boolean canStand(Observation observation, int cellX, int cellY) {
+        return observation.isFree(cellX * 8, cellY * 8, PACMAN_SIZE);
+    }
+
+    // True if Pacman eats a Pac-Gum or a Super Pac-Gum when he is on this cell (their hitboxes are centered in his sprite)
+    protected static boolean hasPacGum(Observation observation, int cellX, int cellY) {
+        if (observation.tileAt(cellX + 1, cellY + 1) == TileMap.PAC_GUM) return true;
+        for (int y = cellY + 1; y <= cellY + 2; y++) {
+            for (int x = cellX + 1; x <= cellX + 2; x++) {
+                if (observation.tileAt(x, y) == TileMap.SUPER_PAC_GUM) return true;
+            }
+        }
+        return false;
+    }
+
+    protected static int opposite(int action) {
+        switch (action) {
+            case LEFT: return RIGHT;
+            case RIGHT: return LEFT;
+            case UP: return DOWN;
+            case DOWN: return UP;
+            default: return NONE;
+        }
+    }
+
+    // Gets the search buffers ready for a new search on the cells of the observation
+    protected void prepare(Observation observation) {
+        int n = observation.cols * observation.rows;
+        if (stamps.length != n) {
+            queue = new int[n];
+            stamps = new int[n];
+            distances = new int[n];
+            firstActions = new int[n];
+            stamp = 0;
+        }
+        stamp++;
+    }
+
+    // Breadth-first search from Pacman's cell to the closest cell with a Pac-Gum, only through the cells accepted by
+    // allowed(). Returns the first action of the path, or NONE if there is no such cell.
+    protected int searchPacGum(Observation observation, int cellX, int cellY) {
+        prepare(observation);
+        int cols = observation.cols;
+        int start = cellY * cols + cellX;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        stamps[start] = stamp;
+        firstActions[start] = NONE;
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % cols;
+            int y = cell / cols;
+            if (cell != start && hasPacGum(observation, x, y)) {
+                return firstActions[cell];
+            }
+            for (int action = LEFT; action <= DOWN; action++) {
+                int nx = x + DX[action];
+                int ny = y + DY[action];
+                if (nx < 0 || ny < 0 || nx >= cols || ny >= observation.rows) continue;
+                int next = ny * cols + nx;
+                if (stamps[next] == stamp || !canStand(observation, nx, ny) || !allowed(observation, nx, ny)) continue;
+                stamps[next] = stamp;
+                firstActions[next] = cell == start ? action : firstActions[cell];
+                queue[tail++] = next;
+            }
+        }
+        return NONE;
+    }
+
+    protected boolean allowed(Observation observation, int cellX, int cellY) {
+        return true;
+    }
+}
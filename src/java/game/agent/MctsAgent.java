@@ -0,0 +1,331 @@
+package game.agent;
+
+import game.Game;
+import game.GameSnapshot;
+import game.Level;
+import game.entities.Pacman;
+import game.pathfinding.AsyncPlanner;
+import game.utils.WallCollisionDetector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Monte-Carlo tree search agent: it plans by playing the game forward on copies of it (see Game.save() and restore()),
+// so the ghosts of the simulations run the same states and strategies as the real ones.
+// A node of the tree is a state of the game where Pacman stands on a cell and may turn. Its children are the directions
+// he can take there, each one played until he reaches the next cell. A simulation goes down the tree (UCT), adds a child,
+// plays random moves from it (never turning back unless in a dead end) for a number of cells, and scores the result:
+// 0 if Pacman was caught, 1 if he ate every Pac-Gum, and in between the more points he scored.
+//
+// The search is parallel, every worker playing on its own simulation game: several trees are searched independently and
+// their statistics are added up at the root (root parallelization), and the workers sharing a tree add virtual losses on
+// the path they are simulating so that they spread over the tree (tree parallelization). A decision is taken when its
+// time budget is spent.
+//
+// System properties: -Dpacman.mcts.budgetMs (time per decision, 10 by default), -Dpacman.mcts.threads (workers, one per
+// core by default), -Dpacman.mcts.trees (independent trees, one per pair of workers by default),
+// -Dpacman.mcts.depth (cells played by each rollout, 20 by default).
+public class MctsAgent implements Agent {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    private static final ForkJoinPool POOL = new ForkJoinPool(Integer.getInteger("pacman.mcts.threads", CORES));
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int VIRTUAL_LOSS = 1; // Visits counted with a result of 0 while a simulation is running
+    private static final int TICKS_PER_CELL = 4; // Pacman moves 2 pixels per tick and a cell is 8 pixels wide
+    private static final int MAX_TICKS_PER_MOVE = 32; // Going through a tunnel takes longer than a cell
+    private static final int[] DX = { 0, -1, 1, 0, 0 };
+    private static final int[] DY = { 0, 0, 0, -1, 1 };
+
+    private final long budgetNanos;
+    private final int threads;
+    private final int trees;
+    private final int rolloutDepth;
+
+    private final Game[] simulations; // One per worker, created on first use
+    private final Level[] simulationLevels;
+    private final SplittableRandom[] randoms;
+    private int lastAction = NONE;
+
+    private long decisions = 0;
+    private long rollouts = 0;
+    private long searchNanos = 0;
+
+    public MctsAgent() {
+        this(Integer.getInteger("pacman.mcts.budgetMs", 10),
+                Integer.getInteger("pacman.mcts.threads", CORES),
+                Integer.getInteger("pacman.mcts.trees", Math.max(1, Integer.getInteger("pacman.mcts.threads", CORES) / 2)),
+                Integer.getInteger("pacman.mcts.depth", 20));
+    }
+
+    public MctsAgent(int budgetMs, int threads, int trees, int rolloutDepth) {
+        AsyncPlanner.requireDisabled("The MCTS agent");
+        this.budgetNanos = budgetMs * 1_000_000L;
+        this.threads = Math.max(1, threads);
+        this.trees = Math.max(1, Math.min(trees, this.threads));
+        this.rolloutDepth = rolloutDepth;
+        simulations = new Game[this.threads];
+        simulationLevels = new Level[this.threads];
+        randoms = new SplittableRandom[this.threads];
+        reset(System.nanoTime());
+    }
+
+    @Override
+    public void reset(long seed) {
+        lastAction = NONE;
+        for (int i = 0; i < threads; i++) {
+            randoms[i] = new SplittableRandom(seed * 31 + i);
+        }
+    }
+
+    // Node of a search tree; its fields are only accessed while holding the lock of its tree
+    private static final class Node {
+        final Node parent;
+        final int action; // Action played from the parent to get here
+        GameSnapshot state; // null while the worker that added the node is still playing its action
+        final List<Node> children = new ArrayList<>(4);
+        int[] untried; // Actions that have no child yet
+        int untriedCount;
+        int visits;
+        double value; // Sum of the results of the simulations that went through the node
+        boolean terminal; // Pacman was caught or ate every Pac-Gum
+        double terminalValue;
+
+        Node(Node parent, int action) {
+            this.parent = parent;
+            this.action = action;
+        }
+    }
+
+    private static final class Tree {
+        final Node root;
+        final int rootScore;
+
+        Tree(GameSnapshot state, int[] actions, int rootScore) {
+            root = new Node(null, NONE);
+            root.state = state;
+            root.untried = actions;
+            root.untriedCount = actions.length;
+            this.rootScore = rootScore;
+        }
+    }
+
+    @Override
+    public int act(Observation observation) {
+        // Pacman only turns when he is exactly on a cell: in between, the action doesn't matter
+        if (observation.pacmanX % 8 != 0 || observation.pacmanY % 8 != 0) return lastAction;
+        Game game = observation.getGame();
+        int[] actions = legalActions(Game.getPacman());
+        if (actions.length == 1) {
+            lastAction = actions[0];
+            return lastAction;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        GameSnapshot rootState = game.save(new GameSnapshot(true));
+        Tree[] forest = new Tree[trees];
+        for (int i = 0; i < trees; i++) {
+            forest[i] = new Tree(rootState, actions.clone(), game.getScore());
+        }
+
+        List<Callable<Integer>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int worker = i;
+            workers.add(() -> search(worker, forest[worker % trees], deadline));
+        }
+        long count = 0;
+        try {
+            for (Future<Integer> result : POOL.invokeAll(workers)) {
+                count += result.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+
+        // Most visited action, over all the trees
+        int best = -1;
+        int bestVisits = -1;
+        for (int action : actions) {
+            int visits = 0;
+            for (Tree tree : forest) {
+                for (Node child : tree.root.children) {
+                    if (child.action == action) visits += child.visits;
+                }
+            }
+            if (visits > bestVisits || (visits == bestVisits && action == lastAction)) {
+                best = action;
+                bestVisits = visits;
+            }
+        }
+
+        decisions++;
+        rollouts += count;
+        searchNanos += System.nanoTime() - start;
+        lastAction = best;
+        return best;
+    }
+
+    // Runs simulations on a tree until the deadline and returns how many were run
+    private int search(int worker, Tree tree, long deadline) {
+        Level level = tree.root.state.getLevel();
+        if (simulations[worker] == null || simulationLevels[worker] != level) {
+            simulations[worker] = new Game(level, 0, true);
+            simulationLevels[worker] = level;
+        }
+        Game simulation = simulations[worker];
+        SplittableRandom random = randoms[worker];
+
+        int count = 0;
+        while (System.nanoTime() < deadline) {
+            Node node;
+            Node added = null;
+            synchronized (tree) {
+                node = tree.root;
+                while (true) {
+                    node.visits += VIRTUAL_LOSS;
+                    if (node.terminal) break;
+                    if (node.untriedCount > 0) {
+                        int i = random.nextInt(node.untriedCount);
+                        int action = node.untried[i];
+                        node.untried[i] = node.untried[--node.untriedCount];
+                        added = new Node(node, action);
+                        added.visits = VIRTUAL_LOSS;
+                        node.children.add(added);
+                        break;
+                    }
+                    Node next = select(node);
+                    if (next == null) break; // Every child is still being added by another worker
+                    node = next;
+                }
+            }
+
+            double result;
+            if (added != null) {
+                simulation.restore(node.state);
+                move(simulation, added.action);
+                GameSnapshot state = simulation.save(new GameSnapshot(true));
+                boolean terminal = simulation.isOver();
+                int[] actions = terminal ? new int[0] : legalActions(Game.getPacman());
+                result = terminal ? evaluate(simulation, tree.rootScore) : rollout(simulation, random, tree.rootScore);
+                synchronized (tree) {
+                    added.state = state;
+                    added.untried = actions;
+                    added.untriedCount = actions.length;
+                    added.terminal = terminal;
+                    added.terminalValue = result;
+                }
+                node = added;
+            } else if (node.terminal) {
+                result = node.terminalValue; // Nothing to play: not counted as a rollout
+                count--;
+            } else {
+                simulation.restore(node.state);
+                result = rollout(simulation, random, tree.rootScore);
+            }
+
+            synchronized (tree) {
+                for (Node n = node; n != null; n = n.parent) {
+                    n.visits += 1 - VIRTUAL_LOSS;
+                    n.value += result;
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    // Child with the best upper confidence bound, among those whose state is known
+    private static Node select(Node node) {
+        Node best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double logVisits = Math.log(node.visits);
+        for (int i = 0; i < node.children.size(); i++) {
+            Node child = node.children.get(i);
+            if (child.state == null) continue;
+            double score = child.value / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+            if (score > bestScore) {
+                best = child;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    // Plays random moves for rolloutDepth cells (turning back only in a dead end), then scores the game
+    private double rollout(Game simulation, SplittableRandom random, int rootScore) {
+        int[] actions = new int[4];
+        for (int depth = 0; depth < rolloutDepth && !simulation.isOver(); depth++) {
+            Pacman pacman = Game.getPacman();
+            int count = 0;
+            int back = NONE;
+            for (int action = LEFT; action <= DOWN; action++) {
+                if (!canMove(pacman, action)) continue;
+                if (DX[action] * pacman.getxSpd() < 0 || DY[action] * pacman.getySpd() < 0) {
+                    back = action;
+                } else {
+                    actions[count++] = action;
+                }
+            }
+            int action = count > 0 ? actions[random.nextInt(count)] : back;
+            move(simulation, action);
+        }
+        return evaluate(simulation, rootScore);
+    }
+
+    private double evaluate(Game simulation, int rootScore) {
+        if (simulation.getCaughtBy() != null) return 0;
+        if (simulation.getPacGumsLeft() == 0) return 1;
+        return 0.5 + 0.5 * Math.min(1.0, (simulation.getScore() - rootScore) / (10.0 * rolloutDepth));
+    }
+
+    // Plays an action until Pacman reaches the next cell where he can turn
+    private static void move(Game simulation, int action) {
+        simulation.input(action);
+        Pacman pacman = Game.getPacman();
+        int ticks = 0;
+        do {
+            simulation.update();
+            ticks++;
+        } while (!simulation.isOver() && ticks < MAX_TICKS_PER_MOVE
+                && (ticks < TICKS_PER_CELL || !pacman.onTheGrid() || !pacman.onGameplayWindow()));
+    }
+
+    // Directions Pacman can take from where he is (NONE if he can't turn there, e.g. in a tunnel)
+    private static int[] legalActions(Pacman pacman) {
+        if (!pacman.onTheGrid() || !pacman.onGameplayWindow()) return new int[] { NONE };
+        int[] actions = new int[4];
+        int count = 0;
+        for (int action = LEFT; action <= DOWN; action++) {
+            if (canMove(pacman, action)) actions[count++] = action;
+        }
+        if (count == 0) return new int[] { NONE };
+        return Arrays.copyOf(actions, count);
+    }
+
+    private static boolean canMove(Pacman pacman, int action) {
+        return !WallCollisionDetector.checkWallCollision(pacman, DX[action] * pacman.getSpd(), DY[action] * pacman.getSpd());
+    }
+
+    public long getDecisions() {
+        return decisions;
+    }
+
+    public long getRollouts() {
+        return rollouts;
+    }
+
+    // Rollouts per second of search, over all the workers
+    public double getRolloutsPerSecond() {
+        return searchNanos == 0 ? 0 : rollouts * 1e9 / searchNanos;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+}
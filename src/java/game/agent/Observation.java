@@ -0,0 +1,135 @@
+package game.agent;
+
+import game.Game;
+import game.Level;
+import game.TileMap;
+import game.entities.Pacman;
+import game.entities.ghosts.Ghost;
+import game.ghostStates.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Compact state of a game, as an agent sees it: the cells of the level (TileMap values, Pac-Gums included),
+// and the position (in pixels), direction and state of Pacman and of each ghost.
+// The same object is refilled every tick, so observing a game doesn't allocate.
+public class Observation {
+    // Ghost states
+    public static final int HOUSE = 0;
+    public static final int CHASE = 1;
+    public static final int SCATTER = 2;
+    public static final int FRIGHTENED = 3;
+    public static final int EATEN = 4;
+
+    public int cols;
+    public int rows;
+    public byte[] tiles = new byte[0];
+    public long tick;
+    public int pacGumsLeft;
+
+    public int pacmanX;
+    public int pacmanY;
+    public int pacmanDirection; // Direction of the sprite: 0 right, 1 left, 2 up, 3 down
+
+    public int ghostCount;
+    public int[] ghostX = new int[0];
+    public int[] ghostY = new int[0];
+    public int[] ghostState = new int[0];
+
+    private Game game;
+
+    public void update(Game game) {
+        this.game = game;
+        cols = game.getCellsPerRow();
+        rows = game.getCellsPerColumn();
+        Level level = Game.getLevel();
+        byte[] levelTiles = level.getTiles();
+        if (tiles.length != levelTiles.length) {
+            tiles = new byte[levelTiles.length];
+        }
+        System.arraycopy(levelTiles, 0, tiles, 0, levelTiles.length);
+        for (int i = 0; i < level.getPacGumCount(); i++) {
+            if (game.isPacGumEaten(i)) tiles[level.getPacGumCell(i)] = TileMap.EMPTY;
+        }
+        tick = Game.getTick();
+        pacGumsLeft = game.getPacGumsLeft();
+
+        Pacman pacman = Game.getPacman();
+        pacmanX = pacman.getxPos();
+        pacmanY = pacman.getyPos();
+        pacmanDirection = pacman.getDirection();
+
+        List<Ghost> ghosts = game.getGhosts();
+        ghostCount = ghosts.size();
+        if (ghostX.length != ghostCount) {
+            ghostX = new int[ghostCount];
+            ghostY = new int[ghostCount];
+            ghostState = new int[ghostCount];
+        }
+        for (int i = 0; i < ghostCount; i++) {
+            Ghost ghost = ghosts.get(i);
+            ghostX[i] = ghost.getxPos();
+            ghostY[i] = ghost.getyPos();
+            ghostState[i] = stateOf(ghost.getState());
+        }
+    }
+
+    // Game observed last, for the agents that plan by simulating it from its current state (see Game.save());
+    // it must not be changed by the agent
+    public Game getGame() {
+        return game;
+    }
+
+    // Size of the binary form written by write()
+    public int getEncodedSize() {
+        return 2 + 2 + tiles.length + 2 + 2 + 1 + 1 + ghostCount * 5;
+    }
+
+    // Binary form (big-endian) sent to the trainers: cols and rows (shorts), the cells (one byte each, TileMap values),
+    // Pacman's x and y (shorts) and direction (byte), the number of ghosts (byte), then x, y (shorts) and state (byte)
+    // of each ghost
+    public void write(ByteBuffer buffer) {
+        buffer.putShort((short) cols);
+        buffer.putShort((short) rows);
+        buffer.put(tiles);
+        buffer.putShort((short) pacmanX);
+        buffer.putShort((short) pacmanY);
+        buffer.put((byte) pacmanDirection);
+        buffer.put((byte) ghostCount);
+        for (int i = 0; i < ghostCount; i++) {
+            buffer.putShort((short) ghostX[i]);
+            buffer.putShort((short) ghostY[i]);
+            buffer.put((byte) ghostState[i]);
+        }
+    }
+
+    public byte tileAt(int x, int y) {
+        if (x < 0 || y < 0 || x >= cols || y >= rows) return TileMap.EMPTY;
+        return tiles[y * cols + x];
+    }
+
+    // True if an entity of this size (32 pixels for Pacman) can stand at this pixel position without touching a wall
+    // (same test as WallCollisionDetector)
+    public boolean isFree(int px, int py, int size) {
+        int maxX = Math.floorDiv(px + size - 1, 8);
+        int maxY = Math.floorDiv(py + size - 1, 8);
+        for (int y = Math.floorDiv(py, 8); y <= maxY; y++) {
+            for (int x = Math.floorDiv(px, 8); x <= maxX; x++) {
+                if (TileMap.isWall(tileAt(x, y), false)) return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isPacmanOnTheGrid() {
+        return pacmanX % 8 == 0 && pacmanY % 8 == 0;
+    }
+
+    private static int stateOf(GhostState state) {
+        if (state instanceof ChaseMode) return CHASE;
+        if (state instanceof ScatterMode) return SCATTER;
+        if (state instanceof FrightenedMode) return FRIGHTENED;
+        if (state instanceof EatenMode) return EATEN;
+        return HOUSE;
+    }
+}
@@ -0,0 +1,75 @@
+package game.agent;
+
+import game.Game;
+
+// Gym-style environment over a headless game: reset() starts a new game and returns the first observation,
+// step(action) plays the action for frameSkip ticks and returns the reward (the points scored, minus CAUGHT_PENALTY
+// if Pacman is caught). An episode is done when the game is over or after maxTicks ticks.
+// The observation is the same object for the whole life of the environment, refilled after each step.
+public class PacmanEnv {
+    public static final float CAUGHT_PENALTY = 500;
+
+    private final String level;
+    private final int frameSkip;
+    private final int maxTicks;
+    private final Observation observation = new Observation();
+    private Game game;
+    private int ticks;
+    private boolean done = true;
+
+    public PacmanEnv() {
+        this(Game.DEFAULT_LEVEL, 1, 60 * 60 * 2);
+    }
+
+    public PacmanEnv(String level, int frameSkip, int maxTicks) {
+        this.level = level;
+        this.frameSkip = frameSkip;
+        this.maxTicks = maxTicks;
+    }
+
+    public Observation reset(long seed) {
+        game = new Game(level, seed);
+        ticks = 0;
+        done = false;
+        game.observe(observation);
+        return observation;
+    }
+
+    public float step(int action) {
+        if (done) throw new IllegalStateException("The episode is over, reset() must be called");
+        int scoreBefore = game.getScore();
+        for (int i = 0; i < frameSkip && !game.isOver(); i++) {
+            game.input(action);
+            game.update();
+            ticks++;
+        }
+        float reward = game.getScore() - scoreBefore;
+        if (game.getCaughtBy() != null) {
+            reward -= CAUGHT_PENALTY;
+        }
+        done = game.isOver() || ticks >= maxTicks;
+        game.observe(observation);
+        return reward;
+    }
+
+    public Observation getObservation() {
+        return observation;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    // True if the episode ended because Pacman was caught (and not because of the tick limit or the last Pac-Gum)
+    public boolean isCaught() {
+        return game != null && game.getCaughtBy() != null;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public Game getGame() {
+        return game;
+    }
+}
@@ -0,0 +1,30 @@
+package game.agent;
+
+import java.util.Random;
+
+// Scripted agent wandering at random: it keeps its direction most of the time, and never turns back unless it has to
+public class RandomAgent extends MazeAgent {
+    private Random random = new Random();
+    private final int[] choices = new int[4];
+
+    @Override
+    public void reset(long seed) {
+        super.reset(seed);
+        random = new Random(seed);
+    }
+
+    @Override
+    protected int decide(Observation observation, int cellX, int cellY) {
+        boolean keep = lastAction != NONE && canStand(observation, cellX + DX[lastAction], cellY + DY[lastAction]);
+        if (keep && random.nextInt(4) != 0) return lastAction;
+
+        int count = 0;
+        for (int action = LEFT; action <= DOWN; action++) {
+            if (action != opposite(lastAction) && canStand(observation, cellX + DX[action], cellY + DY[action])) {
+                choices[count++] = action;
+            }
+        }
+        if (count == 0) return opposite(lastAction); // Dead end
+        return choices[random.nextInt(count)];
+    }
+}
@@ -0,0 +1,109 @@
+package game.agent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// N environments stepped in lockstep: step() plays one action per environment and fills the rewards and the done flags.
+// An environment whose episode is done is reset right away with the next seed, so its observation is already the first
+// one of the next episode (like the vector environments of gym). Episode k of environment i gets the seed
+// seed + i + k * N, so the runs can be replayed whatever the number of threads. With several threads, each thread
+// always steps the same slice of the environments.
+public class VectorEnv implements AutoCloseable {
+    private final PacmanEnv[] envs;
+    private final ExecutorService pool;
+    private final List<Callable<Void>> slices = new ArrayList<>();
+    private long seed;
+    private final long[] episodes;
+    private int[] actions;
+    private float[] rewards;
+    private boolean[] dones;
+
+    public VectorEnv(int count, String level, int frameSkip, int maxTicks, int threads) {
+        envs = new PacmanEnv[count];
+        episodes = new long[count];
+        for (int i = 0; i < count; i++) {
+            envs[i] = new PacmanEnv(level, frameSkip, maxTicks);
+        }
+        threads = Math.max(1, Math.min(threads, count));
+        pool = threads > 1 ? Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "VectorEnv");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        for (int t = 0; t < threads; t++) {
+            int first = count * t / threads;
+            int last = count * (t + 1) / threads;
+            slices.add(() -> {
+                stepSlice(first, last);
+                return null;
+            });
+        }
+    }
+
+    public int size() {
+        return envs.length;
+    }
+
+    // Starts a new episode in every environment
+    public void reset(long seed) {
+        this.seed = seed;
+        for (int i = 0; i < envs.length; i++) {
+            episodes[i] = 0;
+            envs[i].reset(seedOf(i));
+        }
+    }
+
+    private long seedOf(int i) {
+        return seed + i + episodes[i] * envs.length;
+    }
+
+    public void step(int[] actions, float[] rewards, boolean[] dones) {
+        this.actions = actions;
+        this.rewards = rewards;
+        this.dones = dones;
+        if (pool == null) {
+            stepSlice(0, envs.length);
+            return;
+        }
+        try {
+            for (Future<Void> future : pool.invokeAll(slices)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void stepSlice(int first, int last) {
+        for (int i = first; i < last; i++) {
+            rewards[i] = envs[i].step(actions[i]);
+            dones[i] = envs[i].isDone();
+            if (dones[i]) {
+                episodes[i]++;
+                envs[i].reset(seedOf(i));
+            }
+        }
+    }
+
+    public Observation getObservation(int i) {
+        return envs[i].getObservation();
+    }
+
+    public PacmanEnv getEnv(int i) {
+        return envs[i];
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -10,6 +10,8 @@ public abstract class Entity {
 
     protected boolean destroyed = false;
 
+    protected int id = -1; // Index of the entity in the game's entity list (used to reference it from events)
+
     public Entity(int size, int xPos, int yPos) {
         this.size = size;
         this.xPos = xPos;
@@ -30,6 +32,14 @@ public abstract class Entity {
         return destroyed;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public int getSize() {
         return size;
     }
@@ -43,4 +53,24 @@ public abstract class Entity {
     }
 
     public abstract Rectangle getHitbox();
+
+    // What changes while the game is played, written to (or read back from) the primitive buffer of a game snapshot
+    // from the given offset; both return the offset that follows. Subclasses add their own state after their parent's.
+    public int getStateSize() {
+        return 3;
+    }
+
+    public int saveState(int[] data, int offset) {
+        data[offset] = xPos;
+        data[offset + 1] = yPos;
+        data[offset + 2] = destroyed ? 1 : 0;
+        return offset + 3;
+    }
+
+    public int restoreState(int[] data, int offset) {
+        xPos = data[offset];
+        yPos = data[offset + 1];
+        destroyed = data[offset + 2] != 0;
+        return offset + 3;
+    }
 }
@@ -1,7 +1,8 @@
 package game.entities;
 
-import game.GameplayPanel;
-import javax.imageio.ImageIO;
+import game.Game;
+import game.utils.Scaling;
+import game.utils.Sprites;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
@@ -21,7 +22,7 @@ public abstract class MovingEntity extends Entity {
         super(size, xPos, yPos);
         this.spd = spd;
         try {
-            this.sprite = ImageIO.read(getClass().getClassLoader().getResource("img/" + spriteName));
+            this.sprite = Sprites.get(spriteName);
             this.nbSubimagesPerCycle = nbSubimagesPerCycle;
             this.imageSpd = imageSpd;
         } catch (IOException e) {
@@ -61,20 +62,20 @@ public abstract class MovingEntity extends Entity {
         }
 
         // If the entity goes beyond the edges of the game area, it appears on the opposite side
-        if (xPos > GameplayPanel.width) {
+        if (xPos > Game.getWidth()) {
             xPos = 0 - size + spd;
         }
 
         if (xPos < 0 - size + spd) {
-            xPos = GameplayPanel.width;
+            xPos = Game.getWidth();
         }
 
-        if (yPos > GameplayPanel.height) {
+        if (yPos > Game.getHeight()) {
             yPos = 0 - size + spd;
         }
 
         if (yPos < 0 - size + spd) {
-            yPos = GameplayPanel.height;
+            yPos = Game.getHeight();
         }
     }
 
@@ -82,18 +83,9 @@ public abstract class MovingEntity extends Entity {
     public void render(Graphics2D g) {
         // By default, each sprite contains 4 animation variations (one per direction)
         // and each animation contains a set number of frames.
-        // Knowing this, we display only the part of the sprite corresponding to the correct direction and animation frame.
-        g.drawImage(
-                sprite.getSubimage(
-                        (int) subimage * size + direction * size * nbSubimagesPerCycle,
-                        0,
-                        size,
-                        size
-                ),
-                this.xPos,
-                this.yPos,
-                null
-        );
+        // Knowing this, we display only the part of the sprite corresponding to the correct direction and animation frame
+        // (each frame is scaled once, at the scale of the rendering, see Scaling).
+        Scaling.drawFrame(g, sprite, size, (int) subimage + direction * nbSubimagesPerCycle, this.xPos, this.yPos);
     }
 
     // Method to check whether the entity is properly positioned on a grid cell in the game area
@@ -103,7 +95,32 @@ public abstract class MovingEntity extends Entity {
 
     // Method to check whether the entity is inside the gameplay window
     public boolean onGameplayWindow() {
-        return !(xPos <= 0 || xPos >= GameplayPanel.width || yPos <= 0 || yPos >= GameplayPanel.height);
+        return !(xPos <= 0 || xPos >= Game.getWidth() || yPos <= 0 || yPos >= Game.getHeight());
+    }
+
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 4;
+    }
+
+    @Override
+    public int saveState(int[] data, int offset) {
+        offset = super.saveState(data, offset);
+        data[offset] = xSpd;
+        data[offset + 1] = ySpd;
+        data[offset + 2] = Float.floatToRawIntBits(subimage);
+        data[offset + 3] = direction;
+        return offset + 4;
+    }
+
+    @Override
+    public int restoreState(int[] data, int offset) {
+        offset = super.restoreState(data, offset);
+        xSpd = data[offset];
+        ySpd = data[offset + 1];
+        subimage = Float.intBitsToFloat(data[offset + 2]);
+        direction = data[offset + 3];
+        return offset + 4;
     }
 
     public Rectangle getHitbox() {
@@ -120,7 +137,7 @@ public abstract class MovingEntity extends Entity {
 
     public void setSprite(String spriteName) {
         try {
-            this.sprite = ImageIO.read(getClass().getClassLoader().getResource("img/" + spriteName));
+            this.sprite = Sprites.get(spriteName);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -1,16 +1,20 @@
 package game.entities;
 
+import game.utils.Scaling;
+
 import java.awt.*;
 
 //Classe pour les PacGums
 public class PacGum extends StaticEntity {
+    private static final Color COLOR = new Color(255, 183, 174);
+
     public PacGum(int xPos, int yPos) {
         super(4, xPos + 8, yPos + 8);
     }
 
     @Override
     public void render(Graphics2D g) {
-        g.setColor(new Color(255, 183, 174));
-        g.fillRect(xPos, yPos, size, size);
+        g.setColor(COLOR);
+        Scaling.fillRect(g, xPos, yPos, size, size);
     }
 }
@@ -1,28 +1,29 @@
 package game.entities;
 
+import game.EventBus;
 import game.Game;
-import game.Observer;
-import game.Sujet;
+import game.GameEvent;
 import game.entities.ghosts.Ghost;
 import game.utils.CollisionDetector;
 import game.utils.KeyHandler;
 import game.utils.WallCollisionDetector;
 
-import java.util.ArrayList;
-import java.util.List;
-
 // Class that describes Pacman
-public class Pacman extends MovingEntity implements Sujet {
+public class Pacman extends MovingEntity {
     private CollisionDetector collisionDetector;
-    private List<Observer> observerCollection;
+    private EventBus eventBus;
 
     public Pacman(int xPos, int yPos) {
         super(32, xPos, yPos, 2, "pacman.png", 4, 0.3f);
-        observerCollection = new ArrayList<>();
     }
 
     // Handling movement
     public void input(KeyHandler k) {
+        input(k.k_left.isPressed, k.k_right.isPressed, k.k_up.isPressed, k.k_down.isPressed);
+    }
+
+    // Same thing from the state of the four directions, whoever controls Pacman (keyboard or agent)
+    public void input(boolean left, boolean right, boolean up, boolean down) {
         int new_xSpd = 0;
         int new_ySpd = 0;
 
@@ -30,16 +31,16 @@ public class Pacman extends MovingEntity implements Sujet {
         if (!onGameplayWindow()) return;  // Pacman must be inside the game area
 
         // Depending on the keys pressed, Pacman's direction changes accordingly
-        if (k.k_left.isPressed && xSpd >= 0 && !WallCollisionDetector.checkWallCollision(this, -spd, 0)) {
+        if (left && xSpd >= 0 && !WallCollisionDetector.checkWallCollision(this, -spd, 0)) {
             new_xSpd = -spd;
         }
-        if (k.k_right.isPressed && xSpd <= 0 && !WallCollisionDetector.checkWallCollision(this, spd, 0)) {
+        if (right && xSpd <= 0 && !WallCollisionDetector.checkWallCollision(this, spd, 0)) {
             new_xSpd = spd;
         }
-        if (k.k_up.isPressed && ySpd >= 0 && !WallCollisionDetector.checkWallCollision(this, 0, -spd)) {
+        if (up && ySpd >= 0 && !WallCollisionDetector.checkWallCollision(this, 0, -spd)) {
             new_ySpd = -spd;
         }
-        if (k.k_down.isPressed && ySpd <= 0 && !WallCollisionDetector.checkWallCollision(this, 0, spd)) {
+        if (down && ySpd <= 0 && !WallCollisionDetector.checkWallCollision(this, 0, spd)) {
             new_ySpd = spd;
         }
 
@@ -64,20 +65,18 @@ public class Pacman extends MovingEntity implements Sujet {
     @Override
     public void update() {
         // Each time, we check if Pacman is in contact with a Pac-Gum, a Super Pac-Gum, or a ghost,
-        // and the observers are notified accordingly
-        PacGum pg = (PacGum) collisionDetector.checkCollision(this, PacGum.class);
-        if (pg != null) {
-            notifyObserverPacGumEaten(pg);
-        }
-
-        SuperPacGum spg = (SuperPacGum) collisionDetector.checkCollision(this, SuperPacGum.class);
-        if (spg != null) {
-            notifyObserverSuperPacGumEaten(spg);
+        // and an event is posted; the observers receive it at the end of the tick
+        // (the Pac-Gums belong to the level: their events carry the index of the Pac-Gum in the level instead of an entity id)
+        int pacGum = collisionDetector.checkPacGumCollision(this);
+        if (pacGum >= 0) {
+            StaticEntity pg = Game.getLevel().getPacGums().get(pacGum);
+            int type = pg instanceof SuperPacGum ? GameEvent.SUPER_PAC_GUM_EATEN : GameEvent.PAC_GUM_EATEN;
+            eventBus.post(type, pacGum, GameEvent.tileOf(pg));
         }
 
         Ghost gh = (Ghost) collisionDetector.checkCollision(this, Ghost.class);
         if (gh != null) {
-            notifyObserverGhostCollision(gh);
+            eventBus.post(GameEvent.GHOST_COLLISION, gh.getId(), GameEvent.tileOf(gh));
         }
 
         // If there is no wall at Pacman's next potential position, update his position
@@ -90,28 +89,7 @@ public class Pacman extends MovingEntity implements Sujet {
         this.collisionDetector = collisionDetector;
     }
 
-    @Override
-    public void registerObserver(Observer observer) {
-        observerCollection.add(observer);
-    }
-
-    @Override
-    public void removeObserver(Observer observer) {
-        observerCollection.remove(observer);
-    }
-
-    @Override
-    public void notifyObserverPacGumEaten(PacGum pg) {
-        observerCollection.forEach(obs -> obs.updatePacGumEaten(pg));
-    }
-
-    @Override
-    public void notifyObserverSuperPacGumEaten(SuperPacGum spg) {
-        observerCollection.forEach(obs -> obs.updateSuperPacGumEaten(spg));
-    }
-
-    @Override
-    public void notifyObserverGhostCollision(Ghost gh) {
-        observerCollection.forEach(obs -> obs.updateGhostCollision(gh));
+    public void setEventBus(EventBus eventBus) {
+        this.eventBus = eventBus;
     }
 }
@@ -1,26 +1,23 @@
 package game.entities;
 
+import game.utils.Scaling;
+
 import java.awt.*;
 
 //Classe pour les SuperPacGums
 public class SuperPacGum extends StaticEntity {
-    private int frameCount = 0;
+    private static final Color COLOR = new Color(255, 183, 174);
 
     public SuperPacGum(int xPos, int yPos) {
         super(16, xPos, yPos);
     }
 
-    @Override
-    public void render(Graphics2D g) {
+    //Les SuperPacGums sont partagées par toutes les parties jouées sur le niveau : le numéro de la frame vient de la partie
+    public void render(Graphics2D g, long frameCount) {
         //Pour faire en sorte que les SuperPacGums clignotent, on ne fait le rendu que 30 frames sur 60.
         if (frameCount%60 < 30) {
-            g.setColor(new Color(255, 183, 174));
-            g.fillOval(this.xPos, this.yPos, this.size, this.size);
+            g.setColor(COLOR);
+            Scaling.fillOval(g, this.xPos, this.yPos, this.size, this.size);
         }
     }
-
-    @Override
-    public void update() {
-        frameCount++;
-    }
 }
@@ -1,17 +1,22 @@
 package game.entities.ghosts;
 
 import game.Game;
+import game.Level;
 import game.entities.MovingEntity;
 import game.ghostStates.*;
 import game.ghostStrategies.IGhostStrategy;
+import game.profiling.GhostStateTransitionEvent;
+import game.utils.Scaling;
+import game.utils.Sprites;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 // Abstract class to describe ghosts
 public abstract class Ghost extends MovingEntity {
+    public static final String[] STATE_NAMES = { "house", "chase", "scatter", "frightened", "eaten" }; // See getStateIndex()
+
     protected GhostState state;
 
     protected final GhostState chaseMode;
@@ -23,6 +28,7 @@ public abstract class Ghost extends MovingEntity {
     protected int modeTimer = 0;
     protected int frightenedTimer = 0;
     protected boolean isChasing = false;
+    private final GhostState[] states; // The five states, in the order used by the snapshots
 
     protected static BufferedImage frightenedSprite1;
     protected static BufferedImage frightenedSprite2;
@@ -39,13 +45,14 @@ public abstract class Ghost extends MovingEntity {
         frightenedMode = new FrightenedMode(this);
         eatenMode = new EatenMode(this);
         houseMode = new HouseMode(this);
+        states = new GhostState[] { houseMode, chaseMode, scatterMode, frightenedMode, eatenMode };
 
         state = houseMode; // Initial state
 
         try {
-            frightenedSprite1 = ImageIO.read(getClass().getClassLoader().getResource("img/ghost_frightened.png"));
-            frightenedSprite2 = ImageIO.read(getClass().getClassLoader().getResource("img/ghost_frightened_2.png"));
-            eatenSprite = ImageIO.read(getClass().getClassLoader().getResource("img/ghost_eaten.png"));
+            frightenedSprite1 = Sprites.get("ghost_frightened.png");
+            frightenedSprite2 = Sprites.get("ghost_frightened_2.png");
+            eatenSprite = Sprites.get("ghost_eaten.png");
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -53,23 +60,35 @@ public abstract class Ghost extends MovingEntity {
 
     // Methods for transitions between the different states
     public void switchChaseMode() {
-        state = chaseMode;
+        setState(chaseMode);
     }
     public void switchScatterMode() {
-        state = scatterMode;
+        setState(scatterMode);
     }
 
     public void switchFrightenedMode() {
         frightenedTimer = 0;
-        state = frightenedMode;
+        setState(frightenedMode);
     }
 
     public void switchEatenMode() {
-        state = eatenMode;
+        setState(eatenMode);
     }
 
     public void switchHouseMode() {
-        state = houseMode;
+        setState(houseMode);
+    }
+
+    // Every transition goes through here so that it can be recorded by JFR
+    private void setState(GhostState newState) {
+        GhostStateTransitionEvent event = new GhostStateTransitionEvent();
+        if (event.shouldCommit()) {
+            event.ghost = getClass().getSimpleName();
+            event.from = state.getClass().getSimpleName();
+            event.to = newState.getClass().getSimpleName();
+            event.commit();
+        }
+        state = newState;
     }
 
     public void switchChaseModeOrScatterMode() {
@@ -92,6 +111,40 @@ public abstract class Ghost extends MovingEntity {
         return state;
     }
 
+    // Position of the state in STATE_NAMES (house, chase, scatter, frightened, eaten)
+    public int getStateIndex() {
+        int stateIndex = 0;
+        while (states[stateIndex] != state) stateIndex++;
+        return stateIndex;
+    }
+
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + 4;
+    }
+
+    // The state is saved as its position in the list of the ghost's states
+    @Override
+    public int saveState(int[] data, int offset) {
+        offset = super.saveState(data, offset);
+        data[offset] = getStateIndex();
+        data[offset + 1] = modeTimer;
+        data[offset + 2] = frightenedTimer;
+        data[offset + 3] = isChasing ? 1 : 0;
+        return offset + 4;
+    }
+
+    // (restoring a state is not a transition: it is not recorded by JFR)
+    @Override
+    public int restoreState(int[] data, int offset) {
+        offset = super.restoreState(data, offset);
+        state = states[data[offset]];
+        modeTimer = data[offset + 1];
+        frightenedTimer = data[offset + 2];
+        isChasing = data[offset + 3] != 0;
+        return offset + 4;
+    }
+
     @Override
     public void update() {
         if (!Game.getFirstInput()) return; // Ghosts do not move until the player has moved
@@ -119,12 +172,13 @@ public abstract class Ghost extends MovingEntity {
         }
 
         // If the ghost is on the cell just above its house, the state is notified to apply the appropriate transition
-        if (xPos == 208 && yPos == 168) {
+        Level level = Game.getLevel();
+        if (xPos == level.getHouseX() && yPos == level.getHouseExitY()) {
             state.outsideHouse();
         }
 
         // If the ghost is on the cell in the middle of its house, the state is notified to apply the appropriate transition
-        if (xPos == 208 && yPos == 200) {
+        if (xPos == level.getHouseX() && yPos == level.getHouseInsideY()) {
             state.insideHouse();
         }
 
@@ -140,14 +194,14 @@ public abstract class Ghost extends MovingEntity {
         // (In retrospect, it might have been better to put a "render" method in GhostState)
         if (state == frightenedMode) {
             if (frightenedTimer <= (60 * 5) || frightenedTimer % 20 > 10) {
-                g.drawImage(frightenedSprite1.getSubimage((int)subimage * size, 0, size, size), this.xPos, this.yPos, null);
+                Scaling.drawFrame(g, frightenedSprite1, size, (int) subimage, this.xPos, this.yPos);
             } else {
-                g.drawImage(frightenedSprite2.getSubimage((int)subimage * size, 0, size, size), this.xPos, this.yPos, null);
+                Scaling.drawFrame(g, frightenedSprite2, size, (int) subimage, this.xPos, this.yPos);
             }
         } else if (state == eatenMode) {
-            g.drawImage(eatenSprite.getSubimage(direction * size, 0, size, size), this.xPos, this.yPos, null);
+            Scaling.drawFrame(g, eatenSprite, size, direction, this.xPos, this.yPos);
         } else {
-            g.drawImage(sprite.getSubimage((int)subimage * size + direction * size * nbSubimagesPerCycle, 0, size, size), this.xPos, this.yPos, null);
+            Scaling.drawFrame(g, sprite, size, (int) subimage + direction * nbSubimagesPerCycle, this.xPos, this.yPos);
         }
     }
 }
@@ -1,6 +1,10 @@
 package game.ghostStates;
 
 import game.entities.ghosts.Ghost;
+import game.ghostStrategies.IGhostStrategy;
+import game.pathfinding.PathfindingStats;
+import game.profiling.GhostDecisionEvent;
+import game.profiling.Profiler;
 
 //Classe pour décrire l'état concret d'un fantôme en train de poursuivre Pacman
 public class ChaseMode extends GhostState{
@@ -20,9 +24,33 @@ public class ChaseMode extends GhostState{
         ghost.switchScatterMode();
     }
 
+    //La stratégie peut préparer la prochaine décision à chaque tick (recherche de chemin en arrière-plan)
+    @Override
+    public void computeNextDir() {
+        ghost.getStrategy().planAhead();
+        super.computeNextDir();
+    }
+
     //Dans cet état, la position ciblée dépend de la stratégie du fantôme
     @Override
     public int[] getTargetPosition() {
-        return ghost.getStrategy().getChaseTargetPosition();
+        IGhostStrategy strategy = ghost.getStrategy();
+        GhostDecisionEvent event = new GhostDecisionEvent();
+        event.begin();
+        long t = Profiler.start();
+        int[] position = strategy.getChaseTargetPosition();
+        Profiler.stop(Profiler.strategyPhase(strategy), t);
+        event.end();
+        if (event.shouldCommit()) {
+            event.ghost = ghost.getClass().getSimpleName();
+            event.strategy = strategy.getClass().getSimpleName();
+            PathfindingStats stats = strategy.getStats();
+            event.algorithm = stats == null ? "direct" : stats.getAlgorithm();
+            event.expandedNodes = stats == null ? 0 : stats.getExpandedNodes();
+            event.frontierPeak = stats == null ? 0 : stats.getFrontierPeak();
+            event.pathLength = stats == null ? 0 : stats.getPathLength();
+            event.commit();
+        }
+        return position;
     }
 }
@@ -22,6 +22,11 @@ public class FrightenedMode extends GhostState{
         ghost.switchChaseModeOrScatterMode();
     }
 
+    @Override
+    protected boolean hasRandomTarget() {
+        return true;
+    }
+
     //Dans cet état, la position ciblée est une case aléatoire autour du fantôme
     @Override
     public int[] getTargetPosition(){
@@ -24,6 +24,17 @@ public abstract class GhostState {
         return new int[2];
     } //retourne le point que va cibler le fantôme
 
+    //Vrai si la cible est tirée au hasard : elle est alors tirée à nouveau pour chaque direction testée (voir FrightenedMode)
+    protected boolean hasRandomTarget() {
+        return false;
+    }
+
+    //Distance entre la position potentielle du fantôme et la cible (target est null si la cible est tirée pour chaque direction)
+    private double distanceToTarget(int x, int y, int[] target) {
+        if (target == null) return Utils.getDistance(x, y, getTargetPosition()[0], getTargetPosition()[1]);
+        return Utils.getDistance(x, y, target[0], target[1]);
+    }
+
     //Méthode pour calculer la prochaine direction que le fantôme va prendre
     public void computeNextDir() {
         int new_xSpd = 0;
@@ -33,11 +44,12 @@ public abstract class GhostState {
         if (!ghost.onGameplayWindow()) return;  //Le fantôme doit être dans la zone de jeu
 
         double minDist = Double.MAX_VALUE; //distance minimale courante entre le fantôme et la cible selon sa prochaine direction
+        int[] target = hasRandomTarget() ? null : getTargetPosition(); //la cible n'est calculée qu'une fois par décision (pour ChaseMode, c'est une recherche de chemin)
 
         //Si le fantôme va actuellement vers la gauche et qu'il n'y a pas de mur à gauche...
         if (ghost.getxSpd() <= 0 && !WallCollisionDetector.checkWallCollision(ghost, -ghost.getSpd(), 0)) {
             //On regarde la distance entre la position ciblée et la position potentielle du fantôme si ce dernier irait vers la gauche
-            double distance = Utils.getDistance(ghost.getxPos() - ghost.getSpd(), ghost.getyPos(), getTargetPosition()[0], getTargetPosition()[1]);
+            double distance = distanceToTarget(ghost.getxPos() - ghost.getSpd(), ghost.getyPos(), target);
 
             //Si cette distance est inférieure à la distance minimale courante, on dit que le fantôme va vers la gauche et on met à jour la distance minimale
             if (distance < minDist) {
@@ -49,7 +61,7 @@ public abstract class GhostState {
 
         //Même chose en testant vers la droite
         if (ghost.getxSpd() >= 0 && !WallCollisionDetector.checkWallCollision(ghost, ghost.getSpd(), 0)) {
-            double distance = Utils.getDistance(ghost.getxPos() + ghost.getSpd(), ghost.getyPos(),  getTargetPosition()[0], getTargetPosition()[1]);
+            double distance = distanceToTarget(ghost.getxPos() + ghost.getSpd(), ghost.getyPos(), target);
             if (distance < minDist) {
                 new_xSpd = ghost.getSpd();
                 new_ySpd = 0;
@@ -59,7 +71,7 @@ public abstract class GhostState {
 
         //Même chose en testant vers le haut
         if (ghost.getySpd() <= 0 && !WallCollisionDetector.checkWallCollision(ghost, 0, -ghost.getSpd())) {
-            double distance = Utils.getDistance(ghost.getxPos(), ghost.getyPos() - ghost.getSpd(), getTargetPosition()[0], getTargetPosition()[1]);
+            double distance = distanceToTarget(ghost.getxPos(), ghost.getyPos() - ghost.getSpd(), target);
             if (distance < minDist) {
                 new_xSpd = 0;
                 new_ySpd = -ghost.getSpd();
@@ -69,7 +81,7 @@ public abstract class GhostState {
 
         //Même chose en testant vers le bas
         if (ghost.getySpd() >= 0 && !WallCollisionDetector.checkWallCollision(ghost, 0, ghost.getSpd())) {
-            double distance = Utils.getDistance(ghost.getxPos(), ghost.getyPos() + ghost.getSpd(), getTargetPosition()[0], getTargetPosition()[1]);
+            double distance = distanceToTarget(ghost.getxPos(), ghost.getyPos() + ghost.getSpd(), target);
             if (distance < minDist) {
                 new_xSpd = 0;
                 new_ySpd = ghost.getSpd();
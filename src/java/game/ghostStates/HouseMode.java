@@ -1,5 +1,6 @@
 package game.ghostStates;
 
+import game.Game;
 import game.entities.ghosts.Ghost;
 import game.utils.Utils;
 import game.utils.WallCollisionDetector;
@@ -20,8 +21,8 @@ public class HouseMode extends GhostState{
     @Override
     public int[] getTargetPosition(){
         int[] position = new int[2];
-        position[0] = 208;
-        position[1] = 168;
+        position[0] = Game.getLevel().getHouseX();
+        position[1] = Game.getLevel().getHouseExitY();
         return position;
     }
 
@@ -35,9 +36,10 @@ public class HouseMode extends GhostState{
         if (!ghost.onGameplayWindow()) return;
 
         double minDist = Double.MAX_VALUE;
+        int[] target = getTargetPosition();
 
         if (ghost.getxSpd() <= 0 && !WallCollisionDetector.checkWallCollision(ghost, -ghost.getSpd(), 0, true)) {
-            double distance = Utils.getDistance(ghost.getxPos() - ghost.getSpd(), ghost.getyPos(), getTargetPosition()[0], getTargetPosition()[1]);
+            double distance = Utils.getDistance(ghost.getxPos() - ghost.getSpd(), ghost.getyPos(), target[0], target[1]);
             if (distance < minDist) {
                 new_xSpd = -ghost.getSpd();
                 new_ySpd = 0;
@@ -45,7 +47,7 @@ public class HouseMode extends GhostState{
             }
         }
         if (ghost.getxSpd() >= 0 && !WallCollisionDetector.checkWallCollision(ghost, ghost.getSpd(), 0, true)) {
-            double distance = Utils.getDistance(ghost.getxPos() + ghost.getSpd(), ghost.getyPos(),  getTargetPosition()[0], getTargetPosition()[1]);
+            double distance = Utils.getDistance(ghost.getxPos() + ghost.getSpd(), ghost.getyPos(),  target[0], target[1]);
             if (distance < minDist) {
                 new_xSpd = ghost.getSpd();
                 new_ySpd = 0;
@@ -53,7 +55,7 @@ public class HouseMode extends GhostState{
             }
         }
         if (ghost.getySpd() <= 0 && !WallCollisionDetector.checkWallCollision(ghost, 0, -ghost.getSpd(), true)) {
-            double distance = Utils.getDistance(ghost.getxPos(), ghost.getyPos() - ghost.getSpd(), getTargetPosition()[0], getTargetPosition()[1]);
+            double distance = Utils.getDistance(ghost.getxPos(), ghost.getyPos() - ghost.getSpd(), target[0], target[1]);
             if (distance < minDist) {
                 new_xSpd = 0;
                 new_ySpd = -ghost.getSpd();
@@ -61,7 +63,7 @@ public class HouseMode extends GhostState{
             }
         }
         if (ghost.getySpd() >= 0 && !WallCollisionDetector.checkWallCollision(ghost, 0, ghost.getSpd(), true)) {
-            double distance = Utils.getDistance(ghost.getxPos(), ghost.getyPos() + ghost.getSpd(), getTargetPosition()[0], getTargetPosition()[1]);
+            double distance = Utils.getDistance(ghost.getxPos(), ghost.getyPos() + ghost.getSpd(), target[0], target[1]);
             if (distance < minDist) {
                 new_xSpd = 0;
                 new_ySpd = ghost.getSpd();
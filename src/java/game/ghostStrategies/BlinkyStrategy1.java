@@ -1,7 +1,6 @@
 package game.ghostStrategies;
 
 import game.Game;
-import game.GameplayPanel;
 
 // Concrete strategy for Blinky (the red ghost)
 public class BlinkyStrategy1 implements IGhostStrategy {
@@ -19,7 +18,7 @@ public class BlinkyStrategy1 implements IGhostStrategy {
     @Override
     public int[] getScatterTargetPosition() {
         int[] position = new int[2];
-        position[0] = GameplayPanel.width;
+        position[0] = Game.getWidth();
         position[1] = 0;
         return position;
     }
@@ -1,7 +1,6 @@
 package game.ghostStrategies;
 
 import game.Game;
-import game.GameplayPanel;
 import game.entities.ghosts.Ghost;
 import game.utils.Utils;
 
@@ -32,7 +31,7 @@ public class ClydeStrategy implements IGhostStrategy {
     public int[] getScatterTargetPosition() {
         int[] position = new int[2];
         position[0] = 0;
-        position[1] = GameplayPanel.height;
+        position[1] = Game.getHeight();
         return position;
     }
 }
@@ -1,9 +1,19 @@
 package game.ghostStrategies;
 
+import game.pathfinding.PathfindingStats;
+
 // Interface describing the strategies of the different ghosts
 // (this video explains them well: https://www.youtube.com/watch?v=ataGotQ7ir8)
 public interface IGhostStrategy {
     int[] getChaseTargetPosition();   // Target tile when the ghost is chasing Pacman
     int[] getScatterTargetPosition(); // Target tile when the ghost is in scatter (rest) mode
+
+    // Statistics of the searches done by getChaseTargetPosition (null for the strategies that do not search)
+    default PathfindingStats getStats() {
+        return null;
+    }
+
+    // Called on every tick of the chase mode, before the ghost decides where to go (e.g. to prepare the next search)
+    default void planAhead() {}
 }
 
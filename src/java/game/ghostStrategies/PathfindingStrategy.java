@@ -0,0 +1,103 @@
+package game.ghostStrategies;
+
+import game.Game;
+import game.entities.ghosts.Ghost;
+import game.pathfinding.AsyncPlanner;
+import game.pathfinding.CachingPathfinder;
+import game.pathfinding.PathfindingEngine;
+import game.pathfinding.PathfindingEngines;
+import game.pathfinding.PathfindingStats;
+import game.pathfinding.TileGrid;
+
+// Base class of the strategies chasing Pacman along a shortest path on the tile grid of the level:
+// the search itself is delegated to a PathfindingEngine, and the next tile of the path is targeted
+public abstract class PathfindingStrategy implements IGhostStrategy {
+    protected final Ghost ghost;
+    protected final PathfindingEngine engine;
+    protected final PathfindingStats stats = new PathfindingStats();
+    protected final AsyncPlanner planner; // null unless the searches run in the background
+    private int lastNext = -1; // Tile targeted by the last step found
+
+    // The engine can be replaced for every ghost with -Dpacman.pathfinding=<name> (see PathfindingEngines),
+    // and its results go through the path cache of the game unless -Dpacman.pathCache=false (or the engine is incremental)
+    public PathfindingStrategy(Ghost ghost, PathfindingEngine engine) {
+        this.ghost = ghost;
+        PathfindingEngine selected = PathfindingEngines.createOrDefault(engine);
+        boolean cached = !selected.isIncremental() && !"false".equals(System.getProperty("pacman.pathCache"));
+        this.engine = cached ? new CachingPathfinder(selected, Game.getPathCache()) : selected;
+        // With -Dpacman.planning=async the searches run on worker threads (incremental engines already bound their cost)
+        boolean async = AsyncPlanner.isEnabled() && !selected.isIncremental();
+        this.planner = async ? new AsyncPlanner(this.engine, stats) : null;
+    }
+
+    // Decisions are taken when the ghost is exactly on a tile: while it moves between two tiles, the search
+    // from the tile it is heading to is submitted, so the plan is ready when it gets there
+    @Override
+    public void planAhead() {
+        if (planner == null || ghost.onTheGrid()) return;
+        TileGrid grid = Game.getTileGrid();
+        int x = ghost.getxPos();
+        int y = ghost.getyPos();
+        int tileX = ghost.getxSpd() > 0 ? -Math.floorDiv(-x, TileGrid.TILE_SIZE) : Math.floorDiv(x, TileGrid.TILE_SIZE);
+        int tileY = ghost.getySpd() > 0 ? -Math.floorDiv(-y, TileGrid.TILE_SIZE) : Math.floorDiv(y, TileGrid.TILE_SIZE);
+        int start = grid.tileAt(tileX * TileGrid.TILE_SIZE, tileY * TileGrid.TILE_SIZE);
+        int goal = grid.tileAt(Game.getPacman().getxPos(), Game.getPacman().getyPos());
+        if (start != goal) {
+            planner.submit(grid, start, goal, Game.getTick());
+        }
+    }
+
+    @Override
+    public int[] getChaseTargetPosition() {
+        TileGrid grid = Game.getTileGrid();
+        int pacX = Game.getPacman().getxPos();
+        int pacY = Game.getPacman().getyPos();
+
+        // Start = the ghost's current tile, goal = Pacman's current tile (both clamped to the grid)
+        int start = grid.tileAt(ghost.getxPos(), ghost.getyPos());
+        int goal = grid.tileAt(pacX, pacY);
+
+        // If we’re already on Pacman, just target him directly
+        if (start == goal) {
+            stats.direct();
+            return new int[] { pacX, pacY };
+        }
+
+        int next = planner == null ? engine.nextStep(grid, start, goal, stats) : planner.nextStep(grid, start, goal, Game.getTick());
+
+        // The planner is still searching: keep going the same way until its plan is ready
+        if (next == AsyncPlanner.BUSY) {
+            next = keepGoing(grid, start);
+        } else if (next >= 0) {
+            lastNext = next;
+        }
+
+        // If no path was found, fall back to directly targeting Pacman
+        if (next < 0) {
+            return new int[] { pacX, pacY };
+        }
+
+        // Convert the tile back to pixel coordinates
+        return new int[] { grid.x(next) * TileGrid.TILE_SIZE, grid.y(next) * TileGrid.TILE_SIZE };
+    }
+
+    // Tile ahead of the ghost in its current direction, else the last step found if it is next to the ghost
+    // (-1 if neither is possible: Pacman is then targeted directly)
+    private int keepGoing(TileGrid grid, int start) {
+        int dx = Integer.signum(ghost.getxSpd());
+        int dy = Integer.signum(ghost.getySpd());
+        if ((dx != 0 || dy != 0) && grid.isWalkable(grid.x(start) + dx, grid.y(start) + dy)) {
+            return grid.index(grid.x(start) + dx, grid.y(start) + dy);
+        }
+        return lastNext >= 0 && grid.manhattan(start, lastNext) == 1 ? lastNext : -1;
+    }
+
+    @Override
+    public PathfindingStats getStats() {
+        return stats;
+    }
+
+    public PathfindingEngine getEngine() {
+        return engine;
+    }
+}
@@ -0,0 +1,41 @@
+package game.ghostStrategies;
+
+import game.agent.Agent;
+import game.entities.ghosts.Ghost;
+
+// Strategy of a ghost controlled by a player (see game.net.GameServer): the ghost targets a point far away in the
+// direction the player asks for, so it takes that direction at the next crossing (ghosts still can't turn back,
+// and the frightened, eaten and house states don't use the strategy). Without input, the ghost keeps going.
+public class PlayerGhostStrategy implements IGhostStrategy {
+    private static final int FAR = 10000;
+
+    private final Ghost ghost;
+    private int action = Agent.NONE; // One of the Agent actions
+
+    public PlayerGhostStrategy(Ghost ghost) {
+        this.ghost = ghost;
+    }
+
+    public void setAction(int action) {
+        this.action = action;
+    }
+
+    @Override
+    public int[] getChaseTargetPosition() {
+        int dx = ghost.getxSpd();
+        int dy = ghost.getySpd();
+        switch (action) {
+            case Agent.LEFT: dx = -1; dy = 0; break;
+            case Agent.RIGHT: dx = 1; dy = 0; break;
+            case Agent.UP: dx = 0; dy = -1; break;
+            case Agent.DOWN: dx = 0; dy = 1; break;
+        }
+        return new int[] { ghost.getxPos() + Integer.signum(dx) * FAR, ghost.getyPos() + Integer.signum(dy) * FAR };
+    }
+
+    // The player controls the ghost in both modes
+    @Override
+    public int[] getScatterTargetPosition() {
+        return getChaseTargetPosition();
+    }
+}
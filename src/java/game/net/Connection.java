@@ -0,0 +1,112 @@
+package game.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+// Client connected to the server. The frames of its room are queued by reference (see Frame) and written once per tick,
+// after the messages meant for this client only. A client that reads too slowly gets its queued frames dropped:
+// the deltas it missed are useless, so it gets nothing until the next keyframe, which its room encodes for it on the next tick.
+final class Connection {
+    private static final int MAX_QUEUED_FRAMES = 32; // About half a second at 60 ticks per second
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer in = ByteBuffer.allocate(1024);
+    private final ByteBuffer out = ByteBuffer.allocate(1024); // Messages for this client only (e.g. the answer to a join)
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    private ByteBuffer frameView; // What is left to write of the first queued frame
+
+    Room room;
+    int role = GameServer.SPECTATOR;
+    boolean needsKeyframe = true;
+    long framesDropped = 0;
+
+    Connection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    // Appends a whole message (from its position to its limit) to the output of this client, or nothing if it doesn't fit
+    boolean send(ByteBuffer message) {
+        if (out.remaining() < message.remaining()) return false;
+        out.put(message.duplicate());
+        return true;
+    }
+
+    // Queues a frame of the room (skipped while the client waits for a keyframe)
+    void offer(Frame frame) {
+        if (needsKeyframe && !frame.keyframe) return;
+        if (frames.size() >= MAX_QUEUED_FRAMES) {
+            dropFrames();
+            if (!frame.keyframe) return;
+        }
+        frame.retain();
+        frames.add(frame);
+        if (frame.keyframe) {
+            needsKeyframe = false;
+        }
+    }
+
+    // Drops the queued frames, except the one being written if it was started (the stream would be cut in the middle of it)
+    void dropFrames() {
+        Frame started = null;
+        if (frameView != null && frameView.position() > 0) {
+            started = frames.poll();
+        } else {
+            frameView = null;
+        }
+        while (!frames.isEmpty()) {
+            frames.poll().release();
+            framesDropped++;
+        }
+        if (started != null) {
+            frames.add(started);
+        }
+        needsKeyframe = true;
+    }
+
+    // Writes what the socket takes without blocking, and waits for it to be writable again if something is left;
+    // returns the number of bytes written
+    int flush() throws IOException {
+        int written = 0;
+        boolean blocked = false;
+        // A frame that was partly written is finished before anything else
+        if (frameView != null && frameView.position() > 0) {
+            written += channel.write(frameView);
+            blocked = frameView.hasRemaining();
+            if (!blocked) nextFrame();
+        }
+        if (!blocked && out.position() > 0) {
+            out.flip();
+            written += channel.write(out);
+            out.compact();
+            blocked = out.position() > 0;
+        }
+        while (!blocked && !frames.isEmpty()) {
+            if (frameView == null) {
+                frameView = frames.peek().buffer.duplicate();
+            }
+            written += channel.write(frameView);
+            blocked = frameView.hasRemaining();
+            if (!blocked) nextFrame();
+        }
+        key.interestOps(blocked ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        return written;
+    }
+
+    private void nextFrame() {
+        frames.poll().release();
+        frameView = null;
+    }
+
+    // Releases the queued frames (the connection is closed)
+    void clear() {
+        while (!frames.isEmpty()) {
+            frames.poll().release();
+        }
+        frameView = null;
+    }
+}
@@ -0,0 +1,43 @@
+package game.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+// Frame encoded once by a room into a direct buffer, and written from that same buffer to every client of the room
+// (each client writes from its own view of it, so nothing is copied per client). A frame is shared by counting
+// references: the room holds one while it publishes it, each client queue holds one until the frame is written or dropped,
+// and the frame goes back to the pool of its room when the last one is released. Only used by the server's thread.
+final class Frame {
+    static final int SIZE = 16 * 1024;
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(SIZE);
+    boolean keyframe; // A client that missed frames can only start again from a keyframe
+    private final ArrayDeque<Frame> pool;
+    private int references;
+
+    private Frame(ArrayDeque<Frame> pool) {
+        this.pool = pool;
+    }
+
+    // Frame to encode, with a reference held by the caller
+    static Frame acquire(ArrayDeque<Frame> pool, boolean keyframe) {
+        Frame frame = pool.poll();
+        if (frame == null) {
+            frame = new Frame(pool);
+        }
+        frame.buffer.clear();
+        frame.keyframe = keyframe;
+        frame.references = 1;
+        return frame;
+    }
+
+    void retain() {
+        references++;
+    }
+
+    void release() {
+        if (--references == 0) {
+            pool.push(this);
+        }
+    }
+}
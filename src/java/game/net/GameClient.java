@@ -0,0 +1,172 @@
+package game.net;
+
+import game.GameSnapshot;
+import game.Level;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+// Client of a GameServer on the same machine: joins a room, sends the player's inputs, and keeps the state of the game
+// sent by the server. That state is a snapshot of the server's game: a local game on the same level can be put in it
+// with Game.restore() (e.g. to render it). The socket is non-blocking: poll() handles what has arrived and returns at once.
+public class GameClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+    private final ByteBuffer out = ByteBuffer.allocate(64);
+    private final GameSnapshot state = new GameSnapshot();
+
+    private Level level;
+    private int room = -1;
+    private int role = GameServer.SPECTATOR;
+    private boolean hasState = false;
+    private boolean closed = false;
+
+    // Statistics
+    private long keyframes = 0;
+    private long deltas = 0;
+    private long gamesOver = 0;
+    private long bytesReceived = 0;
+    private int lastScore = 0; // Score of the last game that ended
+
+    public GameClient(int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        channel.socket().setTcpNoDelay(true);
+        channel.configureBlocking(false);
+    }
+
+    // Asks to join a room with a role (GameServer.PACMAN, 1 + i for the ghost i, or GameServer.SPECTATOR);
+    // the role that was granted is known once the answer arrives (see getRole())
+    public void join(int room, int role) throws IOException {
+        out.clear();
+        GameServer.beginFrame(out, GameServer.JOIN);
+        out.putInt(room);
+        out.put((byte) role);
+        GameServer.endFrame(out);
+        write();
+    }
+
+    // Action of the player (see Agent), kept by the server until the next one
+    public void sendInput(int action) throws IOException {
+        sendInput(action, -1);
+    }
+
+    // Action of the player from a tick of the server's game on (see RollbackSimulation), e.g. the tick the player
+    // saw on his screen; -1 for the next tick of the server
+    public void sendInput(int action, long tick) throws IOException {
+        out.clear();
+        GameServer.beginFrame(out, GameServer.INPUT);
+        out.put((byte) action);
+        out.putInt((int) tick);
+        GameServer.endFrame(out);
+        write();
+    }
+
+    private void write() throws IOException {
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    // Handles the frames received so far; returns the number of states received (keyframes and deltas),
+    // or -1 once the server closed the connection
+    public int poll() throws IOException {
+        if (closed) return -1;
+        int read = channel.read(in);
+        if (read < 0) {
+            closed = true;
+        } else {
+            bytesReceived += read;
+        }
+        int states = 0;
+        in.flip();
+        while (in.remaining() >= 2 && in.remaining() >= 2 + (in.getShort(in.position()) & 0xFFFF)) {
+            int length = in.getShort() & 0xFFFF;
+            int end = in.position() + length;
+            byte type = in.get();
+            switch (type) {
+                case GameServer.WELCOME:
+                    room = in.getInt();
+                    role = in.get();
+                    byte[] name = new byte[in.getShort()];
+                    in.get(name);
+                    level = Level.get(new String(name, StandardCharsets.UTF_8));
+                    break;
+                case GameServer.KEYFRAME:
+                    StateCodec.readKeyframe(in, level, state);
+                    hasState = true;
+                    keyframes++;
+                    states++;
+                    break;
+                case GameServer.DELTA:
+                    if (!hasState) throw new IOException("Delta received before any keyframe");
+                    StateCodec.readDelta(in, state);
+                    deltas++;
+                    states++;
+                    break;
+                case GameServer.GAME_OVER:
+                    lastScore = in.getInt();
+                    in.get();
+                    gamesOver++;
+                    break;
+                default:
+                    throw new IOException("Unknown frame: " + type);
+            }
+            in.position(end);
+        }
+        in.compact();
+        if (closed && states == 0) return -1;
+        return states;
+    }
+
+    public boolean hasState() {
+        return hasState;
+    }
+
+    // State of the game after the last tick received (valid once hasState() is true)
+    public GameSnapshot getState() {
+        return state;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public int getRoom() {
+        return room;
+    }
+
+    public int getRole() {
+        return role;
+    }
+
+    public long getKeyframes() {
+        return keyframes;
+    }
+
+    public long getDeltas() {
+        return deltas;
+    }
+
+    public long getGamesOver() {
+        return gamesOver;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
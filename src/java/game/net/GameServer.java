@@ -0,0 +1,356 @@
+package game.net;
+
+import game.Game;
+import game.Level;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Authoritative multiplayer server: the games are played on the server only, at a fixed tick rate, in rooms that the
+// clients join over TCP (loopback only), as Pacman, as a ghost or as spectators. After each tick, every client of a room
+// gets what changed in the game (see StateCodec) and can rebuild the exact state of the game from it (see GameClient).
+// Spectators get the same frames as the players: they are encoded once per room and written to every client from
+// the same buffer, and a client that can't keep up skips to a keyframe (see Connection).
+// One thread does everything (non-blocking I/O on a selector and the ticks of every room), so a room only costs its tick,
+// the encoding of its frame and one write per client.
+//
+// The inputs are applied at the tick the client meant them for, even if it was already played (see Room): a client that
+// predicts the game ahead of the server (see PredictedGame) has its turns taken at the junction it saw.
+//
+// Frames, both ways: length of the rest of the frame (unsigned short), type (byte), content (big-endian):
+//   client: 'J' room (int), role (byte: 0 for Pacman, 1 + i for the ghost i, -1 to watch)   joins a room
+//           'I' action (byte, see Agent), tick (int, -1 for the next one)                    input from a tick on, kept until the next one
+//   server: 'W' room (int), role (byte), level (UTF-8 after its length as a short)   answer to a join, with the role the client got
+//           'K' keyframe / 'D' delta (see StateCodec)  state after a tick
+//           'E' score (int), ghost that caught Pacman (byte, -1 if none)   the game is over and restarts with a keyframe
+// Usage: java game.net.GameServer [port] [ticksPerSecond] [level]
+public class GameServer implements Closeable {
+    public static final int PACMAN = 0;
+    public static final int SPECTATOR = -1;
+
+    static final byte JOIN = 'J';
+    static final byte INPUT = 'I';
+    static final byte WELCOME = 'W';
+    static final byte KEYFRAME = 'K';
+    static final byte DELTA = 'D';
+    static final byte GAME_OVER = 'E';
+
+    // Size of the socket buffers of the clients (-Dpacman.server.sendBuffer, in bytes; the system's default if 0):
+    // the smaller, the sooner a slow client skips to a fresh keyframe instead of receiving old frames
+    private static final int SEND_BUFFER = Integer.getInteger("pacman.server.sendBuffer", 0);
+
+    private final Level level;
+    private final long tickNanos;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Map<Integer, Room> rooms = new HashMap<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final ByteBuffer reply = ByteBuffer.allocate(1024);
+    private long nextSeed = 1;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    // Statistics
+    private volatile long ticks = 0;
+    private volatile long roomTicks = 0;
+    private volatile long clientTicks = 0;
+    private volatile long tickWorkNanos = 0; // Time spent playing the ticks of the rooms and writing their frames
+    private volatile long lateTicks = 0; // Ticks skipped because the server was late
+    private volatile long bytesSent = 0;
+    private volatile long framesEncoded = 0;
+    private volatile long resimulatedTicks = 0; // Ticks played again for the inputs that arrived late
+    private volatile int roomCount = 0;
+    private volatile int clientCount = 0;
+
+    public GameServer(String level, int ticksPerSecond, int port) throws IOException {
+        this.level = Level.get(level);
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int ticksPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        String level = args.length > 2 ? args[2] : Game.DEFAULT_LEVEL;
+        GameServer server = new GameServer(level, ticksPerSecond, port);
+        System.out.println("Game server listening on port " + server.getPort());
+        server.start();
+        while (true) {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            System.out.println(server.getStats());
+        }
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    // Runs the server on its own thread
+    public void start() {
+        thread = new Thread(this::run, "game-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void run() {
+        long nextTick = System.nanoTime() + tickNanos;
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 1_000_000) {
+                    selector.select(wait / 1_000_000);
+                } else {
+                    selector.selectNow();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+
+                long now = System.nanoTime();
+                if (now >= nextTick) {
+                    tick();
+                    nextTick += tickNanos;
+                    if (now - nextTick > 5 * tickNanos) {
+                        // Too late to catch up: the ticks that were missed are skipped
+                        long late = (now - nextTick) / tickNanos;
+                        lateTicks += late;
+                        nextTick += late * tickNanos;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) e.printStackTrace();
+        }
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        for (Room room : rooms.values()) {
+            framesEncoded += room.tick();
+            resimulatedTicks += room.resimulatedTicks;
+        }
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            try {
+                bytesSent += connection.flush();
+            } catch (IOException e) {
+                disconnect(connection);
+                i--;
+            }
+        }
+        tickWorkNanos += System.nanoTime() - start;
+        roomTicks += rooms.size();
+        clientTicks += connections.size();
+        roomCount = rooms.size();
+        clientCount = connections.size();
+        ticks++;
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) return;
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isWritable()) {
+                bytesSent += connection.flush();
+            }
+            if (key.isReadable()) {
+                if (connection.channel.read(connection.in) < 0) {
+                    disconnect(connection);
+                    return;
+                }
+                readFrames(connection);
+            }
+        } catch (IOException | RuntimeException e) {
+            disconnect(connection);
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = server.accept();
+            if (channel == null) return;
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            if (SEND_BUFFER > 0) {
+                channel.socket().setSendBufferSize(SEND_BUFFER);
+            }
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Connection connection = new Connection(channel, key);
+            key.attach(connection);
+            connections.add(connection);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Handles every complete frame received so far
+    private void readFrames(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= 2 && in.remaining() >= 2 + (in.getShort(in.position()) & 0xFFFF)) {
+            int length = in.getShort() & 0xFFFF;
+            int end = in.position() + length;
+            byte type = in.get();
+            if (type == JOIN) {
+                join(connection, in.getInt(), in.get());
+            } else if (type == INPUT) {
+                byte action = in.get();
+                int tick = in.getInt();
+                if (connection.room != null) connection.room.input(connection, tick, action);
+            } else {
+                throw new IOException("Unknown frame: " + type);
+            }
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    private void join(Connection connection, int roomId, int role) throws IOException {
+        if (connection.room != null) {
+            leave(connection);
+        }
+        Room room = rooms.computeIfAbsent(roomId, id -> new Room(id, level, nextSeed++));
+        int granted = room.join(connection, role);
+
+        reply.clear();
+        beginFrame(reply, WELCOME);
+        reply.putInt(roomId);
+        reply.put((byte) granted);
+        byte[] name = level.getName().getBytes(StandardCharsets.UTF_8);
+        reply.putShort((short) name.length);
+        reply.put(name);
+        endFrame(reply);
+        connection.send(reply);
+        bytesSent += connection.flush();
+    }
+
+    private void leave(Connection connection) {
+        Room room = connection.room;
+        room.leave(connection);
+        if (room.connections.isEmpty()) {
+            rooms.remove(room.id);
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        if (connection.room != null) {
+            leave(connection);
+        }
+        connections.remove(connection);
+        connection.clear();
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Frames are written by reserving their length, then filling it in when they are complete (the buffer is then flipped)
+    static void beginFrame(ByteBuffer buffer, byte type) {
+        buffer.putShort((short) 0);
+        buffer.put(type);
+    }
+
+    static void endFrame(ByteBuffer buffer) {
+        buffer.putShort(0, (short) (buffer.position() - 2));
+        buffer.flip();
+    }
+
+    // Stops the ticks and waits for the server's thread; what the clients were sent is still written to them
+    public void stop() {
+        if (!running) return;
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int i = 0; i < connections.size(); i++) {
+            try {
+                bytesSent += connections.get(i).flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stop();
+        for (Connection connection : new ArrayList<>(connections)) {
+            disconnect(connection);
+        }
+        server.close();
+        selector.close();
+    }
+
+    // Only once the server is stopped (its thread is the only one using the rooms)
+    Map<Integer, Room> getRooms() {
+        return rooms;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    // Time spent on a room during a tick, in microseconds: playing the tick, encoding and writing the frames
+    public double getMicrosPerRoomTick() {
+        return roomTicks == 0 ? 0 : tickWorkNanos / 1000.0 / roomTicks;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    // Bytes sent to a client of a room per tick, on average
+    public double getBytesPerClientTick() {
+        return clientTicks == 0 ? 0 : (double) bytesSent / clientTicks;
+    }
+
+    // Frames encoded per room and tick: one delta, plus a keyframe when some clients need one, however many clients there are
+    public double getFramesPerRoomTick() {
+        return roomTicks == 0 ? 0 : (double) framesEncoded / roomTicks;
+    }
+
+    // Ticks played again per room and tick, because inputs arrived after the tick they were meant for
+    public double getResimulatedTicksPerRoomTick() {
+        return roomTicks == 0 ? 0 : (double) resimulatedTicks / roomTicks;
+    }
+
+    public String getStats() {
+        return String.format("%d ticks (%d late), %d rooms, %d clients, %.1f us per room and tick, %.2f frames encoded per room and tick, %.1f bytes per client and tick, %.2f ticks played again per room and tick",
+                ticks, lateTicks, roomCount, clientCount, getMicrosPerRoomTick(), getFramesPerRoomTick(), getBytesPerClientTick(), getResimulatedTicksPerRoomTick());
+    }
+}
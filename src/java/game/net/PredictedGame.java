@@ -0,0 +1,155 @@
+package game.net;
+
+import game.Game;
+import game.GameSnapshot;
+import game.Level;
+import game.agent.Agent;
+import game.entities.ghosts.Ghost;
+import game.ghostStrategies.PlayerGhostStrategy;
+
+import java.io.IOException;
+
+// Game of a player, played on the client ahead of the server so that his inputs take effect at once, as in a local game.
+// The game is deterministic: a local copy of it, put in the states the server sends, plays the same ticks as the server
+// with the same inputs. It is played a few ticks ahead of the last state received (the time the inputs take to reach
+// the server), and every input is sent with the tick it was played at, which is the tick the server applies it at
+// (see Room). When a state of the server arrives, it is compared to the state that was predicted for its tick:
+// if they differ (another player's input, or an input of this player that arrived too late), the local game goes back
+// to the server's state and plays the ticks since then again (see RollbackSimulation); otherwise nothing is done.
+// The other players are predicted to do nothing new: the ghosts controlled by other players keep their strategy.
+// -Dpacman.net.leadTicks: ticks played ahead of the last state received, which must cover the round trip to the server
+// (the state comes to the client, then the input goes to the server): 6 by default, for up to 100ms at 60 ticks per second.
+// With less, the inputs reach the server late: it still applies them at their tick (see Room), but the states it sent
+// in the meantime don't have them, and the client corrects its game with them before it gets the next ones.
+public class PredictedGame {
+    private static final int LEAD_TICKS = Integer.getInteger("pacman.net.leadTicks", 6);
+    private static final int HISTORY_TICKS = 64; // Ticks kept to be played again (about one second)
+
+    private final GameClient client;
+    private final int leadTicks;
+    private Level level;
+    private Game game;
+    private RollbackSimulation simulation;
+    private PlayerGhostStrategy ghostControl; // Strategy of the ghost of the player, if he plays a ghost
+    private long gamesOver = 0;
+    private int sentAction = -1;
+
+    // Statistics
+    private long predictedTicks = 0;
+    private long statesReceived = 0;
+    private long resets = 0; // New games, and states that were too old or ahead of the prediction
+
+    public PredictedGame(GameClient client) {
+        this(client, LEAD_TICKS);
+    }
+
+    public PredictedGame(GameClient client, int leadTicks) {
+        this.client = client;
+        this.leadTicks = leadTicks;
+    }
+
+    // Local tick, at the tick rate of the server: handles the states received, then plays a tick ahead with the action
+    // of the player (one of the Agent actions), which is sent to the server if it changed. Until the first state of
+    // the server arrives, there is nothing to predict from. Returns false once the server closed the connection.
+    public boolean tick(int action) throws IOException {
+        int received = client.poll();
+        if (received < 0) return false;
+        if (!client.hasState()) return true;
+        GameSnapshot state = client.getState();
+        if (game == null || level != state.getLevel()) {
+            start(state);
+        } else if (client.getGamesOver() != gamesOver) {
+            // The server started a new game
+            gamesOver = client.getGamesOver();
+            simulation.reset(state);
+            resets++;
+        } else if (received > 0) {
+            statesReceived++;
+            long before = simulation.getRollbacks() + simulation.getConfirmedStates();
+            simulation.rebase(state);
+            if (simulation.getRollbacks() + simulation.getConfirmedStates() == before) {
+                resets++;
+            }
+        }
+
+        // The game is kept leadTicks ahead of the server: it waits when it is too far ahead (the server is late),
+        // and catches up at once when it is behind (e.g. at the start)
+        long target = state.getTick() + leadTicks;
+        if (simulation.getTick() > target + leadTicks) return true;
+        do {
+            if (action != sentAction) {
+                client.sendInput(action, simulation.getTick());
+                simulation.input(0, simulation.getTick(), action);
+                sentAction = action;
+            }
+            simulation.advance();
+            predictedTicks++;
+        } while (simulation.getTick() < target);
+        return true;
+    }
+
+    private void start(GameSnapshot state) {
+        level = state.getLevel();
+        game = new Game(level, 0, true);
+        int role = client.getRole();
+        if (role > 0) {
+            Ghost ghost = game.getGhosts().get(role - 1);
+            ghostControl = new PlayerGhostStrategy(ghost);
+            ghost.setStrategy(ghostControl);
+        }
+        simulation = new RollbackSimulation(game, 1, HISTORY_TICKS, this::applyInput);
+        simulation.reset(state);
+        gamesOver = client.getGamesOver();
+    }
+
+    private void applyInput(Game game, int slot, int action) {
+        int role = client.getRole();
+        if (role == GameServer.PACMAN) {
+            game.input(action);
+        } else if (role > 0) {
+            ghostControl.setAction(action);
+        } else {
+            game.input(Agent.NONE);
+        }
+    }
+
+    // Local game, in the predicted state (e.g. to render it); null until the first state of the server arrives
+    public Game getGame() {
+        return game;
+    }
+
+    public GameClient getClient() {
+        return client;
+    }
+
+    // Tick of the predicted state
+    public long getTick() {
+        return simulation == null ? 0 : simulation.getTick();
+    }
+
+    public long getPredictedTicks() {
+        return predictedTicks;
+    }
+
+    public long getStatesReceived() {
+        return statesReceived;
+    }
+
+    // States of the server that were not the one predicted for their tick
+    public long getCorrections() {
+        return simulation == null ? 0 : simulation.getRollbacks();
+    }
+
+    // States of the server that were the one predicted
+    public long getConfirmations() {
+        return simulation == null ? 0 : simulation.getConfirmedStates();
+    }
+
+    public long getResimulatedTicks() {
+        return simulation == null ? 0 : simulation.getResimulatedTicks();
+    }
+
+    public long getResets() {
+        return resets;
+    }
+}
@@ -0,0 +1,240 @@
+package game.net;
+
+import game.Game;
+import game.GameSnapshot;
+import game.pathfinding.AsyncPlanner;
+
+// Game played tick by tick with the inputs of several players (slots), keeping the state before each of the last ticks
+// (a ring of copy-on-write snapshots) and the action each slot had at that tick. An input that arrives late, for a tick
+// that was already played, or a state that doesn't match what was played, doesn't have to wait for the next tick:
+// the game goes back to that tick and plays the ticks since then again, headless and as fast as Game.update() goes.
+// - on the server (see Room), an input is applied at the tick the player meant it for, so a turn that arrives late
+//   still takes the junction the player saw on his screen (Pacman only turns when he is on the grid)
+// - on a client (see PredictedGame), the game is played ahead of the server with the player's inputs, and only goes back
+//   when a state of the server shows that the prediction was wrong (e.g. a ghost controlled by another player turned)
+// An input holds until the next one of the same slot (like a key held down).
+public final class RollbackSimulation {
+    // Applies the action of a slot to the game before a tick (e.g. Game.input() for Pacman)
+    public interface Controls {
+        void apply(Game game, int slot, int action);
+    }
+
+    private final Game game;
+    private final Controls controls;
+    private final int capacity;
+    private final GameSnapshot[] states; // [t % capacity]: state of the game at the tick t, before its inputs
+    private final int[][] actions; // [slot][t % capacity]: action of the slot at the tick t
+    private final int[] held; // Action of each slot for the next ticks
+    private final long[] heldSince; // Tick of the input that gave the held action
+    private final long[][] pending; // Inputs for ticks not played yet, in order: tick << 8 | action
+    private final int[] pendingCount;
+    private final GameSnapshot current = new GameSnapshot(true); // State of the game, to compare it with a state of the server
+
+    private long tick; // Tick of the game (see Game.getTick())
+    private long firstTick; // First tick of the ring (the game was started or reset at that tick)
+    private long rollbackFrom = Long.MAX_VALUE; // First tick whose inputs changed since it was played
+
+    // Statistics
+    private long rollbacks = 0;
+    private long resimulatedTicks = 0;
+    private long lateInputs = 0; // Inputs for a tick that is no longer in the ring, played at the oldest one instead
+    private long confirmedStates = 0; // States of the server that were what had been predicted
+
+    // Keeps the last capacity - 1 ticks: an input can be applied that many ticks late
+    public RollbackSimulation(Game game, int slots, int capacity, Controls controls) {
+        AsyncPlanner.requireDisabled("The rollback");
+        this.game = game;
+        this.controls = controls;
+        this.capacity = Math.max(1, capacity);
+        states = new GameSnapshot[this.capacity];
+        for (int i = 0; i < this.capacity; i++) {
+            states[i] = new GameSnapshot(true);
+        }
+        actions = new int[slots][this.capacity];
+        held = new int[slots];
+        heldSince = new long[slots];
+        pending = new long[slots][this.capacity];
+        pendingCount = new int[slots];
+        tick = firstTick = currentTick();
+    }
+
+    private long currentTick() {
+        return game.save(states[0]).getTick();
+    }
+
+    private int index(long t) {
+        return (int) (t % capacity);
+    }
+
+    // Oldest tick the game can go back to
+    private long oldestTick() {
+        return Math.max(firstTick, tick - capacity + 1);
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getHeldAction(int slot) {
+        return held[slot];
+    }
+
+    // Action of a slot from a tick on (-1 for the next tick played). A tick already played is played again at the next
+    // reconcile() (or at the oldest tick kept if it is too old); a tick too far ahead is taken as the next tick.
+    public void input(int slot, long atTick, int action) {
+        if (atTick < 0 || atTick > tick + capacity) {
+            atTick = tick;
+        }
+        if (atTick >= tick) {
+            schedule(slot, atTick, action);
+            return;
+        }
+        if (atTick < oldestTick()) {
+            atTick = oldestTick();
+            lateInputs++;
+        }
+        if (atTick < heldSince[slot]) return; // Older than the input already played
+
+        held[slot] = action;
+        heldSince[slot] = atTick;
+        for (long t = atTick; t < tick; t++) {
+            int i = index(t);
+            if (actions[slot][i] != action) {
+                actions[slot][i] = action;
+                rollbackFrom = Math.min(rollbackFrom, t);
+            }
+        }
+    }
+
+    private void schedule(int slot, long atTick, int action) {
+        long[] inputs = pending[slot];
+        int count = pendingCount[slot];
+        if (count == inputs.length) {
+            // Too many inputs ahead: the oldest one is played at once
+            System.arraycopy(inputs, 1, inputs, 0, --count);
+        }
+        // Inputs usually arrive in order: the new one goes at the end, after the ones for the same tick
+        int i = count;
+        while (i > 0 && (inputs[i - 1] >> 8) > atTick) {
+            inputs[i] = inputs[i - 1];
+            i--;
+        }
+        inputs[i] = atTick << 8 | (action & 0xFF);
+        pendingCount[slot] = count + 1;
+    }
+
+    // Plays the next tick with the action each slot holds (or the one it asked for at that tick)
+    public void advance() {
+        int i = index(tick);
+        states[i] = game.save(states[i]);
+        for (int slot = 0; slot < held.length; slot++) {
+            long[] inputs = pending[slot];
+            int count = pendingCount[slot];
+            int played = 0;
+            while (played < count && (inputs[played] >> 8) <= tick) {
+                held[slot] = (int) (inputs[played] & 0xFF);
+                heldSince[slot] = tick;
+                played++;
+            }
+            if (played > 0) {
+                System.arraycopy(inputs, played, inputs, 0, count - played);
+                pendingCount[slot] = count - played;
+            }
+            actions[slot][i] = held[slot];
+            controls.apply(game, slot, held[slot]);
+        }
+        game.update();
+        tick++;
+    }
+
+    // Goes back to the first tick whose inputs changed since it was played, and plays the ticks since then again;
+    // returns the number of ticks played again
+    public int reconcile() {
+        if (rollbackFrom >= tick) {
+            rollbackFrom = Long.MAX_VALUE;
+            return 0;
+        }
+        long target = tick;
+        game.restore(states[index(rollbackFrom)]);
+        tick = rollbackFrom;
+        rollbacks++;
+        return resimulate(target);
+    }
+
+    // Puts the game in a state of the server. If it is the state that was predicted for its tick, nothing changes;
+    // otherwise the game goes back to it and plays the ticks since then again with the inputs it had (returns the number
+    // of ticks played again). A state from before the ring or from ahead of the game (e.g. the game restarted) resets the game.
+    public int rebase(GameSnapshot state) {
+        long stateTick = state.getTick();
+        if (stateTick == tick) {
+            if (game.save(current).sameState(state)) {
+                confirmedStates++;
+            } else {
+                game.restore(state);
+                rollbacks++;
+            }
+            return 0;
+        }
+        if (stateTick < oldestTick() || stateTick > tick) {
+            reset(state);
+            return 0;
+        }
+        if (states[index(stateTick)].sameState(state)) {
+            confirmedStates++;
+            return 0;
+        }
+        long target = tick;
+        game.restore(state);
+        tick = stateTick;
+        rollbacks++;
+        return resimulate(target);
+    }
+
+    // Starts again from a state, forgetting the ticks played before it and the inputs ahead (the actions held are kept)
+    public void reset(GameSnapshot state) {
+        game.restore(state);
+        tick = firstTick = state.getTick();
+        rollbackFrom = Long.MAX_VALUE;
+        for (int slot = 0; slot < held.length; slot++) {
+            heldSince[slot] = Math.min(heldSince[slot], tick);
+            pendingCount[slot] = 0;
+        }
+    }
+
+    private int resimulate(long target) {
+        int played = 0;
+        while (tick < target) {
+            int i = index(tick);
+            states[i] = game.save(states[i]);
+            for (int slot = 0; slot < held.length; slot++) {
+                controls.apply(game, slot, actions[slot][i]);
+            }
+            game.update();
+            tick++;
+            played++;
+        }
+        rollbackFrom = Long.MAX_VALUE;
+        resimulatedTicks += played;
+        return played;
+    }
+
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    public long getResimulatedTicks() {
+        return resimulatedTicks;
+    }
+
+    public long getLateInputs() {
+        return lateInputs;
+    }
+
+    public long getConfirmedStates() {
+        return confirmedStates;
+    }
+}
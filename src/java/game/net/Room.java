@@ -0,0 +1,187 @@
+package game.net;
+
+import game.Game;
+import game.GameSnapshot;
+import game.Level;
+import game.agent.Agent;
+import game.entities.ghosts.Ghost;
+import game.ghostStrategies.IGhostStrategy;
+import game.ghostStrategies.PlayerGhostStrategy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Game played by the clients of a room: one of them may control Pacman and others the ghosts (the ghosts nobody
+// controls keep their strategy), and everyone in the room (players and spectators) receives the state of the game after
+// each tick. The frames of a tick are encoded once and shared by every client (see Frame), so the cost of a room
+// doesn't grow with its spectators, apart from the writes to their sockets.
+// The inputs of the players are applied at the tick they were meant for (see RollbackSimulation), up to
+// -Dpacman.server.rollbackTicks ticks late (8 by default, about 130ms at 60 ticks per second; 0 applies them when they arrive).
+final class Room {
+    private static final int ROLLBACK_TICKS = Integer.getInteger("pacman.server.rollbackTicks", 8);
+
+    final int id;
+    private final Level level;
+    private long seed;
+    private Game game;
+    private RollbackSimulation simulation;
+
+    final List<Connection> connections = new ArrayList<>();
+    private final Connection[] players; // [0] is Pacman, [1 + i] is the ghost i
+    private final PlayerGhostStrategy[] playerStrategies;
+    private final IGhostStrategy[] ghostStrategies; // Strategies of the ghosts when nobody controls them
+
+    private GameSnapshot last = new GameSnapshot(); // State the clients have
+    private GameSnapshot next = new GameSnapshot();
+    private final ArrayDeque<Frame> framePool = new ArrayDeque<>();
+    int resimulatedTicks = 0; // Ticks played again during the last tick, for the inputs that arrived late
+
+    Room(int id, Level level, long seed) {
+        this.id = id;
+        this.level = level;
+        this.seed = seed;
+        int ghostCount = 0;
+        for (int[] spawn : level.getSpawns()) {
+            if (spawn[0] != 'P') ghostCount++;
+        }
+        players = new Connection[1 + ghostCount];
+        playerStrategies = new PlayerGhostStrategy[ghostCount];
+        ghostStrategies = new IGhostStrategy[ghostCount];
+        start();
+    }
+
+    private void start() {
+        game = new Game(level, seed++);
+        List<Ghost> ghosts = game.getGhosts();
+        for (int i = 0; i < ghosts.size(); i++) {
+            ghostStrategies[i] = ghosts.get(i).getStrategy();
+            playerStrategies[i] = new PlayerGhostStrategy(ghosts.get(i));
+            if (players[1 + i] != null) {
+                ghosts.get(i).setStrategy(playerStrategies[i]);
+            }
+        }
+        // The players keep their actions from one game to the next (they are only sent when they change)
+        RollbackSimulation previous = simulation;
+        simulation = new RollbackSimulation(game, players.length, ROLLBACK_TICKS + 1, this::applyInput);
+        for (int slot = 0; previous != null && slot < players.length; slot++) {
+            simulation.input(slot, -1, previous.getHeldAction(slot));
+        }
+        last = game.save(last);
+        for (Connection connection : connections) {
+            connection.needsKeyframe = true;
+        }
+    }
+
+    // Returns the role the client got: the one it asked for if it is free, otherwise it only watches the game
+    int join(Connection connection, int role) {
+        connections.add(connection);
+        connection.room = this;
+        connection.needsKeyframe = true;
+        if (role < 0 || role >= players.length || players[role] != null) {
+            connection.role = GameServer.SPECTATOR;
+            return connection.role;
+        }
+        players[role] = connection;
+        simulation.input(role, -1, Agent.NONE);
+        if (role > 0) {
+            game.getGhosts().get(role - 1).setStrategy(playerStrategies[role - 1]);
+        }
+        connection.role = role;
+        return role;
+    }
+
+    void leave(Connection connection) {
+        connections.remove(connection);
+        connection.dropFrames();
+        connection.room = null;
+        int role = connection.role;
+        if (role >= 0 && players[role] == connection) {
+            players[role] = null;
+            simulation.input(role, -1, Agent.NONE);
+            if (role > 0) {
+                game.getGhosts().get(role - 1).setStrategy(ghostStrategies[role - 1]);
+            }
+        }
+    }
+
+    // Action of a player from a tick on (-1 for the next tick)
+    void input(Connection connection, int tick, int action) {
+        if (connection.role >= 0 && players[connection.role] == connection) {
+            simulation.input(connection.role, tick, action);
+        }
+    }
+
+    private void applyInput(Game game, int slot, int action) {
+        if (slot == GameServer.PACMAN) {
+            game.input(action);
+        } else {
+            playerStrategies[slot - 1].setAction(action);
+        }
+    }
+
+    // Plays the ticks again from the first late input if there was one, then plays a tick and publishes its delta
+    // (and a keyframe if a client needs one) to every client of the room; a finished game is announced and restarted.
+    // Returns the number of frames encoded, whatever the number of clients.
+    int tick() {
+        resimulatedTicks = simulation.reconcile();
+        simulation.advance();
+        next = game.save(next);
+
+        int encoded = 0;
+        Frame delta = Frame.acquire(framePool, false);
+        GameServer.beginFrame(delta.buffer, GameServer.DELTA);
+        if (StateCodec.writeDelta(delta.buffer, last, next)) {
+            GameServer.endFrame(delta.buffer);
+            encoded++;
+        } else {
+            delta.release();
+            delta = null;
+        }
+        Frame keyframe = null;
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            if (connection.needsKeyframe || delta == null) {
+                if (keyframe == null) {
+                    keyframe = Frame.acquire(framePool, true);
+                    GameServer.beginFrame(keyframe.buffer, GameServer.KEYFRAME);
+                    StateCodec.writeKeyframe(keyframe.buffer, next);
+                    GameServer.endFrame(keyframe.buffer);
+                    encoded++;
+                }
+                connection.offer(keyframe);
+            } else {
+                connection.offer(delta);
+            }
+        }
+        if (delta != null) delta.release();
+        if (keyframe != null) keyframe.release();
+        GameSnapshot sent = last;
+        last = next;
+        next = sent;
+
+        if (game.isOver()) {
+            Frame gameOver = Frame.acquire(framePool, false);
+            GameServer.beginFrame(gameOver.buffer, GameServer.GAME_OVER);
+            gameOver.buffer.putInt(game.getScore());
+            gameOver.buffer.put((byte) (game.getCaughtBy() == null ? -1 : game.getGhosts().indexOf(game.getCaughtBy())));
+            GameServer.endFrame(gameOver.buffer);
+            for (int i = 0; i < connections.size(); i++) {
+                connections.get(i).offer(gameOver);
+            }
+            gameOver.release();
+            encoded++;
+            start();
+        }
+        return encoded;
+    }
+
+    // State the clients of the room have after the last tick
+    GameSnapshot getState() {
+        return last;
+    }
+
+    Level getLevel() {
+        return level;
+    }
+}
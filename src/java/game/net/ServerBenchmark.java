@@ -0,0 +1,93 @@
+package game.net;
+
+import game.Game;
+import game.GameSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// Load test of the game server over loopback: a server is started in the process, and clients join a number of rooms
+// (a Pacman, some ghost players and some spectators per room) and send random inputs for a while. One spectator out of
+// four stops reading during the first half of the run (with -Dpacman.server.sendBuffer=<small size>, it falls behind and
+// has to skip to a keyframe). When the server is stopped, the state rebuilt by every client from the frames it received
+// must be exactly the state of its room on the server.
+// Usage: java game.net.ServerBenchmark [rooms] [seconds] [ghostPlayers] [spectators] [ticksPerSecond]
+public class ServerBenchmark {
+    public static void main(String[] args) throws Exception {
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int ghostPlayers = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int spectators = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int ticksPerSecond = args.length > 4 ? Integer.parseInt(args[4]) : 60;
+
+        GameServer server = new GameServer(Game.DEFAULT_LEVEL, ticksPerSecond, 0);
+        server.start();
+        List<GameClient> clients = new ArrayList<>();
+        Set<GameClient> slow = new HashSet<>();
+        for (int room = 0; room < roomCount; room++) {
+            for (int role = 0; role <= ghostPlayers; role++) {
+                GameClient client = new GameClient(server.getPort());
+                client.join(room, role);
+                clients.add(client);
+            }
+            for (int i = 0; i < spectators; i++) {
+                GameClient client = new GameClient(server.getPort());
+                client.join(room, GameServer.SPECTATOR);
+                clients.add(client);
+                if (i % 4 == 3) slow.add(client);
+            }
+        }
+
+        // Each client changes its input every half second or so
+        Random random = new Random(1);
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            boolean firstHalf = System.nanoTime() < start + (end - start) / 2;
+            for (GameClient client : clients) {
+                if (firstHalf && slow.contains(client)) continue;
+                client.poll();
+                if (client.getRole() != GameServer.SPECTATOR && random.nextInt(30 * clients.size()) == 0) {
+                    client.sendInput(1 + random.nextInt(4));
+                }
+            }
+            Thread.sleep(1);
+        }
+
+        server.stop();
+        Map<Integer, GameSnapshot> serverStates = new HashMap<>();
+        for (Room room : server.getRooms().values()) {
+            serverStates.put(room.id, room.getState());
+        }
+        System.out.println(server.getStats());
+        server.close();
+
+        int inSync = 0;
+        long keyframes = 0;
+        long deltas = 0;
+        long gamesOver = 0;
+        for (GameClient client : clients) {
+            while (client.poll() >= 0) {
+                Thread.yield();
+            }
+            GameSnapshot expected = serverStates.get(client.getRoom());
+            GameSnapshot received = client.getState();
+            if (expected != null && client.hasState() && expected.sameState(received)) {
+                inSync++;
+            }
+            keyframes += client.getKeyframes();
+            deltas += client.getDeltas();
+            gamesOver += client.getGamesOver();
+            client.close();
+        }
+        System.out.printf("%d clients in %d rooms: %d in sync with the server, %d keyframes, %d deltas, %d games over%n",
+                clients.size(), roomCount, inSync, keyframes, deltas, gamesOver);
+        System.out.printf("%.1f bytes per client and tick, %.1f us per room and tick on the server%n",
+                server.getBytesPerClientTick(), server.getMicrosPerRoomTick());
+    }
+}
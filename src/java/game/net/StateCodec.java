@@ -0,0 +1,148 @@
+package game.net;
+
+import game.GameSnapshot;
+import game.Level;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+// Binary form of the game states sent by the server (see GameServer), built on the snapshots of the games.
+// A keyframe is a whole snapshot; a delta only has what changed since the previous state the client has:
+// the ints of the snapshot that changed (mostly positions, ghost states and timers) and the Pac-Gums that were eaten.
+// Numbers are written as varints, and the changes as gaps from the previous change, so a tick usually fits in a few dozen bytes.
+//
+//   keyframe: size (varint), the ints of the snapshot (zigzag varints), number of Pac-Gum words (varint), the words (longs)
+//   delta:    number of changed ints (varint), then for each one the gap from the previous index (varint) and the
+//             difference with the previous value (zigzag varint); number of flipped Pac-Gums (varint), then their gaps
+public final class StateCodec {
+    private StateCodec() {}
+
+    // Upper bound of the size of a keyframe of a state
+    public static int maxKeyframeSize(GameSnapshot state) {
+        return 5 + 5 * state.getSize() + 5 + 8 * state.getEatenPacGums().length;
+    }
+
+    public static void writeKeyframe(ByteBuffer out, GameSnapshot state) {
+        int[] data = state.getData();
+        putVarint(out, state.getSize());
+        for (int i = 0; i < state.getSize(); i++) {
+            putVarint(out, zigzag(data[i]));
+        }
+        long[] pacGums = state.getEatenPacGums();
+        putVarint(out, pacGums.length);
+        for (long word : pacGums) {
+            out.putLong(word);
+        }
+    }
+
+    public static void readKeyframe(ByteBuffer in, Level level, GameSnapshot state) {
+        int size = getVarint(in);
+        state.prepare(level, size);
+        int[] data = state.getData();
+        for (int i = 0; i < size; i++) {
+            data[i] = unzigzag(getVarint(in));
+        }
+        long[] pacGums = state.getEatenPacGums();
+        int words = getVarint(in);
+        for (int i = 0; i < words; i++) {
+            pacGums[i] = in.getLong();
+        }
+    }
+
+    // Moves past a keyframe without reading it into a snapshot
+    public static void skipKeyframe(ByteBuffer in) {
+        int size = getVarint(in);
+        for (int i = 0; i < size; i++) {
+            getVarint(in);
+        }
+        int words = getVarint(in);
+        if (in.remaining() < 8 * words) throw new BufferUnderflowException();
+        in.position(in.position() + 8 * words);
+    }
+
+    // Changes from one state to the next one of the same game (false if they can't be written as a delta, e.g. after
+    // the game restarted on another level: a keyframe must be sent instead)
+    public static boolean writeDelta(ByteBuffer out, GameSnapshot from, GameSnapshot to) {
+        if (from.isEmpty() || from.getLevel() != to.getLevel() || from.getSize() != to.getSize()) return false;
+        int[] a = from.getData();
+        int[] b = to.getData();
+        int changed = 0;
+        for (int i = 0; i < to.getSize(); i++) {
+            if (a[i] != b[i]) changed++;
+        }
+        putVarint(out, changed);
+        int previous = 0;
+        for (int i = 0; i < to.getSize(); i++) {
+            if (a[i] != b[i]) {
+                putVarint(out, i - previous);
+                putVarint(out, zigzag(b[i] - a[i]));
+                previous = i;
+            }
+        }
+
+        long[] eatenBefore = from.getEatenPacGums();
+        long[] eatenAfter = to.getEatenPacGums();
+        int flipped = 0;
+        for (int w = 0; w < eatenAfter.length; w++) {
+            flipped += Long.bitCount(eatenBefore[w] ^ eatenAfter[w]);
+        }
+        putVarint(out, flipped);
+        previous = 0;
+        for (int w = 0; w < eatenAfter.length; w++) {
+            long flips = eatenBefore[w] ^ eatenAfter[w];
+            while (flips != 0) {
+                int pacGum = w * 64 + Long.numberOfTrailingZeros(flips);
+                putVarint(out, pacGum - previous);
+                previous = pacGum;
+                flips &= flips - 1;
+            }
+        }
+        return true;
+    }
+
+    // Applies a delta to the state it was computed from
+    public static void readDelta(ByteBuffer in, GameSnapshot state) {
+        int[] data = state.getData();
+        int changed = getVarint(in);
+        int index = 0;
+        for (int i = 0; i < changed; i++) {
+            index += getVarint(in);
+            data[index] += unzigzag(getVarint(in));
+        }
+        long[] pacGums = state.getEatenPacGums();
+        int flipped = getVarint(in);
+        int pacGum = 0;
+        for (int i = 0; i < flipped; i++) {
+            pacGum += getVarint(in);
+            pacGums[pacGum >> 6] ^= 1L << pacGum;
+        }
+    }
+
+    public static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static int getVarint(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    public static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    public static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
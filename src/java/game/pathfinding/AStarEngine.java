@@ -0,0 +1,76 @@
+package game.pathfinding;
+
+// A* search with the Manhattan distance as heuristic (admissible and consistent on a 4-directional grid).
+// Ties between equal f are broken in favor of the largest g, which avoids expanding whole plateaus of equal cost.
+public class AStarEngine extends GridSearchEngine {
+    private final IntMinHeap openSet = new IntMinHeap();
+    private int[] gScore = new int[0];
+    private int[] gStamp = new int[0]; // gScore[tile] is only valid if gStamp[tile] == stamp
+    private int gStampValue = 0;
+
+    @Override
+    public String getName() {
+        return "A*";
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        stats.begin(getName());
+        prepare(grid);
+        if (gScore.length < grid.size()) {
+            gScore = new int[grid.size()];
+            gStamp = new int[grid.size()];
+            gStampValue = 0;
+        }
+        gStampValue = nextStamp(gStamp, gStampValue);
+        openSet.clear();
+        int cols = grid.getCols();
+
+        setG(start, 0);
+        parent[start] = -1;
+        openSet.add(key(grid.manhattan(start, goal), 0), start);
+
+        boolean found = false;
+        while (!openSet.isEmpty()) {
+            int current = openSet.poll();
+            if (isVisited(current)) continue; // Already closed with a better cost
+            visitStamp[current] = stamp;
+            stats.expand(openSet.size() + 1);
+
+            if (current == goal) {
+                found = true;
+                break;
+            }
+
+            int x = current % cols;
+            int y = current / cols;
+            int g = gScore[current] + 1;
+            if (grid.isWalkable(x + 1, y)) relax(grid, current, current + 1, g, goal);
+            if (grid.isWalkable(x - 1, y)) relax(grid, current, current - 1, g, goal);
+            if (grid.isWalkable(x, y + 1)) relax(grid, current, current + cols, g, goal);
+            if (grid.isWalkable(x, y - 1)) relax(grid, current, current - cols, g, goal);
+        }
+
+        int next = found ? buildPath(grid, start, goal) : -1;
+        report(grid, stats);
+        return next;
+    }
+
+    private void relax(TileGrid grid, int from, int tile, int g, int goal) {
+        if (isVisited(tile)) return;
+        if (gStamp[tile] == gStampValue && gScore[tile] <= g) return;
+        setG(tile, g);
+        parent[tile] = from;
+        openSet.add(key(g + grid.manhattan(tile, goal), g), tile);
+    }
+
+    private void setG(int tile, int g) {
+        gScore[tile] = g;
+        gStamp[tile] = gStampValue;
+    }
+
+    // Orders by f, then by largest g
+    private static long key(int f, int g) {
+        return ((long) f << 32) - g;
+    }
+}
@@ -0,0 +1,190 @@
+package game.pathfinding;
+
+// Pathfinder choosing, for each query, the back end that should answer it the fastest.
+// The cost of each back end is learned online: a moving average of its time per tile of distance, kept separately
+// for short, medium and long queries (the detours of the maze show up as a higher cost per tile).
+// Each back end is first tried a few times, then the cheapest is used, with a periodic query given to another back end
+// so the estimates follow the maze and the load. A back end that already has the answer precomputed is always preferred.
+// The estimates are reset when the grid changes.
+// The statistics of the maze decide which back ends are worth trying: on an open level (see TileGrid.getOpenRatio())
+// the back ends that expand the whole space around start (BFS, A*, the table) cost up to a thousand times more than the
+// jump points, so a single query given to them is a spike; there only the jump point back ends are tried and chosen.
+// In a maze of corridors the costs are close, and every back end is measured.
+// The back ends don't break the ties between paths of the same length the same way, so the step returned is always the
+// first neighbor of start on a shortest path, in the order of the searches (right, left, down, up), as the canonical
+// back ends (see PathfindingEngine.isCanonical()) do: the answer doesn't depend on the back end chosen (the timings),
+// and a game plays the same again. For the other back ends, the neighbors that come before the step they found are checked:
+// with the distance table if the goal has a row, else with a search from the neighbor. That time is part of the cost
+// of the back end, so the back ends that often need it are chosen less.
+public class AdaptivePathfinder implements PathfindingEngine {
+    private static final int DISTANCE_BUCKETS = 3; // < 8 tiles, < 32 tiles, further
+    private static final int WARMUP_QUERIES = 3;
+    private static final int EXPLORE_PERIOD = 32;
+    private static final double SMOOTHING = 0.2;
+    private static final double OPEN_LEVEL = 0.5; // Open ratio above which only the jump point back ends are used
+
+    private final PathfindingEngine[] backends;
+    private final boolean[] jumpsOpenSpace; // Back ends that cross the open space without expanding it (jump points)
+    private final boolean anyJumpsOpenSpace;
+    private final double[][] nanosPerTile;
+    private final int[][] samples;
+    private final PathfindingStats probe = new PathfindingStats(); // Searches from the neighbors of start
+    private final int[] candidates = new int[4];
+    private final boolean[] joinsPath = new boolean[4];
+    private long queries = 0;
+    private TileGrid lastGrid;
+    private String lastChoice = "";
+
+    public AdaptivePathfinder(PathfindingEngine... backends) {
+        this.backends = backends;
+        this.jumpsOpenSpace = new boolean[backends.length];
+        boolean any = false;
+        for (int i = 0; i < backends.length; i++) {
+            jumpsOpenSpace[i] = backends[i] instanceof JumpPointEngine || backends[i] instanceof JumpPointPlusEngine;
+            any |= jumpsOpenSpace[i];
+        }
+        this.anyJumpsOpenSpace = any;
+        this.nanosPerTile = new double[DISTANCE_BUCKETS][backends.length];
+        this.samples = new int[DISTANCE_BUCKETS][backends.length];
+    }
+
+    // Every back end of the package
+    public static AdaptivePathfinder withAllBackends() {
+        return new AdaptivePathfinder(new BfsEngine(), new AStarEngine(), new BidirectionalBfsEngine(),
+                new JumpPointEngine(), new JumpPointPlusEngine(), new DistanceTableEngine());
+    }
+
+    @Override
+    public String getName() {
+        return "Adaptive";
+    }
+
+    @Override
+    public boolean isCanonical() {
+        return true;
+    }
+
+    public String getLastChoice() {
+        return lastChoice;
+    }
+
+    @Override
+    public boolean isPrecomputed(TileGrid grid, int goal) {
+        for (PathfindingEngine backend : backends) {
+            if (backend.isPrecomputed(grid, goal)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        if (grid != lastGrid) {
+            for (int b = 0; b < DISTANCE_BUCKETS; b++) {
+                java.util.Arrays.fill(nanosPerTile[b], 0);
+                java.util.Arrays.fill(samples[b], 0);
+            }
+            lastGrid = grid;
+        }
+        int distance = grid.manhattan(start, goal);
+        int bucket = distance < 8 ? 0 : distance < 32 ? 1 : 2;
+        int choice = choose(grid, goal, bucket);
+        queries++;
+
+        long startTime = System.nanoTime();
+        PathfindingEngine backend = backends[choice];
+        int next = backend.nextStep(grid, start, goal, stats);
+        if (next >= 0 && !backend.isCanonical()) {
+            next = firstStep(backend, grid, start, goal, next, stats);
+        }
+        long nanos = System.nanoTime() - startTime;
+
+        double cost = (double) nanos / (distance + 1);
+        // The estimate starts from the cheapest query of the warm-up (the first ones run before the JIT has compiled the search)
+        int n = samples[bucket][choice]++;
+        double estimate = nanosPerTile[bucket][choice];
+        nanosPerTile[bucket][choice] = n == 0 ? cost : n < WARMUP_QUERIES ? Math.min(estimate, cost) : estimate + SMOOTHING * (cost - estimate);
+        lastChoice = backend.getName();
+        return next;
+    }
+
+    // First neighbor of start (right, left, down, up) one step closer to the goal, knowing one of them (next);
+    // the searches from the neighbors are added to stats
+    private int firstStep(PathfindingEngine backend, TileGrid grid, int start, int goal, int next, PathfindingStats stats) {
+        int length = stats.getPathLength();
+        DistanceTable table = grid.getDistanceTable();
+        if (table.hasRow(goal)) {
+            return DistanceTableEngine.downhill(grid, table.getRow(goal, probe), start);
+        }
+        // The neighbors before next that may be on a shortest path, and those that the path found proves to be on one
+        // (read before the searches from the neighbors, which overwrite it)
+        int[] path = backend instanceof GridSearchEngine ? ((GridSearchEngine) backend).path : null;
+        int count = 0;
+        int cols = grid.getCols();
+        int x = start % cols;
+        int y = start / cols;
+        for (int i = 0; i < 4; i++) {
+            int tile;
+            boolean walkable;
+            switch (i) {
+                case 0: tile = start + 1; walkable = grid.isWalkable(x + 1, y); break;
+                case 1: tile = start - 1; walkable = grid.isWalkable(x - 1, y); break;
+                case 2: tile = start + cols; walkable = grid.isWalkable(x, y + 1); break;
+                default: tile = start - cols; walkable = grid.isWalkable(x, y - 1); break;
+            }
+            if (!walkable) continue;
+            if (tile == next) break;
+            if (grid.manhattan(tile, goal) > length - 1) continue; // Can't be on a shortest path
+            candidates[count] = tile;
+            joinsPath[count] = path != null && joinsPath(grid, tile, path, length);
+            count++;
+        }
+        for (int i = 0; i < count; i++) {
+            if (joinsPath[i]) return candidates[i];
+            int step = backend.nextStep(grid, candidates[i], goal, probe);
+            stats.add(probe.getExpandedNodes(), probe.getNanos());
+            if (step >= 0 && probe.getPathLength() == length - 1) return candidates[i];
+        }
+        return next;
+    }
+
+    // True if a straight line of walkable tiles from a neighbor of start reaches the path found (path[k] is k + 1 steps
+    // from start) in k steps: the neighbor is then on a path as short as the one found
+    private static boolean joinsPath(TileGrid grid, int tile, int[] path, int length) {
+        for (int k = 1; k < length; k++) {
+            int target = path[k];
+            if (grid.manhattan(tile, target) != k || (grid.x(tile) != grid.x(target) && grid.y(tile) != grid.y(target))) continue;
+            int step = GridSearchEngine.stepBetween(grid, tile, target);
+            int t = tile + step;
+            while (t != target && !grid.isBlocked(t)) t += step;
+            if (t == target) return true;
+        }
+        return false;
+    }
+
+    private int choose(TileGrid grid, int goal, int bucket) {
+        for (int i = 0; i < backends.length; i++) {
+            if (backends[i].isPrecomputed(grid, goal)) return i;
+        }
+        boolean open = anyJumpsOpenSpace && grid.getOpenRatio() >= OPEN_LEVEL;
+        for (int i = 0; i < backends.length; i++) {
+            if ((!open || jumpsOpenSpace[i]) && samples[bucket][i] < WARMUP_QUERIES) return i;
+        }
+        if (queries % EXPLORE_PERIOD == 0) {
+            // In turn, each of the back ends that may be used
+            int allowed = 0;
+            for (int i = 0; i < backends.length; i++) {
+                if (!open || jumpsOpenSpace[i]) allowed++;
+            }
+            int turn = (int) ((queries / EXPLORE_PERIOD) % allowed);
+            for (int i = 0; i < backends.length; i++) {
+                if ((!open || jumpsOpenSpace[i]) && turn-- == 0) return i;
+            }
+        }
+        int best = -1;
+        for (int i = 0; i < backends.length; i++) {
+            if (open && !jumpsOpenSpace[i]) continue;
+            if (best < 0 || nanosPerTile[bucket][i] < nanosPerTile[bucket][best]) best = i;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,113 @@
+package game.pathfinding;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs the searches of a ghost on a pool of worker threads shared by every ghost
+// (-Dpacman.planning.threads, up to 4 by default), so the ghosts search in parallel instead of one after the other
+// on the game thread. A search works on a snapshot of the grid and on the tiles given when it was submitted,
+// and its result is published as a Plan tagged with the tick it was computed for; the game thread takes the
+// freshest plan without waiting. A plan is only used for the tiles it was searched for, and while it is recent
+// (-Dpacman.planning.maxAge ticks, 16 by default). A planner runs one search at a time, so its engine is never used by two threads.
+public class AsyncPlanner {
+    private static final int THREADS = Integer.getInteger("pacman.planning.threads",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final ForkJoinPool POOL = new ForkJoinPool(THREADS);
+    private static final int MAX_PLAN_AGE = Integer.getInteger("pacman.planning.maxAge", 16);
+
+    // Result of nextStep() when there is no plan for the query and a search is already running
+    public static final int BUSY = -2;
+
+    // True with -Dpacman.planning=async (see PathfindingStrategy)
+    public static boolean isEnabled() {
+        return "async".equals(System.getProperty("pacman.planning"));
+    }
+
+    // The plans depend on when the worker threads finish, so a game replayed from its inputs or from a snapshot doesn't
+    // play the same: what needs the games to be deterministic refuses to run with the asynchronous planning
+    public static void requireDisabled(String user) {
+        if (isEnabled()) {
+            throw new IllegalStateException(user + " needs deterministic games: run it without -Dpacman.planning=async");
+        }
+    }
+
+    private final PathfindingEngine engine;
+    private final PathfindingStats stats; // Written by the thread running the search, only read for display
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<Plan> latest = new AtomicReference<>();
+    private int submittedStart = -1;
+    private int submittedGoal = -1;
+
+    // Result of a search: next step from start towards goal (-1 if goal can't be reached)
+    public static final class Plan {
+        public final long tick;
+        public final int gridVersion;
+        public final int start;
+        public final int goal;
+        public final int next;
+
+        Plan(long tick, int gridVersion, int start, int goal, int next) {
+            this.tick = tick;
+            this.gridVersion = gridVersion;
+            this.start = start;
+            this.goal = goal;
+            this.next = next;
+        }
+    }
+
+    public AsyncPlanner(PathfindingEngine engine, PathfindingStats stats) {
+        this.engine = engine;
+        this.stats = stats;
+    }
+
+    // Only one game thread may submit searches for a planner.
+    // Returns false if the planner is busy or if the same search was already submitted.
+    public boolean submit(TileGrid grid, int start, int goal, long tick) {
+        if (start == submittedStart && goal == submittedGoal) {
+            Plan plan = latest.get();
+            if (running.get() || (plan != null && plan.gridVersion == grid.getVersion())) return false;
+        }
+        if (!running.compareAndSet(false, true)) return false;
+        submittedStart = start;
+        submittedGoal = goal;
+        TileGrid snapshot = grid.snapshot();
+        POOL.execute(() -> {
+            try {
+                int next = engine.nextStep(snapshot, start, goal, stats);
+                latest.set(new Plan(tick, snapshot.getVersion(), start, goal, next));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    // Freshest plan from start to goal on the current version of the grid, computed at most MAX_PLAN_AGE ticks ago,
+    // or null if there is none
+    public Plan getPlan(TileGrid grid, int start, int goal, long tick) {
+        Plan plan = latest.get();
+        if (plan == null || plan.start != start || plan.goal != goal || plan.gridVersion != grid.getVersion()
+                || tick - plan.tick > MAX_PLAN_AGE) return null;
+        return plan;
+    }
+
+    // Next step from start: taken from the freshest plan if there is one for these tiles, otherwise searched on the
+    // calling thread if no search is running (-1 if goal can't be reached, BUSY if a search is running)
+    public int nextStep(TileGrid grid, int start, int goal, long tick) {
+        Plan plan = getPlan(grid, start, goal, tick);
+        if (plan != null) return plan.next;
+        if (!running.compareAndSet(false, true)) return BUSY;
+        try {
+            return engine.nextStep(grid, start, goal, stats);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+}
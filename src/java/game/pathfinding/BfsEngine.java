@@ -0,0 +1,67 @@
+package game.pathfinding;
+
+// Breadth-first search: explores the tiles layer by layer from the start until the goal is reached.
+// The tiles of a layer are queued in the order of the first steps of their paths, so the first step found is the first
+// neighbor of start (right, left, down, up) on a shortest path.
+public class BfsEngine extends GridSearchEngine {
+    private int[] queue = new int[0];
+
+    @Override
+    public String getName() {
+        return "BFS";
+    }
+
+    @Override
+    public boolean isCanonical() {
+        return true;
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        stats.begin(getName());
+        prepare(grid);
+        if (queue.length < grid.size()) {
+            queue = new int[grid.size()];
+        }
+        int cols = grid.getCols();
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visit(start, -1);
+
+        boolean found = false;
+        while (head < tail) {
+            stats.expand(tail - head);
+            int current = queue[head++];
+            if (current == goal) {
+                found = true;
+                break;
+            }
+
+            int x = current % cols;
+            int y = current / cols;
+            // 4-directional (right, left, down, up)
+            if (grid.isWalkable(x + 1, y) && !isVisited(current + 1)) {
+                visit(current + 1, current);
+                queue[tail++] = current + 1;
+            }
+            if (grid.isWalkable(x - 1, y) && !isVisited(current - 1)) {
+                visit(current - 1, current);
+                queue[tail++] = current - 1;
+            }
+            if (grid.isWalkable(x, y + 1) && !isVisited(current + cols)) {
+                visit(current + cols, current);
+                queue[tail++] = current + cols;
+            }
+            if (grid.isWalkable(x, y - 1) && !isVisited(current - cols)) {
+                visit(current - cols, current);
+                queue[tail++] = current - cols;
+            }
+        }
+
+        int next = found ? buildPath(grid, start, goal) : -1;
+        report(grid, stats);
+        return next;
+    }
+}
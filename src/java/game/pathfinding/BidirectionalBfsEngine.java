@@ -0,0 +1,149 @@
+package game.pathfinding;
+
+// Bidirectional breadth-first search: one search from the start and one from the goal, expanding the smallest frontier
+// one whole layer at a time, until they meet. Explores about half the tiles of a BFS in open areas.
+// Like a BFS, the forward search knows the first step of the paths it found (the first one in the order right, left, down, up),
+// and among the shortest paths meeting in the last layer, the one with the first step that comes first is kept.
+public class BidirectionalBfsEngine extends GridSearchEngine {
+    // Forward search uses the buffers of the base class, the backward search uses these ones
+    private int[] backStamp = new int[0];
+    private int[] backParent = new int[0];
+    private int[] forwardDist = new int[0];
+    private int[] backDist = new int[0];
+    private int[] firstDirection = new int[0]; // Direction of the first step from start (0 to 3) of the forward paths
+    private int[] forwardQueue = new int[0];
+    private int[] backQueue = new int[0];
+
+    @Override
+    public String getName() {
+        return "BiBFS";
+    }
+
+    @Override
+    public boolean isCanonical() {
+        return true;
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        stats.begin(getName());
+        prepare(grid);
+        int n = grid.size();
+        if (backStamp.length < n) {
+            backStamp = new int[n];
+            backParent = new int[n];
+            forwardDist = new int[n];
+            backDist = new int[n];
+            firstDirection = new int[n];
+            forwardQueue = new int[n];
+            backQueue = new int[n];
+        }
+        // The backward search shares the current stamp (its own array is reset when the stamps wrap around)
+        if (stamp == 1) java.util.Arrays.fill(backStamp, 0);
+
+        int fHead = 0, fTail = 0, bHead = 0, bTail = 0;
+        forwardQueue[fTail++] = start;
+        visit(start, -1);
+        forwardDist[start] = 0;
+        backQueue[bTail++] = goal;
+        backStamp[goal] = stamp;
+        backParent[goal] = -1;
+        backDist[goal] = 0;
+
+        // Best meeting edge found so far: meetFrom is reached by the forward search, meetTo by the backward one
+        int meetFrom = -1;
+        int meetTo = -1;
+        int best = Integer.MAX_VALUE;
+        int bestDirection = 4;
+        while (meetFrom < 0 && fHead < fTail && bHead < bTail) {
+            // Expand a whole layer of the smallest frontier, and keep the best meeting edge of the layer (so the path is a shortest one)
+            if ((fTail - fHead) <= (bTail - bHead)) {
+                int layerEnd = fTail;
+                while (fHead < layerEnd) {
+                    stats.expand((fTail - fHead) + (bTail - bHead));
+                    int current = forwardQueue[fHead++];
+                    for (int d = 0; d < 4; d++) {
+                        int next = neighbor(grid, current, d);
+                        if (next < 0) continue;
+                        if (backStamp[next] == stamp) {
+                            int length = forwardDist[current] + 1 + backDist[next];
+                            int direction = current == start ? d : firstDirection[current];
+                            if (length < best || (length == best && direction < bestDirection)) {
+                                best = length;
+                                bestDirection = direction;
+                                meetFrom = current;
+                                meetTo = next;
+                            }
+                        }
+                        if (isVisited(next)) continue;
+                        visit(next, current);
+                        forwardDist[next] = forwardDist[current] + 1;
+                        firstDirection[next] = current == start ? d : firstDirection[current];
+                        forwardQueue[fTail++] = next;
+                    }
+                }
+            } else {
+                int layerEnd = bTail;
+                while (bHead < layerEnd) {
+                    stats.expand((fTail - fHead) + (bTail - bHead));
+                    int current = backQueue[bHead++];
+                    for (int d = 0; d < 4; d++) {
+                        int next = neighbor(grid, current, d);
+                        if (next < 0) continue;
+                        if (isVisited(next)) {
+                            int length = forwardDist[next] + 1 + backDist[current];
+                            int direction = next == start ? direction(grid, start, current) : firstDirection[next];
+                            if (length < best || (length == best && direction < bestDirection)) {
+                                best = length;
+                                bestDirection = direction;
+                                meetFrom = next;
+                                meetTo = current;
+                            }
+                        }
+                        if (backStamp[next] == stamp) continue;
+                        backStamp[next] = stamp;
+                        backParent[next] = current;
+                        backDist[next] = backDist[current] + 1;
+                        backQueue[bTail++] = next;
+                    }
+                }
+            }
+        }
+
+        int next = -1;
+        if (meetFrom >= 0) {
+            // Start -> meetFrom with the forward parents, then meetTo -> goal with the backward parents
+            if (meetFrom != start) {
+                buildPath(grid, start, meetFrom);
+            }
+            int i = forwardDist[meetFrom];
+            for (int tile = meetTo; tile != -1; tile = backParent[tile]) {
+                path[i++] = tile;
+            }
+            pathLength = i;
+            next = path[0];
+        }
+        report(grid, stats);
+        return next;
+    }
+
+    // Direction (right, left, down, up) going from a tile to one of its neighbors
+    private static int direction(TileGrid grid, int tile, int neighbor) {
+        if (neighbor == tile + 1) return 0;
+        if (neighbor == tile - 1) return 1;
+        return neighbor == tile + grid.getCols() ? 2 : 3;
+    }
+
+    // Neighbor of a tile in one of the 4 directions (right, left, down, up), or -1 if it is blocked
+    private static int neighbor(TileGrid grid, int tile, int direction) {
+        int cols = grid.getCols();
+        int x = tile % cols;
+        int y = tile / cols;
+        switch (direction) {
+            case 0: return grid.isWalkable(x + 1, y) ? tile + 1 : -1;
+            case 1: return grid.isWalkable(x - 1, y) ? tile - 1 : -1;
+            case 2: return grid.isWalkable(x, y + 1) ? tile + cols : -1;
+            default: return grid.isWalkable(x, y - 1) ? tile - cols : -1;
+        }
+    }
+}
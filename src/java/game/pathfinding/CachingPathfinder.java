@@ -0,0 +1,61 @@
+package game.pathfinding;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Engine answering from the path cache of its game when it can, and from the wrapped engine otherwise
+public class CachingPathfinder implements PathfindingEngine {
+    private static final ConcurrentHashMap<String, Integer> ENGINE_IDS = new ConcurrentHashMap<>(); // Part of the keys
+    private static final AtomicInteger nextEngineId = new AtomicInteger();
+
+    private final PathfindingEngine engine;
+    private final int engineId;
+    private final PathCache cache;
+
+    public CachingPathfinder(PathfindingEngine engine, PathCache cache) {
+        this.engine = engine;
+        this.cache = cache;
+        this.engineId = ENGINE_IDS.computeIfAbsent(engine.getName(), CachingPathfinder::newEngineId);
+    }
+
+    // One id per engine name, even when strategies are created on several threads at once (the keys have 8 bits for it)
+    private static int newEngineId(String name) {
+        int id = nextEngineId.getAndIncrement();
+        if (id > 0xFF) throw new IllegalStateException("Too many engines for the path cache: " + name);
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return engine.getName();
+    }
+
+    public PathfindingEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    public boolean isPrecomputed(TileGrid grid, int goal) {
+        return engine.isPrecomputed(grid, goal);
+    }
+
+    @Override
+    public boolean isCanonical() {
+        return engine.isCanonical();
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        int version = grid.getVersion();
+        long key = PathCache.key(engineId, start, goal);
+        long entry = cache.get(key, version);
+        if (entry != PathCache.MISS) {
+            stats.begin("cache");
+            stats.end(PathCache.pathLength(entry));
+            return PathCache.nextStep(entry);
+        }
+        int next = engine.nextStep(grid, start, goal, stats);
+        cache.put(key, version, next, stats.getPathLength());
+        return next;
+    }
+}
@@ -0,0 +1,135 @@
+package game.pathfinding;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Precomputed distances to a goal: a row holds the distance of every tile to the goal (computed with a single BFS from it),
+// after which the next step from any tile is found by looking at its 4 neighbors.
+// Rows are computed when a goal is first queried and shared by every ghost; when the memory budget is reached the row used
+// least recently is dropped. A row is computed outside of the lock: the other ghosts keep reading the rows already there.
+// When a tile changes, only the rows where it changes the distance of another tile are dropped (see update()).
+public class DistanceTable {
+    private static final long MAX_BYTES = Long.getLong("pacman.distanceTable.maxBytes", 32L * 1024 * 1024);
+
+    private final TileGrid grid;
+    private final Map<Integer, int[]> rows; // By goal, in the order of their last use
+
+    DistanceTable(TileGrid grid) {
+        this.grid = grid;
+        int maxRows = (int) Math.max(1, Math.min(grid.size(), MAX_BYTES / (4L * grid.size())));
+        this.rows = new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > maxRows;
+            }
+        };
+    }
+
+    public synchronized boolean hasRow(int goal) {
+        return rows.containsKey(goal);
+    }
+
+    // Distances of every tile to the goal (-1 when unreachable); stats count the tiles expanded if the row had to be computed
+    public int[] getRow(int goal, PathfindingStats stats) {
+        int[] row;
+        synchronized (this) {
+            row = rows.get(goal);
+        }
+        if (row == null) {
+            int version = grid.getVersion();
+            row = computeRow(goal, stats);
+            synchronized (this) {
+                if (grid.getVersion() == version) { // Else a tile changed meanwhile: the row is not kept
+                    int[] other = rows.putIfAbsent(goal, row); // Computed by another thread meanwhile
+                    if (other != null) row = other;
+                }
+            }
+        }
+        return row;
+    }
+
+    // The tile was blocked or opened (the grid already has its new state). A row is kept, with the distance of the tile
+    // updated, if no other distance changes:
+    // - blocked: every tile one step further than it still has a neighbor at its own distance, so it is still reached
+    // - opened: its neighbors are all reachable and none is more than one step further than it (no shortcut, no new region)
+    synchronized void update(int tile) {
+        int cols = grid.getCols();
+        int x = tile % cols;
+        int y = tile / cols;
+        boolean blocked = grid.isBlocked(tile);
+        Iterator<Map.Entry<Integer, int[]>> it = rows.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, int[]> entry = it.next();
+            int[] dist = entry.getValue();
+            boolean keep;
+            if (blocked) {
+                keep = dist[tile] < 0 || (entry.getKey() != tile && stillReached(dist, tile, x, y));
+                if (keep) dist[tile] = -1;
+            } else {
+                int d = -1;
+                for (int i = 0; i < 4; i++) {
+                    int n = neighbor(x, y, i);
+                    if (n >= 0 && dist[n] >= 0 && (d < 0 || dist[n] + 1 < d)) d = dist[n] + 1;
+                }
+                keep = true;
+                for (int i = 0; i < 4 && keep; i++) {
+                    int n = neighbor(x, y, i);
+                    if (n >= 0 && d >= 0 && (dist[n] < 0 || dist[n] > d + 1)) keep = false;
+                }
+                if (keep) dist[tile] = d;
+            }
+            if (!keep) it.remove();
+        }
+    }
+
+    // True if every neighbor one step further than the blocked tile has another neighbor at the tile's distance
+    private boolean stillReached(int[] dist, int tile, int x, int y) {
+        int cols = grid.getCols();
+        for (int i = 0; i < 4; i++) {
+            int n = neighbor(x, y, i);
+            if (n < 0 || dist[n] != dist[tile] + 1) continue;
+            boolean reached = false;
+            for (int j = 0; j < 4 && !reached; j++) {
+                int m = neighbor(n % cols, n / cols, j);
+                reached = m >= 0 && m != tile && dist[m] == dist[tile];
+            }
+            if (!reached) return false;
+        }
+        return true;
+    }
+
+    // Walkable neighbor of (x, y) in a direction (right, left, down, up), -1 if there is none
+    private int neighbor(int x, int y, int direction) {
+        switch (direction) {
+            case 0: return grid.isWalkable(x + 1, y) ? grid.index(x + 1, y) : -1;
+            case 1: return grid.isWalkable(x - 1, y) ? grid.index(x - 1, y) : -1;
+            case 2: return grid.isWalkable(x, y + 1) ? grid.index(x, y + 1) : -1;
+            default: return grid.isWalkable(x, y - 1) ? grid.index(x, y - 1) : -1;
+        }
+    }
+
+    private int[] computeRow(int goal, PathfindingStats stats) {
+        int[] dist = new int[grid.size()];
+        Arrays.fill(dist, -1);
+        int[] queue = new int[grid.size()];
+        int cols = grid.getCols();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = goal;
+        dist[goal] = 0;
+        while (head < tail) {
+            stats.expand(tail - head);
+            int current = queue[head++];
+            int x = current % cols;
+            int y = current / cols;
+            int d = dist[current] + 1;
+            if (grid.isWalkable(x + 1, y) && dist[current + 1] < 0) { dist[current + 1] = d; queue[tail++] = current + 1; }
+            if (grid.isWalkable(x - 1, y) && dist[current - 1] < 0) { dist[current - 1] = d; queue[tail++] = current - 1; }
+            if (grid.isWalkable(x, y + 1) && dist[current + cols] < 0) { dist[current + cols] = d; queue[tail++] = current + cols; }
+            if (grid.isWalkable(x, y - 1) && dist[current - cols] < 0) { dist[current - cols] = d; queue[tail++] = current - cols; }
+        }
+        return dist;
+    }
+}
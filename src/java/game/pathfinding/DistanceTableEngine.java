@@ -0,0 +1,57 @@
+package game.pathfinding;
+
+// Back end using the precomputed distance table of the grid: once the row of a goal is known,
+// a query is a look-up of 4 neighbors
+public class DistanceTableEngine implements PathfindingEngine {
+    private int[] path = new int[0];
+
+    @Override
+    public String getName() {
+        return "Table";
+    }
+
+    @Override
+    public boolean isCanonical() {
+        return true;
+    }
+
+    @Override
+    public boolean isPrecomputed(TileGrid grid, int goal) {
+        return grid.getDistanceTable().hasRow(goal);
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        stats.begin(getName());
+        int[] dist = grid.getDistanceTable().getRow(goal, stats);
+        if (dist[start] <= 0) {
+            stats.end(0);
+            return -1;
+        }
+        int next = downhill(grid, dist, start);
+
+        stats.end(dist[start]);
+        if (PathfindingStats.isCaptureDebug()) {
+            if (path.length < dist[start]) path = new int[dist[start]];
+            int length = 0;
+            for (int tile = next; tile != goal; tile = downhill(grid, dist, tile)) {
+                path[length++] = tile;
+            }
+            path[length++] = goal;
+            stats.capture(null, grid.getCols(), path, length);
+        }
+        return next;
+    }
+
+    // Neighbor of a tile that is one step closer to the goal (right, left, down, up: the same order as the searches)
+    static int downhill(TileGrid grid, int[] dist, int tile) {
+        int cols = grid.getCols();
+        int x = tile % cols;
+        int y = tile / cols;
+        int d = dist[tile] - 1;
+        if (grid.isWalkable(x + 1, y) && dist[tile + 1] == d) return tile + 1;
+        if (grid.isWalkable(x - 1, y) && dist[tile - 1] == d) return tile - 1;
+        if (grid.isWalkable(x, y + 1) && dist[tile + cols] == d) return tile + cols;
+        return tile - cols;
+    }
+}
@@ -0,0 +1,83 @@
+package game.pathfinding;
+
+// Base class of the search back ends: the buffers are kept between calls and reset with a "stamp"
+// (a tile is visited if its stamp equals the current one), so a search doesn't allocate or clear arrays.
+// An engine instance is not thread-safe: each strategy owns its own.
+abstract class GridSearchEngine implements PathfindingEngine {
+    protected int[] visitStamp = new int[0];
+    protected int[] parent = new int[0];
+    protected int[] path = new int[0]; // Path of the last search, from the first step to the goal
+    protected int pathLength = 0;
+    protected int stamp = 0;
+
+    // Gets the buffers ready for a new search on this grid
+    protected void prepare(TileGrid grid) {
+        int n = grid.size();
+        if (visitStamp.length < n) {
+            visitStamp = new int[n];
+            parent = new int[n];
+            path = new int[n];
+            stamp = 0;
+        }
+        stamp = nextStamp(visitStamp, stamp);
+        pathLength = 0;
+    }
+
+    // Returns the next stamp of an array, clearing it when the stamps wrap around
+    protected static int nextStamp(int[] stamps, int stamp) {
+        if (stamp == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(stamps, 0);
+            return 1;
+        }
+        return stamp + 1;
+    }
+
+    protected boolean isVisited(int tile) {
+        return visitStamp[tile] == stamp;
+    }
+
+    protected void visit(int tile, int from) {
+        visitStamp[tile] = stamp;
+        parent[tile] = from;
+    }
+
+    // Walks the parents back from goal to start and stores the path in the path buffer.
+    // Consecutive tiles of the parent chain may be apart on a row or a column (jump points): the tiles in between are filled in.
+    // Returns the first step after start.
+    protected int buildPath(TileGrid grid, int start, int goal) {
+        int length = 0;
+        for (int tile = goal; tile != start; tile = parent[tile]) {
+            length += grid.manhattan(tile, parent[tile]);
+        }
+        pathLength = length;
+        int i = length;
+        for (int tile = goal; tile != start; tile = parent[tile]) {
+            int from = parent[tile];
+            int step = stepBetween(grid, from, tile);
+            for (int t = tile; t != from; t -= step) {
+                path[--i] = t;
+            }
+        }
+        return path[0];
+    }
+
+    // Reports the end of the search to the stats (and the explored tiles if the debug overlay is on)
+    protected void report(TileGrid grid, PathfindingStats stats) {
+        stats.end(pathLength);
+        if (PathfindingStats.isCaptureDebug()) {
+            boolean[] explored = new boolean[grid.size()];
+            for (int i = 0; i < explored.length; i++) {
+                explored[i] = visitStamp[i] == stamp;
+            }
+            stats.capture(explored, grid.getCols(), path, pathLength);
+        }
+    }
+
+    // Index difference of one step in the direction going from a to b (on the same row or column)
+    protected static int stepBetween(TileGrid grid, int a, int b) {
+        if (grid.y(a) == grid.y(b)) {
+            return b > a ? 1 : -1;
+        }
+        return b > a ? grid.getCols() : -grid.getCols();
+    }
+}
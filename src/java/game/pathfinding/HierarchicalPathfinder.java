@@ -0,0 +1,340 @@
+package game.pathfinding;
+
+import java.util.Arrays;
+
+// HPA* (hierarchical pathfinding): the grid is cut into square clusters, and the tiles where two clusters can be crossed
+// ("entrances") are the nodes of an abstract graph, linked by the distances inside each cluster (computed in advance)
+// and by the crossings between clusters. A query only searches the clusters of the start and of the goal,
+// then the small abstract graph, and refines the first segment of the path to get the next step.
+// The paths are near-shortest (they cross clusters through the entrances only).
+// When tiles of the grid change (see TileGrid.setTileBlocked), only the clusters around them are rebuilt, on the next query
+// (the changes are read from the grid then: everything here is only used by the thread of the queries).
+public class HierarchicalPathfinder implements PathfindingEngine {
+    private static final int FROM_START = -2; // Parent of the abstract nodes reached directly from the start
+
+    private final int requestedClusterSize; // 0 to size the clusters from the grid
+    private int clusterSize;
+
+    private TileGrid grid;
+    private int builtVersion; // Version of the grid the clusters were built from
+    private int clustersX;
+    private int clustersY;
+    private Cluster[] clusters;
+    private int[] nodeIndex = new int[0]; // Index of a tile in the nodes of its cluster, or -1 if it isn't an entrance
+    private boolean[] dirty = new boolean[0];
+
+    // Buffers of the searches inside a cluster (from the start and from the goal) and of the abstract search
+    private final IntMinHeap openSet = new IntMinHeap();
+    private int[] localDist = new int[0];
+    private int[] localParent = new int[0];
+    private int[] localStamp = new int[0];
+    private int localStampValue = 0;
+    private int[] goalDist = new int[0];
+    private int[] goalStamp = new int[0];
+    private int goalStampValue = 0;
+    private int[] queue = new int[0];
+    private int[] gScore = new int[0];
+    private int[] abstractParent = new int[0];
+    private int[] gStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int abstractStampValue = 0;
+    private int[] waypoints = new int[0];
+
+    // A cluster, its entrances and the distances between them
+    private static class Cluster {
+        int x0, y0, x1, y1; // Bounds (x1 and y1 excluded)
+        int[] nodes = new int[0];
+        int[][] crossings = new int[0][]; // For each node, the tiles of the neighboring clusters it leads to
+        int[][] dist = new int[0][]; // Distances between the nodes inside the cluster (-1 if not connected)
+    }
+
+    public HierarchicalPathfinder() {
+        this(Integer.getInteger("pacman.hpa.clusterSize", 0));
+    }
+
+    public HierarchicalPathfinder(int clusterSize) {
+        this.requestedClusterSize = clusterSize;
+    }
+
+    // Bigger grids get bigger clusters, so the abstract graph (and the time of a query) grows slowly with the size of the level:
+    // 16 tiles up to 512x512, then the power of two closest to 1/32 of the side of the grid
+    static int defaultClusterSize(TileGrid grid) {
+        int side = (int) Math.sqrt((double) grid.getCols() * grid.getRows());
+        return Math.max(16, Integer.highestOneBit(side / 32));
+    }
+
+    @Override
+    public String getName() {
+        return "HPA*";
+    }
+
+    // The cluster of a changed tile and its neighbors are rebuilt
+    private void tileChanged(int x, int y) {
+        int cx = x / clusterSize;
+        int cy = y / clusterSize;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = cx + dx;
+                int ny = cy + dy;
+                if (nx >= 0 && nx < clustersX && ny >= 0 && ny < clustersY) {
+                    dirty[ny * clustersX + nx] = true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        stats.begin(getName());
+        if (grid != this.grid) {
+            build(grid);
+        } else if (grid.getVersion() != builtVersion) {
+            int[] changed = grid.changedSince(builtVersion);
+            if (changed == null) {
+                build(grid);
+            } else {
+                builtVersion += changed.length;
+                for (int tile : changed) tileChanged(grid.x(tile), grid.y(tile));
+                rebuildDirtyClusters();
+            }
+        }
+
+        Cluster startCluster = clusterOf(start);
+        Cluster goalCluster = clusterOf(goal);
+
+        // Distances from the start to the tiles of its cluster, and from the goal to the tiles of its cluster
+        localStampValue = GridSearchEngine.nextStamp(localStamp, localStampValue);
+        searchCluster(startCluster, start, localDist, localParent, localStamp, localStampValue, stats);
+        goalStampValue = GridSearchEngine.nextStamp(goalStamp, goalStampValue);
+        searchCluster(goalCluster, goal, goalDist, null, goalStamp, goalStampValue, stats);
+
+        // A* on the abstract graph, from the start to the goal
+        abstractStampValue = GridSearchEngine.nextStamp(gStamp, abstractStampValue);
+        if (abstractStampValue == 1) Arrays.fill(closedStamp, 0);
+        openSet.clear();
+        for (int tile : startCluster.nodes) {
+            if (localStamp[tile] == localStampValue) push(tile, localDist[tile], FROM_START, goal);
+        }
+        if (startCluster == goalCluster && localStamp[goal] == localStampValue) {
+            push(goal, localDist[goal], FROM_START, goal);
+        }
+
+        boolean found = false;
+        while (!openSet.isEmpty()) {
+            int current = openSet.poll();
+            if (closedStamp[current] == abstractStampValue) continue;
+            closedStamp[current] = abstractStampValue;
+            stats.expand(openSet.size() + 1);
+            if (current == goal) {
+                found = true;
+                break;
+            }
+
+            Cluster cluster = clusterOf(current);
+            int i = nodeIndex[current];
+            int g = gScore[current];
+            for (int j = 0; j < cluster.nodes.length; j++) {
+                int d = cluster.dist[i][j];
+                if (j != i && d > 0) push(cluster.nodes[j], g + d, current, goal);
+            }
+            for (int other : cluster.crossings[i]) {
+                push(other, g + 1, current, goal);
+            }
+            if (cluster == goalCluster && goalStamp[current] == goalStampValue) {
+                push(goal, g + goalDist[current], current, goal);
+            }
+        }
+
+        if (!found) {
+            stats.end(0);
+            return -1;
+        }
+
+        // Waypoints of the abstract path, from the first one to the goal
+        int count = 0;
+        for (int tile = goal; tile != FROM_START; tile = abstractParent[tile]) count++;
+        if (waypoints.length < count) waypoints = new int[count];
+        int k = count;
+        for (int tile = goal; tile != FROM_START; tile = abstractParent[tile]) waypoints[--k] = tile;
+
+        // Refine the first segment: inside the start cluster, follow the search from the start, otherwise it is a crossing
+        int first = waypoints[0] == start ? waypoints[1] : waypoints[0];
+        int next = first;
+        if (clusterOf(first) == startCluster && localStamp[first] == localStampValue) {
+            while (localParent[next] != start) next = localParent[next];
+        }
+
+        stats.end(gScore[goal]);
+        if (PathfindingStats.isCaptureDebug()) {
+            stats.capture(null, grid.getCols(), waypoints, count);
+        }
+        return next;
+    }
+
+    private void push(int tile, int g, int parent, int goal) {
+        if (closedStamp[tile] == abstractStampValue) return;
+        if (gStamp[tile] == abstractStampValue && gScore[tile] <= g) return;
+        gScore[tile] = g;
+        gStamp[tile] = abstractStampValue;
+        abstractParent[tile] = parent;
+        openSet.add(((long) (g + grid.manhattan(tile, goal)) << 32) - g, tile);
+    }
+
+    private Cluster clusterOf(int tile) {
+        return clusters[(grid.y(tile) / clusterSize) * clustersX + grid.x(tile) / clusterSize];
+    }
+
+    // BFS from a tile, limited to the bounds of its cluster
+    private void searchCluster(Cluster cluster, int source, int[] dist, int[] parent, int[] stamps, int stampValue, PathfindingStats stats) {
+        int cols = grid.getCols();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        stamps[source] = stampValue;
+        dist[source] = 0;
+        while (head < tail) {
+            if (stats != null) stats.expand(tail - head);
+            int current = queue[head++];
+            int x = current % cols;
+            int y = current / cols;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + (d == 0 ? 1 : d == 1 ? -1 : 0);
+                int ny = y + (d == 2 ? 1 : d == 3 ? -1 : 0);
+                if (nx < cluster.x0 || nx >= cluster.x1 || ny < cluster.y0 || ny >= cluster.y1) continue;
+                if (grid.isBlocked(nx, ny)) continue;
+                int next = ny * cols + nx;
+                if (stamps[next] == stampValue) continue;
+                stamps[next] = stampValue;
+                dist[next] = dist[current] + 1;
+                if (parent != null) parent[next] = current;
+                queue[tail++] = next;
+            }
+        }
+    }
+
+    private void build(TileGrid grid) {
+        this.grid = grid;
+        builtVersion = grid.getVersion();
+        clusterSize = requestedClusterSize > 0 ? requestedClusterSize : defaultClusterSize(grid);
+        int n = grid.size();
+        clustersX = (grid.getCols() + clusterSize - 1) / clusterSize;
+        clustersY = (grid.getRows() + clusterSize - 1) / clusterSize;
+        clusters = new Cluster[clustersX * clustersY];
+        for (int cy = 0; cy < clustersY; cy++) {
+            for (int cx = 0; cx < clustersX; cx++) {
+                Cluster c = new Cluster();
+                c.x0 = cx * clusterSize;
+                c.y0 = cy * clusterSize;
+                c.x1 = Math.min(grid.getCols(), c.x0 + clusterSize);
+                c.y1 = Math.min(grid.getRows(), c.y0 + clusterSize);
+                clusters[cy * clustersX + cx] = c;
+            }
+        }
+        nodeIndex = new int[n];
+        Arrays.fill(nodeIndex, -1);
+        localDist = new int[n];
+        localParent = new int[n];
+        localStamp = new int[n];
+        goalDist = new int[n];
+        goalStamp = new int[n];
+        queue = new int[n];
+        gScore = new int[n];
+        abstractParent = new int[n];
+        gStamp = new int[n];
+        closedStamp = new int[n];
+        localStampValue = goalStampValue = abstractStampValue = 0;
+
+        dirty = new boolean[clusters.length];
+        Arrays.fill(dirty, true);
+        rebuildDirtyClusters();
+    }
+
+    private void rebuildDirtyClusters() {
+        for (int i = 0; i < clusters.length; i++) {
+            if (dirty[i]) buildEntrances(i);
+        }
+        for (int i = 0; i < clusters.length; i++) {
+            if (dirty[i]) buildDistances(clusters[i]);
+        }
+        Arrays.fill(dirty, false);
+    }
+
+    // The entrances of a cluster only depend on its 4 borders, so both sides of a border always agree on them
+    private void buildEntrances(int index) {
+        Cluster c = clusters[index];
+        for (int tile : c.nodes) nodeIndex[tile] = -1;
+        int[] nodes = new int[16];
+        int[][] crossings = new int[16][];
+        int count = 0;
+
+        int cx = index % clustersX;
+        int cy = index / clustersX;
+        // Right, left, bottom and top borders: (tile of this cluster, tile of the neighbor) for each crossing
+        int[] pairs = new int[0];
+        if (cx + 1 < clustersX) pairs = concat(pairs, borderCrossings(c.x1 - 1, c.y0, 0, 1, c.y1 - c.y0, 1, 0));
+        if (cx > 0) pairs = concat(pairs, borderCrossings(c.x0, c.y0, 0, 1, c.y1 - c.y0, -1, 0));
+        if (cy + 1 < clustersY) pairs = concat(pairs, borderCrossings(c.x0, c.y1 - 1, 1, 0, c.x1 - c.x0, 0, 1));
+        if (cy > 0) pairs = concat(pairs, borderCrossings(c.x0, c.y0, 1, 0, c.x1 - c.x0, 0, -1));
+
+        for (int p = 0; p < pairs.length; p += 2) {
+            int tile = pairs[p];
+            int i = 0;
+            while (i < count && nodes[i] != tile) i++;
+            if (i == count) {
+                if (count == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, count * 2);
+                    crossings = Arrays.copyOf(crossings, count * 2);
+                }
+                nodes[count] = tile;
+                crossings[count] = new int[0];
+                count++;
+            }
+            crossings[i] = concat(crossings[i], new int[] { pairs[p + 1] });
+        }
+        c.nodes = Arrays.copyOf(nodes, count);
+        c.crossings = Arrays.copyOf(crossings, count);
+        for (int i = 0; i < count; i++) nodeIndex[c.nodes[i]] = i;
+    }
+
+    // Scans a border tile by tile (from (x, y), moving by (stepX, stepY)); (outX, outY) points to the neighbor cluster.
+    // Each run of open tiles gets one crossing in its middle, or one at each end if it is 6 tiles or more.
+    private int[] borderCrossings(int x, int y, int stepX, int stepY, int length, int outX, int outY) {
+        int[] result = new int[0];
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && grid.isWalkable(x + stepX * i, y + stepY * i)
+                    && grid.isWalkable(x + stepX * i + outX, y + stepY * i + outY);
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                int runEnd = i - 1;
+                int[] positions = runEnd - runStart + 1 >= 6 ? new int[] { runStart, runEnd } : new int[] { (runStart + runEnd) / 2 };
+                for (int pos : positions) {
+                    int tx = x + stepX * pos;
+                    int ty = y + stepY * pos;
+                    result = concat(result, new int[] { grid.index(tx, ty), grid.index(tx + outX, ty + outY) });
+                }
+                runStart = -1;
+            }
+        }
+        return result;
+    }
+
+    private void buildDistances(Cluster c) {
+        int n = c.nodes.length;
+        c.dist = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            localStampValue = GridSearchEngine.nextStamp(localStamp, localStampValue);
+            searchCluster(c, c.nodes[i], localDist, null, localStamp, localStampValue, null);
+            for (int j = 0; j < n; j++) {
+                c.dist[i][j] = localStamp[c.nodes[j]] == localStampValue ? localDist[c.nodes[j]] : -1;
+            }
+        }
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
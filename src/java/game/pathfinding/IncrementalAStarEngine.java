@@ -0,0 +1,186 @@
+package game.pathfinding;
+
+// A* search spread over several ticks: each call expands at most a slice of nodes (-Dpacman.pathfinding.sliceNodes,
+// 256 by default) taken from the SearchBudget of the tick, and the open set is kept until the next call.
+// The search grows from the goal towards the ghost, so its closed tiles all know their next step towards the goal:
+// until a new search is complete, the ghost keeps following the tree of the last complete one (i.e. towards where
+// Pacman was). If there is none yet, -1 is returned and the strategy heads straight to Pacman.
+public class IncrementalAStarEngine implements PathfindingEngine {
+    private static final int SLICE_NODES = Integer.getInteger("pacman.pathfinding.sliceNodes", 256);
+
+    private final IntMinHeap openSet = new IntMinHeap();
+    private int stamp = 0; // Shared by the working and the result arrays, which are swapped when a search completes
+
+    // Search in progress
+    private int[] seenStamp = new int[0]; // gScore and parent are only valid if seenStamp[tile] == stamp
+    private int[] closedStamp = new int[0];
+    private int[] gScore = new int[0];
+    private int[] parent = new int[0];
+    private boolean searching = false;
+    private int searchRoot;
+    private int searchTarget;
+
+    // Last complete search
+    private int[] resultClosed = new int[0];
+    private int[] resultG = new int[0];
+    private int[] resultParent = new int[0];
+    private int resultStamp = -1;
+    private int resultRoot = -1;
+
+    private TileGrid grid;
+    private int gridVersion;
+
+    @Override
+    public String getName() {
+        return "A* (sliced)";
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        stats.begin(getName());
+        prepare(grid);
+
+        if (!searching && (resultRoot != goal || !isInResult(start))) {
+            begin(goal, start);
+        }
+        if (searching) {
+            search(SearchBudget.take(SLICE_NODES), stats);
+        }
+
+        int next = -1;
+        int length = 0;
+        if (isInResult(start) && start != resultRoot) {
+            next = resultParent[start];
+            length = resultG[start];
+        }
+        stats.end(length);
+        if (PathfindingStats.isCaptureDebug()) {
+            capture(start, length, stats);
+        }
+        return next;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
+    // True while a search hasn't expanded all its nodes yet
+    public boolean isSearching() {
+        return searching;
+    }
+
+    private void prepare(TileGrid grid) {
+        if (grid == this.grid && grid.getVersion() == gridVersion) return;
+        this.grid = grid;
+        gridVersion = grid.getVersion();
+        int n = grid.size();
+        if (seenStamp.length < n) {
+            seenStamp = new int[n];
+            closedStamp = new int[n];
+            gScore = new int[n];
+            parent = new int[n];
+            resultClosed = new int[n];
+            resultG = new int[n];
+            resultParent = new int[n];
+        }
+        searching = false;
+        resultRoot = -1;
+        resultStamp = -1;
+    }
+
+    private void begin(int root, int target) {
+        if (stamp == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(seenStamp, 0);
+            java.util.Arrays.fill(closedStamp, 0);
+            java.util.Arrays.fill(resultClosed, 0);
+            stamp = 0;
+            resultRoot = -1;
+        }
+        stamp++;
+        openSet.clear();
+        searching = true;
+        searchRoot = root;
+        searchTarget = target;
+        seenStamp[root] = stamp;
+        gScore[root] = 0;
+        parent[root] = -1;
+        openSet.add(key(grid.manhattan(root, target), 0), root);
+    }
+
+    private void search(int budget, PathfindingStats stats) {
+        int cols = grid.getCols();
+        while (budget > 0 && !openSet.isEmpty()) {
+            int current = openSet.poll();
+            if (closedStamp[current] == stamp) continue;
+            closedStamp[current] = stamp;
+            stats.expand(openSet.size() + 1);
+            budget--;
+
+            if (current == searchTarget) {
+                complete();
+                return;
+            }
+
+            int x = current % cols;
+            int y = current / cols;
+            int g = gScore[current] + 1;
+            if (grid.isWalkable(x + 1, y)) relax(current, current + 1, g);
+            if (grid.isWalkable(x - 1, y)) relax(current, current - 1, g);
+            if (grid.isWalkable(x, y + 1)) relax(current, current + cols, g);
+            if (grid.isWalkable(x, y - 1)) relax(current, current - cols, g);
+        }
+        if (openSet.isEmpty()) {
+            complete(); // The target can't be reached: the tree still holds every tile that can
+        }
+    }
+
+    private void relax(int from, int tile, int g) {
+        if (closedStamp[tile] == stamp) return;
+        if (seenStamp[tile] == stamp && gScore[tile] <= g) return;
+        seenStamp[tile] = stamp;
+        gScore[tile] = g;
+        parent[tile] = from;
+        openSet.add(key(g + grid.manhattan(tile, searchTarget), g), tile);
+    }
+
+    // The search becomes the result: its closed tiles have their shortest distance to the root (consistent heuristic)
+    private void complete() {
+        int[] swap = resultClosed;
+        resultClosed = closedStamp;
+        closedStamp = swap;
+        swap = resultG;
+        resultG = gScore;
+        gScore = swap;
+        swap = resultParent;
+        resultParent = parent;
+        parent = swap;
+        resultStamp = stamp;
+        resultRoot = searchRoot;
+        searching = false;
+        openSet.clear();
+    }
+
+    private boolean isInResult(int tile) {
+        return resultRoot >= 0 && resultClosed[tile] == resultStamp;
+    }
+
+    private void capture(int start, int length, PathfindingStats stats) {
+        boolean[] explored = new boolean[grid.size()];
+        for (int i = 0; i < explored.length; i++) {
+            explored[i] = isInResult(i);
+        }
+        int[] path = new int[length];
+        int tile = start;
+        for (int i = 0; i < length; i++) {
+            tile = resultParent[tile];
+            path[i] = tile;
+        }
+        stats.capture(explored, grid.getCols(), path, length);
+    }
+
+    // Orders by f, then by largest g
+    private static long key(int f, int g) {
+        return ((long) f << 32) - g;
+    }
+}
@@ -0,0 +1,58 @@
+package game.pathfinding;
+
+// Binary heap of tile indices ordered by a long key (used as the open set of A* and JPS, without boxing)
+class IntMinHeap {
+    private long[] keys = new long[64];
+    private int[] values = new int[64];
+    private int size = 0;
+
+    void add(long key, int value) {
+        if (size == keys.length) {
+            keys = java.util.Arrays.copyOf(keys, size * 2);
+            values = java.util.Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    // Removes the value with the smallest key and returns it
+    int poll() {
+        int result = values[0];
+        size--;
+        long key = keys[size];
+        int value = values[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+            if (key <= keys[child]) break;
+            keys[i] = keys[child];
+            values[i] = values[child];
+            i = child;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return result;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,130 @@
+package game.pathfinding;
+
+// Jump Point Search for a 4-directional grid: A* where, instead of adding every neighbor to the open set,
+// the search "jumps" straight along corridors and open areas and only stops on tiles where the path may turn
+// (tiles with a forced neighbor, or the goal). The symmetric paths of open rooms are not expanded, and the
+// paths found are still shortest ones.
+public class JumpPointEngine extends GridSearchEngine {
+    private final IntMinHeap openSet = new IntMinHeap();
+    private int[] gScore = new int[0];
+    private int[] gStamp = new int[0];
+    private int gStampValue = 0;
+
+    private TileGrid grid;
+    private int goal;
+
+    @Override
+    public String getName() {
+        return "JPS";
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        stats.begin(getName());
+        prepare(grid);
+        if (gScore.length < grid.size()) {
+            gScore = new int[grid.size()];
+            gStamp = new int[grid.size()];
+            gStampValue = 0;
+        }
+        gStampValue = nextStamp(gStamp, gStampValue);
+        openSet.clear();
+        this.grid = grid;
+        this.goal = goal;
+
+        setG(start, 0);
+        parent[start] = -1;
+        openSet.add(key(grid.manhattan(start, goal), 0), start);
+
+        boolean found = false;
+        while (!openSet.isEmpty()) {
+            int current = openSet.poll();
+            if (isVisited(current)) continue;
+            visitStamp[current] = stamp;
+            stats.expand(openSet.size() + 1);
+
+            if (current == goal) {
+                found = true;
+                break;
+            }
+            identifySuccessors(current);
+        }
+
+        int next = found ? buildPath(grid, start, goal) : -1;
+        report(grid, stats);
+        this.grid = null;
+        return next;
+    }
+
+    // Only the "natural" neighbors of the direction we come from are explored (all of them for the start tile)
+    private void identifySuccessors(int current) {
+        int x = grid.x(current);
+        int y = grid.y(current);
+        int from = parent[current];
+        if (from < 0) {
+            jumpFrom(current, x, y, 1, 0);
+            jumpFrom(current, x, y, -1, 0);
+            jumpFrom(current, x, y, 0, 1);
+            jumpFrom(current, x, y, 0, -1);
+            return;
+        }
+        int dx = Integer.signum(x - grid.x(from));
+        int dy = Integer.signum(y - grid.y(from));
+        if (dx != 0) {
+            jumpFrom(current, x, y, 0, -1);
+            jumpFrom(current, x, y, 0, 1);
+            jumpFrom(current, x, y, dx, 0);
+        } else {
+            jumpFrom(current, x, y, -1, 0);
+            jumpFrom(current, x, y, 1, 0);
+            jumpFrom(current, x, y, 0, dy);
+        }
+    }
+
+    private void jumpFrom(int current, int x, int y, int dx, int dy) {
+        int jumpPoint = jump(x + dx, y + dy, dx, dy);
+        if (jumpPoint < 0 || isVisited(jumpPoint)) return;
+        int g = gScore[current] + grid.manhattan(current, jumpPoint);
+        if (gStamp[jumpPoint] == gStampValue && gScore[jumpPoint] <= g) return;
+        setG(jumpPoint, g);
+        parent[jumpPoint] = current;
+        openSet.add(key(g + grid.manhattan(jumpPoint, goal), g), jumpPoint);
+    }
+
+    // Moves from (x, y) in the direction (dx, dy) until a jump point is found (returns its index) or a wall is hit (returns -1)
+    private int jump(int x, int y, int dx, int dy) {
+        while (true) {
+            if (grid.isBlocked(x, y)) return -1;
+            int tile = grid.index(x, y);
+            if (tile == goal) return tile;
+
+            if (dx != 0) {
+                // Moving horizontally: a tile is a jump point if a wall behind it opens on one side
+                if ((grid.isWalkable(x, y - 1) && grid.isBlocked(x - dx, y - 1))
+                        || (grid.isWalkable(x, y + 1) && grid.isBlocked(x - dx, y + 1))) {
+                    return tile;
+                }
+            } else {
+                if ((grid.isWalkable(x - 1, y) && grid.isBlocked(x - 1, y - dy))
+                        || (grid.isWalkable(x + 1, y) && grid.isBlocked(x + 1, y - dy))) {
+                    return tile;
+                }
+                // Moving vertically: also stop if a horizontal jump from here leads to a jump point
+                if (jump(x + 1, y, 1, 0) >= 0 || jump(x - 1, y, -1, 0) >= 0) {
+                    return tile;
+                }
+            }
+            x += dx;
+            y += dy;
+        }
+    }
+
+    private void setG(int tile, int g) {
+        gScore[tile] = g;
+        gStamp[tile] = gStampValue;
+    }
+
+    private static long key(int f, int g) {
+        return ((long) f << 32) - g;
+    }
+}
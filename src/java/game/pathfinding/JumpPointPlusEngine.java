@@ -0,0 +1,106 @@
+package game.pathfinding;
+
+// JPS+: Jump Point Search using the jump distances precomputed when the level is loaded (see JumpTable).
+// At runtime a jump is a table look-up instead of a walk along the corridor; the goal, which isn't known in advance,
+// is handled by stopping a jump on the goal (horizontal moves) or on the goal's row (vertical moves) when it is in range.
+public class JumpPointPlusEngine extends GridSearchEngine {
+    private static final int[] DX = { 1, -1, 0, 0 };
+    private static final int[] DY = { 0, 0, 1, -1 };
+
+    private final IntMinHeap openSet = new IntMinHeap();
+    private int[] gScore = new int[0];
+    private int[] gStamp = new int[0];
+    private int gStampValue = 0;
+
+    @Override
+    public String getName() {
+        return "JPS+";
+    }
+
+    @Override
+    public int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats) {
+        stats.begin(getName());
+        JumpTable table = grid.getJumpTable();
+        prepare(grid);
+        if (gScore.length < grid.size()) {
+            gScore = new int[grid.size()];
+            gStamp = new int[grid.size()];
+            gStampValue = 0;
+        }
+        gStampValue = nextStamp(gStamp, gStampValue);
+        openSet.clear();
+
+        setG(start, 0);
+        parent[start] = -1;
+        openSet.add(key(grid.manhattan(start, goal), 0), start);
+
+        boolean found = false;
+        while (!openSet.isEmpty()) {
+            int current = openSet.poll();
+            if (isVisited(current)) continue;
+            visitStamp[current] = stamp;
+            stats.expand(openSet.size() + 1);
+
+            if (current == goal) {
+                found = true;
+                break;
+            }
+
+            // Same pruning as JPS: all directions from the start, otherwise both sides and straight ahead
+            int from = parent[current];
+            if (from < 0) {
+                for (int d = 0; d < 4; d++) jump(grid, table, current, d, goal);
+            } else if (grid.y(from) == grid.y(current)) {
+                jump(grid, table, current, JumpTable.DOWN, goal);
+                jump(grid, table, current, JumpTable.UP, goal);
+                jump(grid, table, current, current > from ? JumpTable.RIGHT : JumpTable.LEFT, goal);
+            } else {
+                jump(grid, table, current, JumpTable.RIGHT, goal);
+                jump(grid, table, current, JumpTable.LEFT, goal);
+                jump(grid, table, current, current > from ? JumpTable.DOWN : JumpTable.UP, goal);
+            }
+        }
+
+        int next = found ? buildPath(grid, start, goal) : -1;
+        report(grid, stats);
+        return next;
+    }
+
+    private void jump(TileGrid grid, JumpTable table, int current, int direction, int goal) {
+        int distance = table.get(direction, current);
+        int range = Math.abs(distance); // Number of free tiles in this direction up to the jump point or the wall
+        int steps = distance > 0 ? distance : -1;
+
+        int x = grid.x(current);
+        int y = grid.y(current);
+        int gx = grid.x(goal);
+        int gy = grid.y(goal);
+        int toGoal;
+        if (DX[direction] != 0) {
+            toGoal = gy == y ? (gx - x) * DX[direction] : -1;
+        } else {
+            toGoal = (gy - y) * DY[direction];
+        }
+        if (toGoal > 0 && toGoal <= range && (steps < 0 || toGoal < steps)) {
+            steps = toGoal;
+        }
+        if (steps < 0) return;
+
+        int jumpPoint = grid.index(x + DX[direction] * steps, y + DY[direction] * steps);
+        if (isVisited(jumpPoint)) return;
+        int g = gScore[current] + steps;
+        if (gStamp[jumpPoint] == gStampValue && gScore[jumpPoint] <= g) return;
+        setG(jumpPoint, g);
+        parent[jumpPoint] = current;
+        openSet.add(key(g + grid.manhattan(jumpPoint, goal), g), jumpPoint);
+    }
+
+    private void setG(int tile, int g) {
+        gScore[tile] = g;
+        gStamp[tile] = gStampValue;
+    }
+
+    private static long key(int f, int g) {
+        return ((long) f << 32) - g;
+    }
+}
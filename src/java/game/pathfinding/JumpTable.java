@@ -0,0 +1,108 @@
+package game.pathfinding;
+
+// Jump distances of JPS+ for a 4-directional grid, computed once per level with one sweep per row and per column.
+// For each tile and direction: a positive value is the number of steps to the next jump point,
+// otherwise it is minus the number of free steps before a wall.
+// When a tile changes, only the rows and columns whose distances depend on it are swept again (see update()).
+public class JumpTable {
+    public static final int RIGHT = 0;
+    public static final int LEFT = 1;
+    public static final int DOWN = 2;
+    public static final int UP = 3;
+
+    private final TileGrid grid;
+    private final int[][] distances;
+
+    JumpTable(TileGrid grid) {
+        this.grid = grid;
+        distances = new int[4][grid.size()];
+        for (int y = 0; y < grid.getRows(); y++) {
+            sweepRow(y);
+        }
+        for (int x = 0; x < grid.getCols(); x++) {
+            sweepColumn(x);
+        }
+    }
+
+    public int get(int direction, int tile) {
+        return distances[direction][tile];
+    }
+
+    // The tile (x, y) was blocked or opened. Its row and the rows above and below are swept again (the walls of the rows
+    // next to a horizontal move make its jump points), then the columns next to it and the columns where a tile of these
+    // rows became or stopped being a horizontal jump point (a vertical move stops there)
+    void update(int x, int y) {
+        int cols = grid.getCols();
+        boolean[] columns = new boolean[cols];
+        for (int ry = Math.max(0, y - 1); ry <= Math.min(grid.getRows() - 1, y + 1); ry++) {
+            int first = grid.index(0, ry);
+            boolean[] before = new boolean[cols];
+            for (int rx = 0; rx < cols; rx++) {
+                before[rx] = horizontalJump(first + rx);
+            }
+            sweepRow(ry);
+            for (int rx = 0; rx < cols; rx++) {
+                if (horizontalJump(first + rx) != before[rx]) columns[rx] = true;
+            }
+        }
+        for (int cx = Math.max(0, x - 1); cx <= Math.min(cols - 1, x + 1); cx++) {
+            columns[cx] = true;
+        }
+        for (int cx = 0; cx < cols; cx++) {
+            if (columns[cx]) sweepColumn(cx);
+        }
+    }
+
+    // Horizontal moves: a tile is a jump point if a wall behind it opens above or below
+    private void sweepRow(int y) {
+        int[] right = distances[RIGHT];
+        int[] left = distances[LEFT];
+        int cols = grid.getCols();
+        for (int x = cols - 1; x >= 0; x--) {
+            right[grid.index(x, y)] = horizontalDistance(grid, right, x, y, 1);
+        }
+        for (int x = 0; x < cols; x++) {
+            left[grid.index(x, y)] = horizontalDistance(grid, left, x, y, -1);
+        }
+    }
+
+    // Vertical moves: same with the walls on the sides, and a tile is also a jump point
+    // if a horizontal move from it leads to a jump point (so the rows are swept first)
+    private void sweepColumn(int x) {
+        int[] down = distances[DOWN];
+        int[] up = distances[UP];
+        int rows = grid.getRows();
+        for (int y = rows - 1; y >= 0; y--) {
+            down[grid.index(x, y)] = verticalDistance(grid, x, y, 1);
+        }
+        for (int y = 0; y < rows; y++) {
+            up[grid.index(x, y)] = verticalDistance(grid, x, y, -1);
+        }
+    }
+
+    private boolean horizontalJump(int tile) {
+        return distances[RIGHT][tile] > 0 || distances[LEFT][tile] > 0;
+    }
+
+    private static int horizontalDistance(TileGrid grid, int[] table, int x, int y, int dx) {
+        int nx = x + dx;
+        if (grid.isBlocked(nx, y)) return 0;
+        boolean jumpPoint = (grid.isWalkable(nx, y - 1) && grid.isBlocked(nx - dx, y - 1))
+                || (grid.isWalkable(nx, y + 1) && grid.isBlocked(nx - dx, y + 1));
+        if (jumpPoint) return 1;
+        int next = table[grid.index(nx, y)];
+        return next > 0 ? next + 1 : next - 1;
+    }
+
+    private int verticalDistance(TileGrid grid, int x, int y, int dy) {
+        int ny = y + dy;
+        if (grid.isBlocked(x, ny)) return 0;
+        int nextTile = grid.index(x, ny);
+        boolean jumpPoint = (grid.isWalkable(x - 1, ny) && grid.isBlocked(x - 1, ny - dy))
+                || (grid.isWalkable(x + 1, ny) && grid.isBlocked(x + 1, ny - dy))
+                || horizontalJump(nextTile);
+        if (jumpPoint) return 1;
+        int next = distances[dy > 0 ? DOWN : UP][nextTile];
+        return next > 0 ? next + 1 : next - 1;
+    }
+}
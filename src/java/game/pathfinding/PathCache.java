@@ -0,0 +1,156 @@
+package game.pathfinding;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache of the next steps already computed in a game, shared by its ghosts: Pacman and the ghosts move 2 pixels per tick
+// on 8 pixel tiles, so the same (start tile, goal tile) query comes back for several ticks in a row.
+// Keys are primitive longs (engine << 56 | start << 28 | goal) in a 4-way set-associative table, evicting the least recently
+// used entry of a set; the table is allocated once, within a memory budget (-Dpacman.pathCache.maxBytes, 1 MB by default).
+// The engine is part of the key because the engines don't all break the ties between paths of the same length the same
+// way: a hit gives the answer the engine would have given, whatever the other ghosts asked before.
+// Each game has its own cache (see Game.getPathCache()), so neither the answers nor the time they take depend on the games
+// played before or at the same time on the same level. The cache is emptied when a tile of the grid changes.
+public class PathCache {
+    public static final long MISS = -1;
+
+    private static final int WAYS = 4;
+    private static final int BYTES_PER_ENTRY = 8 + 4 + 4 + 4;
+    private static final long MAX_BYTES = Long.getLong("pacman.pathCache.maxBytes", 1024 * 1024);
+
+    // Counters of every cache (for JMX)
+    private static final AtomicLong totalHits = new AtomicLong();
+    private static final AtomicLong totalMisses = new AtomicLong();
+
+    private final long[] keys;
+    private final int[] nextSteps;
+    private final int[] pathLengths;
+    private final int[] lastUse; // 0 = empty slot
+    private final int setMask;
+    private int clock = 0;
+    private int gridVersion = 0; // Version of the grid the entries were computed on
+    private long hits = 0;
+    private long misses = 0;
+
+    public PathCache() {
+        this(MAX_BYTES);
+    }
+
+    public PathCache(long maxBytes) {
+        int sets = Integer.highestOneBit((int) Math.max(1, Math.min(1 << 24, maxBytes / BYTES_PER_ENTRY / WAYS)));
+        setMask = sets - 1;
+        keys = new long[sets * WAYS];
+        nextSteps = new int[sets * WAYS];
+        pathLengths = new int[sets * WAYS];
+        lastUse = new int[sets * WAYS];
+    }
+
+    // Engine from 0 to 255, tiles below 2^28
+    public static long key(int engine, int start, int goal) {
+        return ((long) engine << 56) | ((long) start << 28) | goal;
+    }
+
+    // Returns the entry packed as (path length << 32 | next step), or MISS if the query isn't in the cache
+    public synchronized long get(long key, int gridVersion) {
+        if (gridVersion != this.gridVersion) {
+            Arrays.fill(lastUse, 0);
+            this.gridVersion = gridVersion;
+        }
+        int base = setOf(key);
+        for (int i = base; i < base + WAYS; i++) {
+            if (lastUse[i] != 0 && keys[i] == key) {
+                lastUse[i] = tick();
+                hits++;
+                totalHits.incrementAndGet();
+                return ((long) pathLengths[i] << 32) | (nextSteps[i] & 0xFFFFFFFFL);
+            }
+        }
+        misses++;
+        totalMisses.incrementAndGet();
+        return MISS;
+    }
+
+    public static int nextStep(long entry) {
+        return (int) entry;
+    }
+
+    public static int pathLength(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    // Ignored if the grid changed since the entry was computed
+    public synchronized void put(long key, int gridVersion, int nextStep, int pathLength) {
+        if (gridVersion != this.gridVersion) return;
+        int base = setOf(key);
+        int victim = base;
+        for (int i = base; i < base + WAYS; i++) {
+            if (lastUse[i] == 0 || keys[i] == key) {
+                victim = i;
+                break;
+            }
+            if (lastUse[i] - lastUse[victim] < 0) victim = i;
+        }
+        keys[victim] = key;
+        nextSteps[victim] = nextStep;
+        pathLengths[victim] = pathLength;
+        lastUse[victim] = tick();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public static long getTotalHits() {
+        return totalHits.get();
+    }
+
+    public static long getTotalMisses() {
+        return totalMisses.get();
+    }
+
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new PathCacheMXBean() {
+                @Override
+                public long getHits() {
+                    return getTotalHits();
+                }
+
+                @Override
+                public long getMisses() {
+                    return getTotalMisses();
+                }
+
+                @Override
+                public double getHitRate() {
+                    long hits = getTotalHits();
+                    long total = hits + getTotalMisses();
+                    return total == 0 ? 0 : (double) hits / total;
+                }
+            }, new ObjectName("game:type=PathCache"));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private int setOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return ((int) (h >>> 40) & setMask) * WAYS;
+    }
+
+    // Use counter, never 0 (0 marks the empty slots); the comparison above stays right when it wraps around
+    private int tick() {
+        if (++clock == 0) clock = 1;
+        return clock;
+    }
+}
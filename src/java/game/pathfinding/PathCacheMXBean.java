@@ -0,0 +1,8 @@
+package game.pathfinding;
+
+// Management interface of the path caches, registered as "game:type=PathCache" (counters of every cache since the start)
+public interface PathCacheMXBean {
+    long getHits();
+    long getMisses();
+    double getHitRate();
+}
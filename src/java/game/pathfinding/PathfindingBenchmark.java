@@ -0,0 +1,119 @@
+package game.pathfinding;
+
+import game.utils.CsvReader;
+
+import java.util.List;
+import java.util.Random;
+
+// Benchmark of the pathfinding back ends: the same random queries (fixed seed) are run by each engine,
+// on level.csv and on synthetic levels made of large open rooms. Then doors of a level of rooms open and close between
+// the queries of HPA*: its clusters are only rebuilt around them, and its answers are checked against a full rebuild.
+// Usage: java game.pathfinding.PathfindingBenchmark [queries] [engines...]
+public class PathfindingBenchmark {
+    public static void main(String[] args) throws Exception {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        String[] engines = args.length > 1 ? java.util.Arrays.copyOfRange(args, 1, args.length) : new String[] { "bfs", "astar", "bibfs", "jps", "jps+", "hpa" };
+
+        List<List<String>> level = new CsvReader().parseCsv(PathfindingBenchmark.class.getClassLoader().getResource("level/level.csv").toURI());
+        run("level.csv", TileGrid.fromCsv(level), queries, engines);
+        run("rooms 256x256", rooms(256, 256, 32, new Random(1)), queries, engines);
+        run("rooms 1024x1024", rooms(1024, 1024, 64, new Random(2)), Math.max(1, queries / 10), engines);
+        run("rooms 4096x4096", rooms(4096, 4096, 128, new Random(3)), Math.max(1, queries / 100), engines);
+        doors("rooms 1024x1024", rooms(1024, 1024, 64, new Random(2)), 64, Math.max(1, queries / 10));
+    }
+
+    // Opens or closes a tile of the walls between rooms before each query (TileGrid.setTileBlocked)
+    private static void doors(String label, TileGrid grid, int roomSize, int queries) {
+        HierarchicalPathfinder incremental = new HierarchicalPathfinder();
+        PathfindingStats stats = new PathfindingStats();
+        int[][] pairs = randomPairs(grid, queries, new Random(42));
+        Random random = new Random(7);
+        incremental.nextStep(grid, pairs[0][0], pairs[0][1], stats);
+        long incrementalNanos = 0;
+        long rebuildNanos = 0;
+        int mismatches = 0;
+        for (int[] pair : pairs) {
+            int x;
+            int y;
+            do {
+                x = 1 + random.nextInt(grid.getCols() - 2);
+                y = 1 + random.nextInt(grid.getRows() - 2);
+            } while (x % roomSize != 0 && y % roomSize != 0);
+            grid.setTileBlocked(x, y, !grid.isBlocked(x, y));
+            if (grid.isBlocked(pair[0]) || grid.isBlocked(pair[1])) continue;
+
+            long t = System.nanoTime();
+            int step = incremental.nextStep(grid, pair[0], pair[1], stats);
+            incrementalNanos += System.nanoTime() - t;
+            t = System.nanoTime();
+            int expected = new HierarchicalPathfinder().nextStep(grid, pair[0], pair[1], stats);
+            rebuildNanos += System.nanoTime() - t;
+            if (step != expected) mismatches++;
+        }
+        System.out.printf("%s, a door changed before each query: HPA* %.1f us/query incremental, %.1f us/query rebuilt, %d mismatches%n",
+                label, incrementalNanos / 1e3 / queries, rebuildNanos / 1e3 / queries, mismatches);
+    }
+
+    private static void run(String label, TileGrid grid, int queries, String[] engines) {
+        long startTime = System.nanoTime();
+        grid.getJumpTable();
+        System.out.printf("%s: %d walkable tiles, open ratio %.2f, JPS+ preprocessing %.1f ms%n",
+                label, grid.getWalkableCount(), grid.getOpenRatio(), (System.nanoTime() - startTime) / 1e6);
+
+        int[][] pairs = randomPairs(grid, queries, new Random(42));
+        for (String name : engines) {
+            PathfindingEngine engine = PathfindingEngines.create(name);
+            PathfindingStats stats = new PathfindingStats();
+            // Warm-up so the JIT has compiled the search
+            for (int i = 0; i < Math.min(queries, 200); i++) {
+                engine.nextStep(grid, pairs[i][0], pairs[i][1], stats);
+            }
+            long expanded = 0;
+            long nanos = 0;
+            long length = 0;
+            for (int[] pair : pairs) {
+                long t = System.nanoTime();
+                engine.nextStep(grid, pair[0], pair[1], stats);
+                nanos += System.nanoTime() - t;
+                expanded += stats.getExpandedNodes();
+                length += stats.getPathLength();
+            }
+            System.out.printf("  %-8s %10.1f us/query %10.0f nodes/query %8.1f path length%n",
+                    engine.getName(), nanos / 1e3 / queries, (double) expanded / queries, (double) length / queries);
+        }
+    }
+
+    private static int[][] randomPairs(TileGrid grid, int count, Random random) {
+        int[][] pairs = new int[count][2];
+        for (int i = 0; i < count; i++) {
+            do {
+                pairs[i][0] = random.nextInt(grid.size());
+                pairs[i][1] = random.nextInt(grid.size());
+            } while (grid.isBlocked(pairs[i][0]) || grid.isBlocked(pairs[i][1]) || pairs[i][0] == pairs[i][1]);
+        }
+        return pairs;
+    }
+
+    // Level made of square rooms separated by walls, each wall having a door of random position and width
+    static TileGrid rooms(int cols, int rows, int roomSize, Random random) {
+        TileGrid grid = new TileGrid(cols, rows);
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                if (x % roomSize == 0 || y % roomSize == 0 || x == cols - 1 || y == rows - 1) grid.setBlocked(x, y, true);
+            }
+        }
+        for (int ry = 0; ry < rows / roomSize; ry++) {
+            for (int rx = 0; rx < cols / roomSize; rx++) {
+                int width = 2 + random.nextInt(4);
+                int doorX = rx * roomSize + 1 + random.nextInt(roomSize - width - 1);
+                int doorY = ry * roomSize + 1 + random.nextInt(roomSize - width - 1);
+                for (int i = 0; i < width; i++) {
+                    if (rx > 0) grid.setBlocked(rx * roomSize, doorY + i, false);
+                    if (ry > 0) grid.setBlocked(doorX + i, ry * roomSize, false);
+                }
+            }
+        }
+        grid.computeStatistics();
+        return grid;
+    }
+}
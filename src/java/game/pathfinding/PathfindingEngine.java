@@ -0,0 +1,29 @@
+package game.pathfinding;
+
+// Interface of the pathfinding back ends: they find a shortest path between two tiles of the grid
+// (4-directional moves, all of cost 1) and return the first step of that path.
+// HierarchicalPathfinder is the exception: its paths are only near-shortest.
+public interface PathfindingEngine {
+    // Returns the index of the tile following start on a shortest path to goal, or -1 if goal can't be reached
+    // (start and goal must be different); the search is reported to stats
+    int nextStep(TileGrid grid, int start, int goal, PathfindingStats stats);
+
+    String getName();
+
+    // True if the answer for this goal is already known, so a query costs almost nothing
+    default boolean isPrecomputed(TileGrid grid, int goal) {
+        return false;
+    }
+
+    // True if the step returned is always the first neighbor of start, in the order right, left, down, up, that is on a
+    // shortest path (the engines that stop at the first shortest path they find may return another one, see AdaptivePathfinder)
+    default boolean isCanonical() {
+        return false;
+    }
+
+    // True if the answer also depends on the previous calls (e.g. a search spread over several ticks),
+    // in which case it must not be cached
+    default boolean isIncremental() {
+        return false;
+    }
+}
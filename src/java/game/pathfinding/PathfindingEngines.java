@@ -0,0 +1,42 @@
+package game.pathfinding;
+
+// Creation of the pathfinding back ends by name ("bfs", "astar", "bibfs", "jps", "jps+", "hpa", "table", "adaptive" or "sliced")
+public final class PathfindingEngines {
+    public static final String[] NAMES = { "bfs", "astar", "bibfs", "jps", "jps+", "hpa", "table", "adaptive", "sliced" };
+
+    private PathfindingEngines() {}
+
+    public static PathfindingEngine create(String name) {
+        switch (name.toLowerCase()) {
+            case "bfs":
+                return new BfsEngine();
+            case "astar":
+            case "a*":
+                return new AStarEngine();
+            case "bibfs":
+                return new BidirectionalBfsEngine();
+            case "jps":
+                return new JumpPointEngine();
+            case "jps+":
+            case "jpsplus":
+                return new JumpPointPlusEngine();
+            case "hpa":
+            case "hpa*":
+                return new HierarchicalPathfinder();
+            case "table":
+                return new DistanceTableEngine();
+            case "adaptive":
+                return AdaptivePathfinder.withAllBackends();
+            case "sliced":
+                return new IncrementalAStarEngine();
+            default:
+                throw new IllegalArgumentException("Unknown pathfinding engine: " + name);
+        }
+    }
+
+    // Engine forced for every ghost with -Dpacman.pathfinding=<name>, or the given default
+    public static PathfindingEngine createOrDefault(PathfindingEngine defaultEngine) {
+        String name = System.getProperty("pacman.pathfinding");
+        return name == null ? defaultEngine : create(name);
+    }
+}
@@ -0,0 +1,143 @@
+package game.pathfinding;
+
+// Statistics of the searches done by a ghost strategy: the values of the last call, and totals since the start of the game.
+// When the debug overlay is shown, the explored tiles and the path of the last call are also kept so they can be drawn.
+public class PathfindingStats {
+    private static volatile boolean captureDebug = false;
+
+    // Last call
+    private String algorithm = "direct";
+    private int expandedNodes = 0;
+    private int frontierPeak = 0;
+    private int pathLength = 0;
+    private long nanos = 0;
+    private long startTime = 0;
+
+    // Totals
+    private long calls = 0;
+    private long totalExpandedNodes = 0;
+    private long totalNanos = 0;
+    private int maxFrontierPeak = 0;
+
+    // Debug data of the last call (tile indices of the grid the search ran on)
+    private volatile boolean[] explored;
+    private volatile int exploredCols;
+    private volatile int[] path = new int[0]; // From the first step to the goal
+
+    public static boolean isCaptureDebug() {
+        return captureDebug;
+    }
+
+    public static void toggleCaptureDebug() {
+        captureDebug = !captureDebug;
+    }
+
+    // Called at the start of a search
+    public void begin(String algorithm) {
+        this.algorithm = algorithm;
+        expandedNodes = 0;
+        frontierPeak = 0;
+        pathLength = 0;
+        startTime = System.nanoTime();
+    }
+
+    // Called each time a node is taken out of the frontier, with the size of the frontier
+    public void expand(int frontierSize) {
+        expandedNodes++;
+        if (frontierSize > frontierPeak) frontierPeak = frontierSize;
+    }
+
+    // Called at the end of a search with the length of the path found (0 if there is none)
+    public void end(int pathLength) {
+        nanos = System.nanoTime() - startTime;
+        this.pathLength = pathLength;
+        calls++;
+        totalExpandedNodes += expandedNodes;
+        totalNanos += nanos;
+        if (frontierPeak > maxFrontierPeak) maxFrontierPeak = frontierPeak;
+    }
+
+    // Called after end() for work done for the same call (e.g. the searches checking the step of another engine)
+    public void add(int expandedNodes, long nanos) {
+        this.expandedNodes += expandedNodes;
+        this.nanos += nanos;
+        totalExpandedNodes += expandedNodes;
+        totalNanos += nanos;
+    }
+
+    // Called after end() when isCaptureDebug() is true
+    public void capture(boolean[] explored, int cols, int[] path, int pathLength) {
+        int[] copy = new int[pathLength];
+        System.arraycopy(path, 0, copy, 0, pathLength);
+        this.exploredCols = cols;
+        this.explored = explored;
+        this.path = copy;
+    }
+
+    // Called when no search was needed (e.g. the ghost is already on Pacman's tile)
+    public void direct() {
+        algorithm = "direct";
+        expandedNodes = 0;
+        frontierPeak = 0;
+        pathLength = 0;
+        nanos = 0;
+        explored = null;
+        path = new int[0];
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    public int getFrontierPeak() {
+        return frontierPeak;
+    }
+
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getTotalExpandedNodes() {
+        return totalExpandedNodes;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public int getMaxFrontierPeak() {
+        return maxFrontierPeak;
+    }
+
+    public boolean[] getExplored() {
+        return explored;
+    }
+
+    public int getExploredCols() {
+        return exploredCols;
+    }
+
+    public int[] getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s nodes=%d peak=%d len=%d %.3fms (avg %.0f nodes, %.3fms)",
+                algorithm, expandedNodes, frontierPeak, pathLength, nanos / 1e6,
+                calls == 0 ? 0.0 : (double) totalExpandedNodes / calls,
+                calls == 0 ? 0.0 : totalNanos / 1e6 / calls);
+    }
+}
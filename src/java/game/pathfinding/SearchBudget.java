@@ -0,0 +1,28 @@
+package game.pathfinding;
+
+// Number of nodes the incremental searches may expand during the current tick, shared by every ghost
+// (-Dpacman.pathfinding.nodesPerTick, 1024 by default). Game.update() starts a new tick.
+// Each thread has its own budget, since the games running on other threads (headless games, simulations) have their own ticks.
+public final class SearchBudget {
+    private static final int NODES_PER_TICK = Integer.getInteger("pacman.pathfinding.nodesPerTick", 1024);
+
+    private static final ThreadLocal<int[]> remaining = ThreadLocal.withInitial(() -> new int[] { NODES_PER_TICK });
+
+    private SearchBudget() {}
+
+    public static void newTick() {
+        remaining.get()[0] = NODES_PER_TICK;
+    }
+
+    // Takes up to max nodes from the budget and returns how many were granted
+    public static int take(int max) {
+        int[] budget = remaining.get();
+        int granted = Math.min(max, budget[0]);
+        budget[0] -= granted;
+        return granted;
+    }
+
+    public static int getRemaining() {
+        return remaining.get()[0];
+    }
+}
@@ -0,0 +1,243 @@
+package game.pathfinding;
+
+import game.TileMap;
+import game.entities.Wall;
+
+import java.util.List;
+
+// Grid of the level's tiles (8x8 pixels), telling which tiles are blocked by a wall.
+// It is built once when the level is loaded and shared by every ghost, instead of being rebuilt from the walls on each search.
+// Tiles are referenced by their index (y * cols + x); tiles outside of the grid are considered blocked.
+public class TileGrid {
+    public static final int TILE_SIZE = 8;
+
+    private final int cols;
+    private final int rows;
+    private final boolean[] blocked;
+
+    // Statistics of the maze, used by the adaptive pathfinder
+    private int walkableCount;
+    private int openCount; // Walkable tiles in the middle of a 5x5 square of walkable tiles (see getOpenRatio())
+    private static final int OPEN_RADIUS = 2;
+
+    private DistanceTable distanceTable;
+    private JumpTable jumpTable;
+    private static final int CHANGE_LOG = 256;
+    private final int[] changes = new int[CHANGE_LOG]; // Tiles changed by the last versions (circular, by version)
+    private volatile int version = 0;
+    private boolean frozen = false; // Snapshots can't be changed
+    private TileGrid snapshot;
+
+    public TileGrid(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.blocked = new boolean[cols * rows];
+    }
+
+    public static TileGrid fromWalls(List<? extends Wall> walls, int cols, int rows) {
+        TileGrid grid = new TileGrid(cols, rows);
+        for (Wall wall : walls) {
+            int wx = wall.getxPos() / TILE_SIZE;
+            int wy = wall.getyPos() / TILE_SIZE;
+            if (wx >= 0 && wx < cols && wy >= 0 && wy < rows) {
+                grid.blocked[grid.index(wx, wy)] = true;
+            }
+        }
+        grid.computeStatistics();
+        return grid;
+    }
+
+    // Grid of a level CSV file: walls ("x") and the walls of the ghosts' house ("-") are blocked
+    public static TileGrid fromCsv(List<List<String>> data) {
+        TileGrid grid = new TileGrid(data.get(0).size(), data.size());
+        for (int y = 0; y < grid.rows; y++) {
+            for (int x = 0; x < grid.cols; x++) {
+                String cell = data.get(y).get(x);
+                grid.blocked[grid.index(x, y)] = cell.equals("x") || cell.equals("-");
+            }
+        }
+        grid.computeStatistics();
+        return grid;
+    }
+
+    // Grid of a level's TileMap: walls and the walls of the ghosts' house are blocked
+    public static TileGrid fromTiles(int cols, int rows, byte[] tiles) {
+        TileGrid grid = new TileGrid(cols, rows);
+        for (int i = 0; i < tiles.length; i++) {
+            grid.blocked[i] = TileMap.isWall(tiles[i], false);
+        }
+        grid.computeStatistics();
+        return grid;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return blocked.length;
+    }
+
+    public int index(int x, int y) {
+        return y * cols + x;
+    }
+
+    public int x(int index) {
+        return index % cols;
+    }
+
+    public int y(int index) {
+        return index / cols;
+    }
+
+    public boolean isBlocked(int index) {
+        return blocked[index];
+    }
+
+    public boolean isBlocked(int x, int y) {
+        return x < 0 || x >= cols || y < 0 || y >= rows || blocked[y * cols + x];
+    }
+
+    // Only for building a grid: the tables computed from it are not updated
+    void setBlocked(int x, int y, boolean b) {
+        blocked[index(x, y)] = b;
+    }
+
+    // Changes a tile while the level is being played (e.g. a door that opens): the statistics and the precomputed tables
+    // are updated around the tile, and the hierarchical pathfinders only rebuild the clusters around it (see changedSince())
+    public synchronized void setTileBlocked(int x, int y, boolean b) {
+        if (frozen) throw new IllegalStateException("A snapshot of the grid can't be changed");
+        if (blocked[index(x, y)] == b) return;
+        int openBefore = openAround(x, y);
+        blocked[index(x, y)] = b;
+        walkableCount += b ? -1 : 1;
+        openCount += openAround(x, y) - openBefore;
+        changes[version % CHANGE_LOG] = index(x, y);
+        version++;
+        if (jumpTable != null) jumpTable.update(x, y);
+        if (distanceTable != null) distanceTable.update(index(x, y));
+    }
+
+    // Copy of the grid that never changes, for the searches running on other threads
+    // (the same copy is returned as long as no tile changes)
+    public synchronized TileGrid snapshot() {
+        if (frozen) return this;
+        if (snapshot == null || snapshot.version != version) {
+            TileGrid copy = new TileGrid(cols, rows);
+            System.arraycopy(blocked, 0, copy.blocked, 0, blocked.length);
+            copy.version = version;
+            copy.frozen = true;
+            copy.walkableCount = walkableCount;
+            copy.openCount = openCount;
+            snapshot = copy;
+        }
+        return snapshot;
+    }
+
+    // Incremented each time a tile changes
+    public int getVersion() {
+        return version;
+    }
+
+    // Tiles changed since the given version (oldest first), or null if more tiles changed than the grid remembers.
+    // The engines that keep structures built from the grid ask for them instead of registering with it,
+    // so a grid shared by every game doesn't keep a reference to the engines of the games
+    public synchronized int[] changedSince(int since) {
+        int count = version - since;
+        if (count > CHANGE_LOG) return null;
+        int[] tiles = new int[count];
+        for (int i = 0; i < count; i++) {
+            tiles[i] = changes[(since + i) % CHANGE_LOG];
+        }
+        return tiles;
+    }
+
+    public boolean isWalkable(int x, int y) {
+        return !isBlocked(x, y);
+    }
+
+    // Tile containing the given pixel position (clamped to the grid)
+    public int tileAt(int xPos, int yPos) {
+        int x = Math.max(0, Math.min(cols - 1, xPos / TILE_SIZE));
+        int y = Math.max(0, Math.min(rows - 1, yPos / TILE_SIZE));
+        return index(x, y);
+    }
+
+    public int manhattan(int a, int b) {
+        return Math.abs(x(a) - x(b)) + Math.abs(y(a) - y(b));
+    }
+
+    public int getWalkableCount() {
+        return walkableCount;
+    }
+
+    // Share of the walkable tiles in the middle of a 5x5 square of walkable tiles, i.e. in a space wider than the corridors
+    // of the level files (4 tiles): 0.02 for level.csv and the generated mazes, 0.76 and more for levels of open rooms
+    public double getOpenRatio() {
+        return walkableCount == 0 ? 0 : (double) openCount / walkableCount;
+    }
+
+    // Table of the distances to the goals already queried (rows are computed lazily)
+    public synchronized DistanceTable getDistanceTable() {
+        if (distanceTable == null) {
+            distanceTable = new DistanceTable(this);
+        }
+        return distanceTable;
+    }
+
+    // Jump distances for JPS+ (computed on first use, i.e. when the level is loaded if the game asks for it then)
+    public synchronized JumpTable getJumpTable() {
+        if (jumpTable == null) {
+            jumpTable = new JumpTable(this);
+        }
+        return jumpTable;
+    }
+
+    // Open tiles among the tiles whose 5x5 square contains (x, y)
+    private int openAround(int x, int y) {
+        int count = 0;
+        for (int cy = y - OPEN_RADIUS; cy <= y + OPEN_RADIUS; cy++) {
+            for (int cx = x - OPEN_RADIUS; cx <= x + OPEN_RADIUS; cx++) {
+                if (isOpen(cx, cy)) count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isOpen(int x, int y) {
+        for (int dy = -OPEN_RADIUS; dy <= OPEN_RADIUS; dy++) {
+            for (int dx = -OPEN_RADIUS; dx <= OPEN_RADIUS; dx++) {
+                if (isBlocked(x + dx, y + dy)) return false;
+            }
+        }
+        return true;
+    }
+
+    // In two passes over the runs of tiles: along the rows, rowOpen marks the middle of 5 walkable tiles in a row,
+    // then along the columns, a tile is open in the middle of 5 of them in a column
+    void computeStatistics() {
+        int width = 2 * OPEN_RADIUS + 1;
+        boolean[] rowOpen = new boolean[blocked.length];
+        walkableCount = 0;
+        for (int y = 0; y < rows; y++) {
+            int run = 0; // Walkable tiles in a row ending at x
+            for (int x = 0; x < cols; x++) {
+                run = blocked[index(x, y)] ? 0 : run + 1;
+                if (run > 0) walkableCount++;
+                if (run >= width) rowOpen[index(x - OPEN_RADIUS, y)] = true;
+            }
+        }
+        openCount = 0;
+        for (int x = 0; x < cols; x++) {
+            int run = 0;
+            for (int y = 0; y < rows; y++) {
+                run = rowOpen[index(x, y)] ? run + 1 : 0;
+                if (run >= width) openCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package game.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event covering one call to IGhostStrategy.getChaseTargetPosition
+@Name("game.GhostDecision")
+@Label("Ghost Decision")
+@Category({"Pacman", "Ghosts"})
+@Description("Computation of the chase target of a ghost by its strategy")
+public class GhostDecisionEvent extends jdk.jfr.Event {
+    @Label("Ghost")
+    public String ghost;
+
+    @Label("Strategy")
+    public String strategy;
+
+    @Label("Algorithm")
+    @Description("Search algorithm used for this call (BFS, A*, or direct when no search is done)")
+    public String algorithm;
+
+    @Label("Expanded Nodes")
+    public int expandedNodes;
+
+    @Label("Frontier Peak")
+    public int frontierPeak;
+
+    @Label("Path Length")
+    public int pathLength;
+}
@@ -0,0 +1,20 @@
+package game.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event emitted when a ghost switches from a GhostState to another
+@Name("game.GhostStateTransition")
+@Label("Ghost State Transition")
+@Category({"Pacman", "Ghosts"})
+public class GhostStateTransitionEvent extends jdk.jfr.Event {
+    @Label("Ghost")
+    public String ghost;
+
+    @Label("From")
+    public String from;
+
+    @Label("To")
+    public String to;
+}
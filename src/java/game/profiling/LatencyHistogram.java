@@ -0,0 +1,76 @@
+package game.profiling;
+
+// Histogram of durations (in nanoseconds) with logarithmic buckets, in the spirit of HdrHistogram:
+// each power of two is split into 16 sub-buckets, which gives ~6% precision over the whole range of a long.
+// Recording a value never allocates.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount = 0;
+    private long max = 0;
+    private long sum = 0;
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    // Returns the highest value of the bucket containing the given percentile (0 to 100)
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= countAtPercentile) {
+                return Math.min(max, highestValueOf(i));
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+        sum = 0;
+    }
+
+    // Values below 16 get their own bucket, above that the 4 bits following the highest bit select the sub-bucket
+    private static int indexOf(long value) {
+        int msb = 63 - Long.numberOfLeadingZeros(value | 1);
+        if (msb < SUB_BUCKET_BITS) return (int) value;
+        int shift = msb - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    private static long lowestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT;
+        return subBucket << shift;
+    }
+
+    private static long highestValueOf(int index) {
+        if (index == BUCKET_COUNT - 1) return Long.MAX_VALUE;
+        return lowestValueOf(index + 1) - 1;
+    }
+}
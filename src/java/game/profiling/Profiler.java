@@ -0,0 +1,253 @@
+package game.profiling;
+
+import javax.management.ObjectName;
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+
+// Lightweight profiler of the game loop: each phase has a latency histogram, and timing a phase
+// is only two System.nanoTime() calls and an array update (no allocation).
+// Phases may be nested (e.g. "collision" is measured inside "update.Pacman").
+// Results are shown in an overlay (toggled with the P key), exposed through JMX, and logged periodically;
+// every log line closes the current reporting window.
+// Only the game thread (see setGameThread()) records: the histograms aren't shared between threads, and the games that
+// run on other threads (tournament workers, simulations of the agents, rooms of the server) are not timed.
+//
+// System properties: -Dpacman.profiler=false disables the timers (the user's switch; the callers that run games on
+// other threads don't turn the profiler off any more, they simply aren't the game thread),
+// -Dpacman.profiler.logInterval=<seconds> changes the log period (0 disables the log line).
+public final class Profiler {
+    private static final int MAX_PHASES = 64;
+    private static final double FRAME_BUDGET_MS = 1000.0 / 60.0;
+
+    private static final String[] names = new String[MAX_PHASES];
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[MAX_PHASES];
+    private static volatile int phaseCount = 0;
+    private static volatile Thread gameThread; // The only thread that records
+
+    private static final Font OVERLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 9);
+    private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 180);
+
+    private static volatile boolean enabled = !"false".equals(System.getProperty("pacman.profiler"));
+    private static volatile boolean overlayVisible = false;
+    private static volatile boolean resetRequested = false;
+
+    private static final long logInterval = Long.getLong("pacman.profiler.logInterval", 10) * 1_000_000_000L;
+    private static long lastLogTime = System.nanoTime();
+
+    // Phases of the game loop
+    public static final int INPUT = register("input");
+    public static final int UPDATE = register("update");
+    public static final int COLLISION = register("collision");
+    public static final int RENDER = register("render");
+    public static final int DRAW = register("draw");
+
+    // One phase per entity type ("update.Pacman", "update.Blinky"...) and per ghost strategy ("strategy.BlinkyStrategy"...),
+    // created the first time the type is seen
+    private static final ClassValue<Integer> entityPhases = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return register("update." + type.getSimpleName());
+        }
+    };
+    private static final ClassValue<Integer> strategyPhases = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return register("strategy." + type.getSimpleName());
+        }
+    };
+
+    private Profiler() {}
+
+    // Returns the id of the phase with this name, creating it if needed
+    public static synchronized int register(String name) {
+        for (int i = 0; i < phaseCount; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        if (phaseCount == MAX_PHASES) {
+            throw new IllegalStateException("Too many profiler phases");
+        }
+        names[phaseCount] = name;
+        histograms[phaseCount] = new LatencyHistogram();
+        return phaseCount++;
+    }
+
+    public static int entityPhase(Object entity) {
+        return entityPhases.get(entity.getClass());
+    }
+
+    public static int strategyPhase(Object strategy) {
+        return strategyPhases.get(strategy.getClass());
+    }
+
+    // Called by the game loop before its first frame
+    public static void setGameThread(Thread thread) {
+        gameThread = thread;
+    }
+
+    // Usage: long t = Profiler.start(); ... Profiler.stop(Profiler.RENDER, t);
+    // 0 on the other threads: stop() then records nothing
+    public static long start() {
+        return enabled && Thread.currentThread() == gameThread ? System.nanoTime() : 0L;
+    }
+
+    public static void stop(int phase, long start) {
+        if (start != 0L) {
+            histograms[phase].record(System.nanoTime() - start);
+        }
+    }
+
+    // Called by the game thread at the end of each frame (histograms are only modified by this thread)
+    public static void endFrame() {
+        if (resetRequested) {
+            resetHistograms();
+            resetRequested = false;
+        }
+        if (logInterval > 0) {
+            long now = System.nanoTime();
+            if (now - lastLogTime >= logInterval) {
+                lastLogTime = now;
+                if (enabled) {
+                    System.out.println(getReport());
+                    resetHistograms();
+                }
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean b) {
+        enabled = b;
+    }
+
+    public static void toggleOverlay() {
+        overlayVisible = !overlayVisible;
+    }
+
+    public static void requestReset() {
+        resetRequested = true;
+    }
+
+    public static int getPhaseCount() {
+        return phaseCount;
+    }
+
+    public static String getPhaseName(int phase) {
+        return names[phase];
+    }
+
+    public static LatencyHistogram getHistogram(int phase) {
+        return histograms[phase];
+    }
+
+    public static int findPhase(String name) {
+        for (int i = 0; i < phaseCount; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    // One line per phase that was measured in the current window; phases whose max exceeds the frame budget are flagged
+    public static String getReport() {
+        StringBuilder sb = new StringBuilder("[profiler]");
+        for (int i = 0; i < phaseCount; i++) {
+            LatencyHistogram h = histograms[i];
+            if (h.getCount() == 0) continue;
+            double max = h.getMax() / 1e6;
+            sb.append(String.format("%n  %-28s n=%-7d p50=%.3fms p99=%.3fms max=%.3fms%s",
+                    names[i], h.getCount(), h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, max,
+                    max > FRAME_BUDGET_MS ? " OVER BUDGET" : ""));
+        }
+        return sb.toString();
+    }
+
+    // Draws the overlay on top of the game rendering (only the lines of text allocate, while it is visible)
+    public static void renderOverlay(Graphics2D g, int width) {
+        if (!overlayVisible) return;
+        g.setFont(OVERLAY_FONT);
+        int lines = 0;
+        for (int i = 0; i < phaseCount; i++) {
+            if (histograms[i].getCount() > 0) lines++;
+        }
+        g.setColor(OVERLAY_BACKGROUND);
+        g.fillRect(0, 0, width, 14 + lines * 11);
+        int y = 11;
+        for (int i = 0; i < phaseCount; i++) {
+            LatencyHistogram h = histograms[i];
+            if (h.getCount() == 0) continue;
+            g.setColor(h.getMax() / 1e6 > FRAME_BUDGET_MS ? Color.red : Color.green);
+            g.drawString(String.format("%-24s p50 %6.3f p99 %6.3f max %6.3f",
+                    names[i], h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6), 4, y);
+            y += 11;
+        }
+    }
+
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Management(), new ObjectName("game:type=Profiler"));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void resetHistograms() {
+        for (int i = 0; i < phaseCount; i++) {
+            histograms[i].reset();
+        }
+    }
+
+    private static class Management implements ProfilerMXBean {
+        @Override
+        public String[] getPhases() {
+            String[] phases = new String[phaseCount];
+            System.arraycopy(names, 0, phases, 0, phases.length);
+            return phases;
+        }
+
+        @Override
+        public long getCount(String phase) {
+            int i = findPhase(phase);
+            return i < 0 ? 0 : histograms[i].getCount();
+        }
+
+        @Override
+        public double getP50Millis(String phase) {
+            int i = findPhase(phase);
+            return i < 0 ? 0 : histograms[i].getPercentile(50) / 1e6;
+        }
+
+        @Override
+        public double getP99Millis(String phase) {
+            int i = findPhase(phase);
+            return i < 0 ? 0 : histograms[i].getPercentile(99) / 1e6;
+        }
+
+        @Override
+        public double getMaxMillis(String phase) {
+            int i = findPhase(phase);
+            return i < 0 ? 0 : histograms[i].getMax() / 1e6;
+        }
+
+        @Override
+        public String getReport() {
+            return Profiler.getReport();
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return Profiler.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Profiler.setEnabled(enabled);
+        }
+
+        @Override
+        public void reset() {
+            Profiler.requestReset();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package game.profiling;
+
+// Management interface of the profiler, registered as "game:type=Profiler"
+// (times are in milliseconds, and cover the current reporting window)
+public interface ProfilerMXBean {
+    String[] getPhases();
+    long getCount(String phase);
+    double getP50Millis(String phase);
+    double getP99Millis(String phase);
+    double getMaxMillis(String phase);
+    String getReport();
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    void reset();
+}
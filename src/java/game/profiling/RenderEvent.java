@@ -0,0 +1,16 @@
+package game.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event covering one frame (render to the back-buffer + draw on screen)
+@Name("game.Render")
+@Label("Game Render")
+@Category({"Pacman", "Game Loop"})
+@Description("Rendering of the entities into the back-buffer and copy to the screen")
+public class RenderEvent extends jdk.jfr.Event {
+    @Label("Frame")
+    public long frame;
+}
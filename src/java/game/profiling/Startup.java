@@ -0,0 +1,41 @@
+package game.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Steps of the startup, timed from the start of the JVM: with -Dpacman.startup.timing=true they are printed at the first
+// frame. With -Dpacman.startup.exit=true the application exits right after its first frame: to measure the time to the
+// first frame from a script, or to record the classes loaded by the startup in a CDS archive (see cds/ and the README).
+public final class Startup {
+    private static final boolean TIMING = Boolean.getBoolean("pacman.startup.timing");
+    private static final boolean EXIT = Boolean.getBoolean("pacman.startup.exit");
+
+    private static final List<String> steps = new ArrayList<>();
+    private static volatile boolean firstFrameDone = false;
+
+    private Startup() {}
+
+    // Called from any thread; does nothing unless the startup is timed
+    public static void mark(String step) {
+        if (!TIMING || firstFrameDone) return;
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        synchronized (steps) {
+            steps.add(step + " " + uptime + " ms (" + Thread.currentThread().getName() + ")");
+        }
+    }
+
+    public static void firstFrame() {
+        if (firstFrameDone) return;
+        mark("first frame");
+        firstFrameDone = true;
+        if (TIMING) {
+            synchronized (steps) {
+                System.out.println("Startup: " + String.join(", ", steps));
+            }
+        }
+        if (EXIT) {
+            System.exit(0);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package game.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event covering one game update (input + Game.update)
+@Name("game.Tick")
+@Label("Game Tick")
+@Category({"Pacman", "Game Loop"})
+@Description("Input handling and update of every entity for one tick")
+public class TickEvent extends jdk.jfr.Event {
+    @Label("Tick")
+    public long tick;
+}
@@ -0,0 +1,248 @@
+package game.replay;
+
+import game.GameSnapshot;
+import game.Level;
+import game.net.StateCodec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Replay file of a game, recorded by ReplayWriter and played by ReplayPlayer. A game is deterministic given its level,
+// its seed and the directions given to Pacman at each tick, so only the changes of direction are needed; the keyframes
+// (the whole state of the game every few seconds) let a player start from anywhere instead of the first tick.
+// Numbers are big-endian, ticks and gaps are varints (see StateCodec):
+//   header:  magic "PACR" (int), format version (short), engine version (int), hash of the level (long),
+//            level (string), seed (long), keyframe interval (int), number of settings (byte), then for each one its
+//            name and its value (strings, "" if the property is not set)
+//   strings are UTF-8 after their length as a short
+//   records: 'I' gap from the tick of the previous record, directions held from that tick on (byte, Game.KEY_*)
+//            'K' tick, directions held (byte), state of the game before that tick's update (StateCodec keyframe)
+//   index:   'X' last tick, score (int), ghost that caught Pacman (byte, -1 if none), game over (byte), number of
+//            keyframes, then for each one the gaps of its tick and of its offset in the file;
+//            offset of the index (long), magic "PIDX" (int)
+// The first record is a keyframe. The index is written when the recording is closed: without it (e.g. the process was
+// killed), it is rebuilt by reading the records up to the last complete one, and the outcome of the game is unknown.
+// The settings are the system properties that change how the ghosts find their way (SETTINGS): a replay is refused
+// when they don't have the values they had when it was recorded, since it would not play the same.
+public final class Replay {
+    // Version of the rules of the game: to be increased by a change that makes the recorded games play differently
+    public static final int ENGINE_VERSION = 2;
+
+    static final int MAGIC = 0x50414352; // "PACR"
+    static final int INDEX_MAGIC = 0x50494458; // "PIDX"
+    static final short FORMAT_VERSION = 2;
+    static final byte INPUT = 'I';
+    static final byte KEYFRAME = 'K';
+    static final byte INDEX = 'X';
+
+    // Engine of the ghosts, budget and slices of the incremental search, clusters of HPA*, path cache, planning
+    static final String[] SETTINGS = { "pacman.pathfinding", "pacman.pathfinding.nodesPerTick",
+            "pacman.pathfinding.sliceNodes", "pacman.hpa.clusterSize", "pacman.pathCache", "pacman.planning" };
+
+    private final ByteBuffer data;
+    private final Level level;
+    private final long seed;
+    private final int keyframeInterval;
+    private final int recordsStart; // Offset of the first record
+
+    private long[] keyframeTicks;
+    private int[] keyframeOffsets;
+    private int keyframes;
+    private long lastTick;
+    private int score = -1;
+    private int caughtBy = -1;
+    private boolean over = false;
+    private boolean complete = false; // The index was written
+
+    private Replay(ByteBuffer data) throws IOException {
+        this.data = data;
+        try {
+            if (data.getInt() != MAGIC) throw new IOException("Not a replay");
+            short format = data.getShort();
+            if (format != FORMAT_VERSION) throw new IOException("Unknown replay format: " + format);
+            int engine = data.getInt();
+            if (engine != ENGINE_VERSION) {
+                throw new IOException("Recorded with version " + engine + " of the game (this is version " + ENGINE_VERSION + ")");
+            }
+            long hash = data.getLong();
+            level = Level.get(getString(data));
+            if (level.getHash() != hash) throw new IOException("The level " + level.getName() + " changed since the recording");
+            seed = data.getLong();
+            keyframeInterval = data.getInt();
+            int settings = data.get();
+            for (int i = 0; i < settings; i++) {
+                String name = getString(data);
+                String value = getString(data);
+                String current = System.getProperty(name, "");
+                if (!value.equals(current)) {
+                    throw new IOException("Recorded with " + describe(name, value) + " (here " + describe(name, current) + ")");
+                }
+            }
+            recordsStart = data.position();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated replay header");
+        }
+        if (!readIndex()) {
+            scanRecords();
+        }
+        if (keyframes == 0) throw new IOException("Replay without any keyframe");
+    }
+
+    public static Replay read(Path file) throws IOException {
+        return new Replay(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    static void putString(ByteBuffer out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String describe(String name, String value) {
+        return value.isEmpty() ? name + " not set" : "-D" + name + "=" + value;
+    }
+
+    private boolean readIndex() {
+        int limit = data.limit();
+        if (limit - recordsStart < 12 || data.getInt(limit - 4) != INDEX_MAGIC) return false;
+        long offset = data.getLong(limit - 12);
+        if (offset < recordsStart || offset >= limit - 12 || data.get((int) offset) != INDEX) return false;
+        ByteBuffer in = data.duplicate();
+        in.position((int) offset + 1);
+        lastTick = StateCodec.getVarint(in);
+        score = in.getInt();
+        caughtBy = in.get();
+        over = in.get() != 0;
+        keyframes = StateCodec.getVarint(in);
+        keyframeTicks = new long[keyframes];
+        keyframeOffsets = new int[keyframes];
+        for (int i = 0; i < keyframes; i++) {
+            keyframeTicks[i] = (i > 0 ? keyframeTicks[i - 1] : 0) + StateCodec.getVarint(in);
+            keyframeOffsets[i] = (i > 0 ? keyframeOffsets[i - 1] : 0) + StateCodec.getVarint(in);
+        }
+        complete = true;
+        return true;
+    }
+
+    // Without an index: every keyframe is found by reading the records
+    private void scanRecords() {
+        keyframeTicks = new long[16];
+        keyframeOffsets = new int[16];
+        ByteBuffer in = data.duplicate();
+        in.position(recordsStart);
+        long tick = 0;
+        try {
+            while (in.hasRemaining()) {
+                int start = in.position();
+                byte type = in.get();
+                if (type == INPUT) {
+                    long inputTick = tick + StateCodec.getVarint(in);
+                    in.get();
+                    tick = inputTick;
+                } else if (type == KEYFRAME) {
+                    long keyframeTick = StateCodec.getVarint(in);
+                    in.get();
+                    StateCodec.skipKeyframe(in);
+                    if (keyframes == keyframeTicks.length) {
+                        keyframeTicks = Arrays.copyOf(keyframeTicks, keyframes * 2);
+                        keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframes * 2);
+                    }
+                    keyframeTicks[keyframes] = keyframeTick;
+                    keyframeOffsets[keyframes] = start;
+                    keyframes++;
+                    tick = keyframeTick;
+                } else {
+                    break;
+                }
+                lastTick = tick;
+            }
+        } catch (BufferUnderflowException e) {
+            // The last record is incomplete
+        }
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    public long getFirstTick() {
+        return keyframeTicks[0];
+    }
+
+    // Last tick of the game (the state after it is the last keyframe when the replay is complete)
+    public long getLastTick() {
+        return lastTick;
+    }
+
+    // Score at the end of the game, -1 if unknown (the replay is not complete)
+    public int getScore() {
+        return score;
+    }
+
+    // Ghost that caught Pacman (its index in Game.getGhosts()), -1 if none or unknown
+    public int getCaughtBy() {
+        return caughtBy;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    // False if the recording was not closed (the index was rebuilt from the records)
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getSizeInBytes() {
+        return data.limit();
+    }
+
+    public int getKeyframeCount() {
+        return keyframes;
+    }
+
+    public long getKeyframeTick(int keyframe) {
+        return keyframeTicks[keyframe];
+    }
+
+    // Last keyframe at or before a tick (the first one for a tick before it)
+    public int keyframeBefore(long tick) {
+        int i = Arrays.binarySearch(keyframeTicks, 0, keyframes, tick);
+        return i >= 0 ? i : Math.max(0, -i - 2);
+    }
+
+    // Records from a keyframe on (the buffer is positioned on the keyframe)
+    ByteBuffer records(int keyframe) {
+        ByteBuffer in = data.duplicate();
+        in.position(keyframeOffsets[keyframe]);
+        return in;
+    }
+
+    // State of the game at a keyframe
+    public void readKeyframe(int keyframe, GameSnapshot state) {
+        ByteBuffer in = records(keyframe);
+        in.get();
+        StateCodec.getVarint(in);
+        in.get();
+        StateCodec.readKeyframe(in, level, state);
+    }
+}
@@ -0,0 +1,133 @@
+package game.replay;
+
+import game.Game;
+import game.GameSnapshot;
+import game.net.StateCodec;
+
+import java.nio.ByteBuffer;
+
+// Plays a replay in a game of its own: any tick can be reached from the last keyframe before it (seek()), by playing
+// the ticks in between headless with the recorded directions, and the game can be played forward at 1 to 1000 times
+// its speed (advance()). seekToCatch() goes straight to the moment a ghost caught Pacman.
+public class ReplayPlayer {
+    public static final int MAX_SPEED = 1000;
+
+    private final Replay replay;
+    private final Game game;
+    private final GameSnapshot state = new GameSnapshot();
+    private ByteBuffer records; // Next record to read
+    private long tick; // Tick of the game
+    private long recordTick; // Tick of the last record read
+    private int keys; // Directions held from the last record read on
+    private double fraction = 0; // Part of a tick left to play by advance()
+
+    public ReplayPlayer(Replay replay) {
+        this(replay, true);
+    }
+
+    // The game of the replay is a simulation (see Game) unless it is played by the UI
+    public ReplayPlayer(Replay replay, boolean simulation) {
+        this.replay = replay;
+        game = new Game(replay.getLevel(), replay.getSeed(), simulation);
+        restore(0);
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean isFinished() {
+        return tick >= replay.getLastTick() || game.isOver();
+    }
+
+    private void restore(int keyframe) {
+        records = replay.records(keyframe);
+        records.get();
+        recordTick = StateCodec.getVarint(records);
+        keys = records.get();
+        StateCodec.readKeyframe(records, replay.getLevel(), state);
+        game.restore(state);
+        tick = recordTick;
+    }
+
+    // Puts the game at a tick (between the first and the last tick of the replay): from the last keyframe before it,
+    // or from the current tick if it is on the way
+    public void seek(long target) {
+        int keyframe = replay.keyframeBefore(target);
+        if (tick > target || tick < replay.getKeyframeTick(keyframe)) {
+            restore(keyframe);
+        }
+        playTo(target);
+    }
+
+    // A little before the tick a ghost caught Pacman; returns the tick, or -1 if Pacman wasn't caught
+    public long seekToCatch(int ticksBefore) {
+        if (replay.getCaughtBy() < 0) return -1;
+        long target = Math.max(replay.getFirstTick(), replay.getLastTick() - ticksBefore);
+        seek(target);
+        return target;
+    }
+
+    // Plays speed ticks (1 to MAX_SPEED; the fractions of ticks are carried to the next call), e.g. once per frame
+    // of the UI; returns the number of ticks played
+    public int advance(double speed) {
+        fraction += Math.max(0, Math.min(MAX_SPEED, speed));
+        int ticks = (int) fraction;
+        fraction -= ticks;
+        long start = tick;
+        playTo(tick + ticks);
+        return (int) (tick - start);
+    }
+
+    // Plays the ticks up to a tick, headless
+    public void playTo(long target) {
+        target = Math.min(target, replay.getLastTick());
+        while (tick < target && !game.isOver()) {
+            readRecords();
+            game.inputKeys(keys);
+            game.update();
+            tick++;
+        }
+    }
+
+    // Reads the records up to the current tick (the keyframes on the way are skipped)
+    private void readRecords() {
+        while (records.hasRemaining()) {
+            int start = records.position();
+            byte type = records.get();
+            if (type != Replay.INPUT && type != Replay.KEYFRAME) break;
+            long next = type == Replay.INPUT ? recordTick + StateCodec.getVarint(records) : StateCodec.getVarint(records);
+            if (next > tick) {
+                records.position(start);
+                break;
+            }
+            recordTick = next;
+            keys = records.get();
+            if (type == Replay.KEYFRAME) {
+                StateCodec.skipKeyframe(records);
+            }
+        }
+    }
+
+    // Plays the whole replay and compares the game with every keyframe: returns the first tick where they differ
+    // (the game doesn't play as it did when it was recorded), or -1
+    public long verify() {
+        GameSnapshot played = new GameSnapshot();
+        restore(0);
+        for (int keyframe = 1; keyframe < replay.getKeyframeCount(); keyframe++) {
+            long keyframeTick = replay.getKeyframeTick(keyframe);
+            playTo(keyframeTick);
+            replay.readKeyframe(keyframe, state);
+            if (tick != keyframeTick || !game.save(played).sameState(state)) return keyframeTick;
+        }
+        return -1;
+    }
+}
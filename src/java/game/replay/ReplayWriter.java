@@ -0,0 +1,196 @@
+package game.replay;
+
+import game.Game;
+import game.GameSnapshot;
+import game.Level;
+import game.net.StateCodec;
+import game.pathfinding.AsyncPlanner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Records a game into a replay file (see Replay for the format) while it is played: the game calls tick() after each
+// update (see Game.setRecorder()), which writes the directions held if they changed, and a keyframe every
+// keyframeInterval ticks (-Dpacman.replay.keyframeInterval, 300 by default: 5 seconds at 60 ticks per second).
+// The records are appended to a buffer in memory on the game's thread; full buffers are written to the file by a
+// single background thread shared by every recorded game, so the game never waits for the disk. The file is only
+// appended to: the index of the keyframes and the outcome of the game are written at the end by close().
+public class ReplayWriter implements Closeable {
+    private static final int KEYFRAME_INTERVAL = Integer.getInteger("pacman.replay.keyframeInterval", 300);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "replay-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Game game;
+    private final int keyframeInterval;
+    private final FileChannel channel;
+    private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>(); // Buffers written to the file
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long written = 0; // Bytes handed to the background thread (offset of the buffer in the file)
+    private volatile IOException error;
+    private volatile boolean closed = false;
+
+    private final GameSnapshot snapshot = new GameSnapshot();
+    private int keys = 0; // Directions held since the last input record
+    private long lastTick; // Tick of the last record
+    private long[] keyframeTicks = new long[16];
+    private long[] keyframeOffsets = new long[16];
+    private int keyframes = 0;
+
+    public ReplayWriter(Path file, Game game) throws IOException {
+        this(file, game, KEYFRAME_INTERVAL);
+    }
+
+    // Starts recording a game from its current state (its first keyframe)
+    public ReplayWriter(Path file, Game game, int keyframeInterval) throws IOException {
+        AsyncPlanner.requireDisabled("The replay");
+        this.game = game;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        game.save(snapshot);
+        Level level = snapshot.getLevel();
+        buffer.putInt(Replay.MAGIC);
+        buffer.putShort(Replay.FORMAT_VERSION);
+        buffer.putInt(Replay.ENGINE_VERSION);
+        buffer.putLong(level.getHash());
+        Replay.putString(buffer, level.getName());
+        buffer.putLong(game.getSeed());
+        buffer.putInt(this.keyframeInterval);
+        buffer.put((byte) Replay.SETTINGS.length);
+        for (String setting : Replay.SETTINGS) {
+            Replay.putString(buffer, setting);
+            Replay.putString(buffer, System.getProperty(setting, ""));
+        }
+
+        lastTick = snapshot.getTick();
+        writeKeyframe();
+        game.setRecorder(this);
+    }
+
+    // Called by the game after each update, with the tick it got to and the directions held during the update
+    public void tick(long tick, int keys) {
+        if (keys != this.keys) {
+            ensureRemaining(16);
+            buffer.put(Replay.INPUT);
+            StateCodec.putVarint(buffer, (int) (tick - 1 - lastTick));
+            buffer.put((byte) keys);
+            this.keys = keys;
+            lastTick = tick - 1;
+        }
+        if (tick % keyframeInterval == 0) {
+            game.save(snapshot);
+            writeKeyframe();
+        }
+    }
+
+    // The keyframe of a tick comes before the inputs of that tick; it has the directions held then
+    private void writeKeyframe() {
+        ensureRemaining(16 + StateCodec.maxKeyframeSize(snapshot));
+        if (keyframes == keyframeTicks.length) {
+            keyframeTicks = Arrays.copyOf(keyframeTicks, keyframes * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframes * 2);
+        }
+        lastTick = snapshot.getTick();
+        keyframeTicks[keyframes] = lastTick;
+        keyframeOffsets[keyframes] = written + buffer.position();
+        keyframes++;
+        buffer.put(Replay.KEYFRAME);
+        StateCodec.putVarint(buffer, (int) lastTick);
+        buffer.put((byte) keys);
+        StateCodec.writeKeyframe(buffer, snapshot);
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        handOff();
+        if (buffer.remaining() < bytes) {
+            buffer = ByteBuffer.allocate(bytes); // A record bigger than a buffer (a keyframe of a huge level)
+        }
+    }
+
+    // The buffer is written by the background thread, and a buffer it already wrote takes its place
+    private void handOff() {
+        ByteBuffer full = buffer;
+        full.flip();
+        written += full.remaining();
+        IO.execute(() -> {
+            try {
+                while (full.hasRemaining()) {
+                    channel.write(full);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            full.clear();
+            pool.offer(full);
+        });
+        ByteBuffer next = pool.poll();
+        buffer = next != null ? next : ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    // Ends the replay with the last state of the game, its outcome and the index of the keyframes, then waits for
+    // everything to be written
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        game.setRecorder(null);
+        game.save(snapshot);
+        if (snapshot.getTick() != keyframeTicks[keyframes - 1]) {
+            writeKeyframe();
+        }
+
+        ensureRemaining(32 + 10 * keyframes);
+        long indexOffset = written + buffer.position();
+        buffer.put(Replay.INDEX);
+        StateCodec.putVarint(buffer, (int) snapshot.getTick());
+        buffer.putInt(game.getScore());
+        buffer.put((byte) (game.getCaughtBy() == null ? -1 : game.getGhosts().indexOf(game.getCaughtBy())));
+        buffer.put((byte) (game.isOver() ? 1 : 0));
+        StateCodec.putVarint(buffer, keyframes);
+        for (int i = 0; i < keyframes; i++) {
+            StateCodec.putVarint(buffer, (int) (keyframeTicks[i] - (i > 0 ? keyframeTicks[i - 1] : 0)));
+            StateCodec.putVarint(buffer, (int) (keyframeOffsets[i] - (i > 0 ? keyframeOffsets[i - 1] : 0)));
+        }
+        buffer.putLong(indexOffset);
+        buffer.putInt(Replay.INDEX_MAGIC);
+        handOff();
+
+        Future<?> done = IO.submit(() -> {
+            channel.close();
+            return null;
+        });
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (error != null) throw error;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Size of the replay so far
+    public long getBytes() {
+        return written + buffer.position();
+    }
+}
@@ -0,0 +1,131 @@
+package game.replay;
+
+import game.Game;
+import game.agent.Agent;
+import game.agent.Agents;
+import game.agent.Observation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Replays from the command line, for a number of files at once (files or directories of .replay files):
+//   record <directory> [games] [agent] [level] [maxTicks]   records headless games played by an agent (seeds 0 to games - 1)
+//   info <paths...>                                         level, seed, length and outcome of each game (from the index only)
+//   catch <paths...>                                        goes to 2 seconds before Pacman was caught, and how long it took
+//   verify <paths...>                                       plays each replay and checks the game against every keyframe
+public class Replays {
+    private static final int CATCH_TICKS_BEFORE = 120;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java game.replay.Replays record <directory> [games] [agent] [level] [maxTicks]");
+            System.out.println("       java game.replay.Replays info|catch|verify <files or directories...>");
+            return;
+        }
+        switch (args[0]) {
+            case "record":
+                record(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 100, args.length > 3 ? args[3] : "greedy",
+                        args.length > 4 ? args[4] : Game.DEFAULT_LEVEL, args.length > 5 ? Integer.parseInt(args[5]) : 60 * 60 * 2);
+                break;
+            case "info":
+            case "catch":
+            case "verify":
+                review(args[0], files(args));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+    }
+
+    private static void record(Path directory, int games, String agentName, String level, int maxTicks) throws IOException {
+        Files.createDirectories(directory);
+        Agent agent = Agents.create(agentName);
+        Observation observation = new Observation();
+        long bytes = 0;
+        long ticks = 0;
+        long start = System.nanoTime();
+        for (int seed = 0; seed < games; seed++) {
+            Game game = new Game(level, seed);
+            agent.reset(seed);
+            ReplayWriter writer = new ReplayWriter(directory.resolve(String.format("%s-%05d.replay", agentName, seed)), game);
+            for (int tick = 0; tick < maxTicks && !game.isOver(); tick++) {
+                game.observe(observation);
+                game.input(agent.act(observation));
+                game.update();
+                ticks++;
+            }
+            bytes += writer.getBytes();
+            writer.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games recorded in %.1f s (%.0f ticks/s), %.0f bytes per game, %.2f bytes per tick%n",
+                games, seconds, ticks / seconds, (double) bytes / games, (double) bytes / ticks);
+    }
+
+    private static List<Path> files(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            Path path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> list = Files.list(path)) {
+                    list.filter(p -> p.toString().endsWith(".replay")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    private static void review(String command, List<Path> files) {
+        long nanos = 0;
+        long ticks = 0;
+        int failed = 0;
+        for (Path file : files) {
+            try {
+                long start = System.nanoTime();
+                Replay replay = Replay.read(file);
+                switch (command) {
+                    case "info":
+                        nanos += System.nanoTime() - start;
+                        System.out.printf("%s: %s, seed %d, ticks %d-%d, score %d, %s, %d keyframes, %d bytes%s%n", file,
+                                replay.getLevel().getName(), replay.getSeed(), replay.getFirstTick(), replay.getLastTick(),
+                                replay.getScore(), replay.getCaughtBy() >= 0 ? "caught by ghost " + replay.getCaughtBy() : "not caught",
+                                replay.getKeyframeCount(), replay.getSizeInBytes(), replay.isComplete() ? "" : " (not closed)");
+                        break;
+                    case "catch": {
+                        ReplayPlayer player = new ReplayPlayer(replay);
+                        long tick = player.seekToCatch(CATCH_TICKS_BEFORE);
+                        nanos += System.nanoTime() - start;
+                        if (tick >= 0) {
+                            System.out.printf("%s: caught at tick %d, at tick %d in %.2f ms%n", file, replay.getLastTick(), tick,
+                                    (System.nanoTime() - start) / 1e6);
+                        }
+                        break;
+                    }
+                    case "verify": {
+                        ReplayPlayer player = new ReplayPlayer(replay);
+                        long mismatch = player.verify();
+                        nanos += System.nanoTime() - start;
+                        ticks += player.getTick() - replay.getFirstTick();
+                        if (mismatch >= 0) {
+                            failed++;
+                            System.out.printf("%s: differs from the recording at tick %d%n", file, mismatch);
+                        }
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                failed++;
+                System.out.println(file + ": " + e.getMessage());
+            }
+        }
+        System.out.printf("%d replays, %d failed, %.3f ms per replay%s%n", files.size(), failed,
+                files.isEmpty() ? 0 : nanos / 1e6 / files.size(), ticks > 0 ? String.format(", %.0f ticks/s", ticks / (nanos / 1e9)) : "");
+    }
+}
@@ -0,0 +1,66 @@
+package game.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free queue (a ring of slots, each with a sequence number telling whether it can be written or read):
+// offer() never waits, it returns false when the queue is full. Any number of threads can offer and poll.
+final class BoundedQueue<T> {
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // Next slot to write
+    private final AtomicLong head = new AtomicLong(); // Next slot to read
+
+    // The capacity is rounded up to a power of 2
+    BoundedQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        items = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    // A slot can be written at position p when its sequence is p, and read when it is p + 1
+    boolean offer(T item) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.lazySet(slot, item);
+                    sequences.set(slot, position + 1); // Publishes the item
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false; // Full: the slot wasn't read since the last lap
+            }
+        }
+    }
+
+    T poll() {
+        while (true) {
+            long position = head.get();
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T item = items.get(slot);
+                    items.lazySet(slot, null);
+                    sequences.set(slot, position + mask + 1); // Free for the next lap
+                    return item;
+                }
+            } else if (difference < 0) {
+                return null; // Empty
+            }
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
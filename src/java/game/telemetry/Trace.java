@@ -0,0 +1,263 @@
+package game.telemetry;
+
+import game.net.StateCodec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Trace of a game, written by TraceWriter: a table with a row per tick, and the events of the game, in chunks of
+// consecutive ticks that are compressed separately (a chunk can be read without the others).
+// Numbers are big-endian:
+//   header: magic "PTRC" (int), format version (short), level, seed (long), ticks per chunk (int), number of ghosts
+//           (byte) and their names, number of GhostStates (byte) and their names (strings: UTF-8 after their length as a short)
+//   chunks: 'C', first tick (long), length of the chunk before compression (int), length after (int), then the chunk
+//           compressed with Deflate: number of rows and of events (varints), then each column of the rows (tick, score,
+//           x and y of Pacman, then x, y and GhostState of each ghost) and each field of the events (tick, type, a, b, c)
+//           as zigzag varints of the differences between successive values (a column of similar values compresses well)
+//   index:  'X', number of chunks (int), number of rows (long), chunks and rows dropped (longs), offset of each chunk
+//           (long); offset of the index (long), magic "TIDX" (int)
+// Events: PAC_GUM (a, b = tile x, y), SUPER_PAC_GUM (same), GHOST_COLLISION (a = ghost), STATE_CHANGE (a = ghost,
+// b = previous GhostState, c = new one). Without the index (the trace wasn't closed), the chunks are found by reading them.
+public final class Trace {
+    public static final int PAC_GUM = 0;
+    public static final int SUPER_PAC_GUM = 1;
+    public static final int GHOST_COLLISION = 2;
+    public static final int STATE_CHANGE = 3;
+    public static final String[] EVENT_NAMES = { "pacGum", "superPacGum", "ghostCollision", "stateChange" };
+
+    static final int MAGIC = 0x50545243; // "PTRC"
+    static final int INDEX_MAGIC = 0x54494458; // "TIDX"
+    static final short FORMAT_VERSION = 1;
+    static final byte CHUNK = 'C';
+    static final byte INDEX = 'X';
+    static final int FIXED_COLUMNS = 4; // tick, score, pacmanX, pacmanY
+    static final int COLUMNS_PER_GHOST = 3; // x, y, state
+    static final int EVENT_FIELDS = 5; // tick, type, a, b, c
+
+    private final ByteBuffer data;
+    private final String level;
+    private final long seed;
+    private final int chunkTicks;
+    private final String[] ghosts;
+    private final String[] states;
+    private final String[] columnNames;
+    private final int chunksStart;
+
+    private long[] chunkOffsets;
+    private int chunks;
+    private long rows;
+    private long droppedChunks;
+    private long droppedRows;
+    private boolean complete = false;
+
+    private Trace(ByteBuffer data) throws IOException {
+        this.data = data;
+        try {
+            if (data.getInt() != MAGIC) throw new IOException("Not a trace");
+            short format = data.getShort();
+            if (format != FORMAT_VERSION) throw new IOException("Unknown trace format: " + format);
+            level = getString(data);
+            seed = data.getLong();
+            chunkTicks = data.getInt();
+            ghosts = new String[data.get()];
+            for (int i = 0; i < ghosts.length; i++) {
+                ghosts[i] = getString(data);
+            }
+            states = new String[data.get()];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = getString(data);
+            }
+            chunksStart = data.position();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated trace header");
+        }
+        columnNames = new String[FIXED_COLUMNS + COLUMNS_PER_GHOST * ghosts.length];
+        columnNames[0] = "tick";
+        columnNames[1] = "score";
+        columnNames[2] = "pacmanX";
+        columnNames[3] = "pacmanY";
+        for (int i = 0; i < ghosts.length; i++) {
+            int column = FIXED_COLUMNS + COLUMNS_PER_GHOST * i;
+            columnNames[column] = ghosts[i] + "X";
+            columnNames[column + 1] = ghosts[i] + "Y";
+            columnNames[column + 2] = ghosts[i] + "State";
+        }
+        if (!readIndex()) {
+            scanChunks();
+        }
+    }
+
+    public static Trace read(Path file) throws IOException {
+        return new Trace(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean readIndex() {
+        int limit = data.limit();
+        if (limit - chunksStart < 12 || data.getInt(limit - 4) != INDEX_MAGIC) return false;
+        long offset = data.getLong(limit - 12);
+        if (offset < chunksStart || offset >= limit - 12 || data.get((int) offset) != INDEX) return false;
+        ByteBuffer in = data.duplicate();
+        in.position((int) offset + 1);
+        chunks = in.getInt();
+        rows = in.getLong();
+        droppedChunks = in.getLong();
+        droppedRows = in.getLong();
+        chunkOffsets = new long[chunks];
+        for (int i = 0; i < chunks; i++) {
+            chunkOffsets[i] = in.getLong();
+        }
+        complete = true;
+        return true;
+    }
+
+    // Without an index: the complete chunks, one after the other (the number of rows isn't known without reading them)
+    private void scanChunks() {
+        chunkOffsets = new long[16];
+        int offset = chunksStart;
+        while (offset + 17 <= data.limit() && data.get(offset) == CHUNK) {
+            int next = offset + 17 + data.getInt(offset + 13);
+            if (next > data.limit()) break;
+            if (chunks == chunkOffsets.length) {
+                chunkOffsets = Arrays.copyOf(chunkOffsets, chunks * 2);
+            }
+            chunkOffsets[chunks++] = offset;
+            offset = next;
+        }
+        rows = -1;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getChunkTicks() {
+        return chunkTicks;
+    }
+
+    // Names of the ghosts, in the order of their columns
+    public String[] getGhosts() {
+        return ghosts;
+    }
+
+    // Names of the GhostStates, by their value in the state columns and the events
+    public String[] getStates() {
+        return states;
+    }
+
+    public String[] getColumnNames() {
+        return columnNames;
+    }
+
+    public int getChunkCount() {
+        return chunks;
+    }
+
+    // Number of rows, -1 if unknown (the trace is not complete)
+    public long getRowCount() {
+        return rows;
+    }
+
+    // Chunks the writer dropped because the disk couldn't keep up (0 if unknown)
+    public long getDroppedChunks() {
+        return droppedChunks;
+    }
+
+    public long getDroppedRows() {
+        return droppedRows;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getSizeInBytes() {
+        return data.limit();
+    }
+
+    public long getFirstTick(int chunk) {
+        return data.getLong((int) chunkOffsets[chunk] + 1);
+    }
+
+    // Decompresses and decodes a chunk (the arrays of the given Chunk are reused when they are big enough)
+    public Chunk readChunk(int chunk, Chunk into) throws IOException {
+        Chunk result = into != null ? into : new Chunk();
+        int offset = (int) chunkOffsets[chunk];
+        int rawLength = data.getInt(offset + 9);
+        int compressedLength = data.getInt(offset + 13);
+        if (result.raw.length < rawLength) result.raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.array(), data.arrayOffset() + offset + 17, compressedLength);
+            if (inflater.inflate(result.raw, 0, rawLength) != rawLength) throw new IOException("Truncated chunk " + chunk);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted chunk " + chunk, e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(result.raw, 0, rawLength);
+        result.rowCount = StateCodec.getVarint(in);
+        result.eventCount = StateCodec.getVarint(in);
+        result.columns = columnNames.length;
+        if (result.rows.length < result.rowCount * result.columns) result.rows = new int[result.rowCount * result.columns];
+        if (result.events.length < result.eventCount * EVENT_FIELDS) result.events = new int[result.eventCount * EVENT_FIELDS];
+        for (int c = 0; c < result.columns; c++) {
+            getColumn(in, result.rows, c, result.columns, result.rowCount);
+        }
+        for (int f = 0; f < EVENT_FIELDS; f++) {
+            getColumn(in, result.events, f, EVENT_FIELDS, result.eventCount);
+        }
+        return result;
+    }
+
+    private static void getColumn(ByteBuffer in, int[] values, int column, int stride, int count) {
+        int previous = 0;
+        for (int i = column, end = column + count * stride; i < end; i += stride) {
+            previous += StateCodec.unzigzag(StateCodec.getVarint(in));
+            values[i] = previous;
+        }
+    }
+
+    // A decoded chunk: value(row, column) for the rows, event(e, field) for the events (fields: tick, type, a, b, c)
+    public static final class Chunk {
+        private byte[] raw = new byte[0];
+        private int[] rows = new int[0];
+        private int[] events = new int[0];
+        private int columns;
+        private int rowCount;
+        private int eventCount;
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public int getEventCount() {
+            return eventCount;
+        }
+
+        public int value(int row, int column) {
+            return rows[row * columns + column];
+        }
+
+        public int event(int event, int field) {
+            return events[event * EVENT_FIELDS + field];
+        }
+    }
+}
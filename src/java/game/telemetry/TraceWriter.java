@@ -0,0 +1,391 @@
+package game.telemetry;
+
+import game.EventBus;
+import game.Game;
+import game.GameEvent;
+import game.GameSnapshot;
+import game.Observer;
+import game.entities.Pacman;
+import game.entities.ghosts.Ghost;
+import game.net.StateCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+// Records the trace of a game for offline analysis (see Trace for the format): after each update (see Game.setTracer()),
+// the tick, the score and the position of Pacman and of every ghost with its GhostState make a row, and the Pac-Gums
+// eaten, the collisions and the changes of GhostState are events. The game thread only fills the rows and the events
+// of a chunk of -Dpacman.trace.chunkTicks ticks (1024 by default) in preallocated arrays; a full chunk is handed to a
+// single background thread shared by every trace through a bounded lock-free queue (-Dpacman.trace.queueChunks, 64 by
+// default), and the thread encodes it column by column, compresses it and appends it to the file through a large buffer.
+// The game never waits for the disk: when the queue is full (the disk can't keep up), the chunk is dropped and counted.
+public class TraceWriter implements Observer, Closeable {
+    private static final int CHUNK_TICKS = Integer.getInteger("pacman.trace.chunkTicks", 1024);
+    private static final int QUEUE_CHUNKS = Integer.getInteger("pacman.trace.queueChunks", 64);
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+    private static final long IDLE_NANOS = 1_000_000; // Sleep of the background thread when there is nothing to write
+
+    private static final BoundedQueue<Chunk> QUEUE = new BoundedQueue<>(QUEUE_CHUNKS);
+    private static final ConcurrentLinkedQueue<Chunk> POOL = new ConcurrentLinkedQueue<>(); // Chunks already written
+    private static final Thread DRAINER = new Thread(TraceWriter::drain, "trace-writer");
+
+    // Background thread only: a single buffer for every trace (flushed to the file of a trace before it is used by another)
+    private static final ByteBuffer OUT = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+    private static TraceWriter outOwner;
+    private static ByteBuffer raw = ByteBuffer.allocate(64 * 1024); // Chunk encoded, before compression
+    private static byte[] compressed = new byte[16 * 1024];
+    private static final Deflater DEFLATER = new Deflater(Deflater.BEST_SPEED);
+
+    static {
+        DRAINER.setDaemon(true);
+        DRAINER.start();
+    }
+
+    // Rows (row-major, columns values each) and events (tick, type, then 3 values) of up to chunkTicks ticks
+    private static final class Chunk {
+        TraceWriter owner;
+        int[] rows = new int[0];
+        int rowCount = 0;
+        int[] events = new int[Trace.EVENT_FIELDS * 64];
+        int eventCount = 0;
+        boolean last = false; // The trace is closed after this chunk
+    }
+
+    // Game thread
+    private final Game game;
+    private final List<Ghost> ghosts;
+    private final int columns;
+    private final int chunkTicks;
+    private Chunk chunk;
+    private final int[] ghostStates; // GhostState of each ghost at the last row, -1 before the first one
+    private long droppedChunks = 0;
+    private long droppedTicks = 0;
+    private volatile boolean closed = false;
+
+    // Background thread (the queue orders its accesses after the game thread's)
+    private final FileChannel channel;
+    private byte[] header; // Until it is written
+    private long position = 0; // Bytes written to the file
+    private long[] chunkOffsets = new long[16];
+    private int chunks = 0;
+    private long ticks = 0;
+    private volatile IOException error;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    public TraceWriter(Path file, Game game) throws IOException {
+        this(file, game, CHUNK_TICKS);
+    }
+
+    // Starts tracing a game from its next tick
+    public TraceWriter(Path file, Game game, int chunkTicks) throws IOException {
+        this.game = game;
+        this.ghosts = game.getGhosts();
+        this.columns = Trace.FIXED_COLUMNS + Trace.COLUMNS_PER_GHOST * ghosts.size();
+        this.chunkTicks = Math.max(1, chunkTicks);
+        ghostStates = new int[ghosts.size()];
+        Arrays.fill(ghostStates, -1);
+        chunk = newChunk();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer h = ByteBuffer.allocate(1024);
+        h.putInt(Trace.MAGIC);
+        h.putShort(Trace.FORMAT_VERSION);
+        putString(h, game.save(new GameSnapshot()).getLevel().getName());
+        h.putLong(game.getSeed());
+        h.putInt(this.chunkTicks);
+        h.put((byte) ghosts.size());
+        for (Ghost ghost : ghosts) {
+            putString(h, ghost.getClass().getSimpleName());
+        }
+        h.put((byte) Ghost.STATE_NAMES.length);
+        for (String state : Ghost.STATE_NAMES) {
+            putString(h, state);
+        }
+        header = Arrays.copyOf(h.array(), h.position());
+        game.setTracer(this);
+    }
+
+    private static void putString(ByteBuffer out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    // A chunk that was written (by any trace), or a new one
+    private Chunk newChunk() {
+        Chunk next = POOL.poll();
+        if (next == null) next = new Chunk();
+        if (next.rows.length < chunkTicks * columns) next.rows = new int[chunkTicks * columns];
+        next.owner = this;
+        next.rowCount = 0;
+        next.eventCount = 0;
+        return next;
+    }
+
+    // Called by the game after each update, once the events of the tick were dispatched
+    public void tick() {
+        int tick = (int) Game.getTick();
+        int[] rows = chunk.rows;
+        int row = chunk.rowCount * columns;
+        rows[row] = tick;
+        rows[row + 1] = game.getScore();
+        Pacman pacman = Game.getPacman();
+        rows[row + 2] = pacman.getxPos();
+        rows[row + 3] = pacman.getyPos();
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            int column = row + Trace.FIXED_COLUMNS + Trace.COLUMNS_PER_GHOST * i;
+            int state = ghost.getStateIndex();
+            rows[column] = ghost.getxPos();
+            rows[column + 1] = ghost.getyPos();
+            rows[column + 2] = state;
+            if (state != ghostStates[i]) {
+                if (ghostStates[i] >= 0) {
+                    event(tick, Trace.STATE_CHANGE, i, ghostStates[i], state);
+                }
+                ghostStates[i] = state;
+            }
+        }
+        if (++chunk.rowCount == chunkTicks) {
+            submit();
+        }
+    }
+
+    // Events of the tick (the Pac-Gums are given by their tile, the collisions by the index of the ghost)
+    @Override
+    public void onEvents(EventBus events) {
+        int tick = (int) Game.getTick();
+        for (int i = 0; i < events.size(); i++) {
+            int type = events.getType(i);
+            if (type == GameEvent.GHOST_COLLISION) {
+                event(tick, Trace.GHOST_COLLISION, ghosts.indexOf(events.getEntity(i)), 0, 0);
+            } else {
+                int tile = events.getTile(i);
+                event(tick, type == GameEvent.PAC_GUM_EATEN ? Trace.PAC_GUM : Trace.SUPER_PAC_GUM,
+                        GameEvent.tileX(tile), GameEvent.tileY(tile), 0);
+            }
+        }
+    }
+
+    private void event(int tick, int type, int a, int b, int c) {
+        int e = chunk.eventCount * Trace.EVENT_FIELDS;
+        if (e == chunk.events.length) {
+            chunk.events = Arrays.copyOf(chunk.events, e * 2);
+        }
+        int[] events = chunk.events;
+        events[e] = tick;
+        events[e + 1] = type;
+        events[e + 2] = a;
+        events[e + 3] = b;
+        events[e + 4] = c;
+        chunk.eventCount++;
+    }
+
+    // The chunk goes to the background thread, or is dropped if the queue is full
+    private void submit() {
+        if (QUEUE.offer(chunk)) {
+            chunk = newChunk();
+        } else {
+            droppedChunks++;
+            droppedTicks += chunk.rowCount;
+            chunk.rowCount = 0;
+            chunk.eventCount = 0;
+        }
+    }
+
+    // Writes the last chunk and the index, then waits for the file to be closed
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        game.setTracer(null);
+        chunk.last = true;
+        while (!QUEUE.offer(chunk)) {
+            Thread.yield(); // The last chunk can't be dropped: the index is written after it
+        }
+        LockSupport.unpark(DRAINER);
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (error != null) throw error;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Chunks (and their ticks) dropped because the background thread was behind
+    public long getDroppedChunks() {
+        return droppedChunks;
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    // Size of the file once closed
+    public long getBytes() {
+        return position;
+    }
+
+    private static void drain() {
+        while (true) {
+            Chunk chunk = QUEUE.poll();
+            if (chunk == null) {
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+            TraceWriter owner = chunk.owner;
+            try {
+                if (owner.error == null) owner.write(chunk);
+            } catch (IOException e) {
+                owner.error = e;
+            }
+            if (chunk.last) {
+                owner.finish();
+                chunk.last = false;
+            }
+            chunk.owner = null;
+            POOL.offer(chunk);
+        }
+    }
+
+    // Background thread: the columns one after the other (each as zigzag varints of the differences between its
+    // successive values), then the fields of the events the same way, compressed together
+    private void write(Chunk chunk) throws IOException {
+        int rowCount = chunk.rowCount;
+        int eventCount = chunk.eventCount;
+        int needed = 10 + 5 * (rowCount * columns + eventCount * Trace.EVENT_FIELDS);
+        if (raw.capacity() < needed) {
+            raw = ByteBuffer.allocate(needed);
+        }
+        raw.clear();
+        StateCodec.putVarint(raw, rowCount);
+        StateCodec.putVarint(raw, eventCount);
+        for (int c = 0; c < columns; c++) {
+            putColumn(chunk.rows, c, columns, rowCount);
+        }
+        for (int f = 0; f < Trace.EVENT_FIELDS; f++) {
+            putColumn(chunk.events, f, Trace.EVENT_FIELDS, eventCount);
+        }
+
+        DEFLATER.reset();
+        DEFLATER.setInput(raw.array(), 0, raw.position());
+        DEFLATER.finish();
+        int length = 0;
+        while (!DEFLATER.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += DEFLATER.deflate(compressed, length, compressed.length - length);
+        }
+
+        ensureRemaining(1 + 8 + 4 + 4);
+        if (chunks == chunkOffsets.length) {
+            chunkOffsets = Arrays.copyOf(chunkOffsets, chunks * 2);
+        }
+        chunkOffsets[chunks++] = position + OUT.position();
+        ticks += rowCount;
+        OUT.put(Trace.CHUNK);
+        OUT.putLong(rowCount > 0 ? chunk.rows[0] : eventCount > 0 ? chunk.events[0] : 0);
+        OUT.putInt(raw.position());
+        OUT.putInt(length);
+        if (length > OUT.remaining()) {
+            flush();
+            ByteBuffer big = ByteBuffer.wrap(compressed, 0, length);
+            while (big.hasRemaining()) {
+                position += channel.write(big);
+            }
+        } else {
+            OUT.put(compressed, 0, length);
+        }
+    }
+
+    private static void putColumn(int[] values, int column, int stride, int count) {
+        int previous = 0;
+        for (int i = column, end = column + count * stride; i < end; i += stride) {
+            StateCodec.putVarint(raw, StateCodec.zigzag(values[i] - previous));
+            previous = values[i];
+        }
+    }
+
+    // Background thread: the index after the last chunk, then the file is closed
+    private void finish() {
+        try {
+            if (error == null) {
+                ensureRemaining(1 + 4 + 8 + 8 + 8);
+                long indexOffset = position + OUT.position();
+                OUT.put(Trace.INDEX);
+                OUT.putInt(chunks);
+                OUT.putLong(ticks);
+                OUT.putLong(droppedChunks);
+                OUT.putLong(droppedTicks);
+                for (int i = 0; i < chunks; i++) {
+                    ensureRemaining(8);
+                    OUT.putLong(chunkOffsets[i]);
+                }
+                ensureRemaining(12);
+                OUT.putLong(indexOffset);
+                OUT.putInt(Trace.INDEX_MAGIC);
+                flush();
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        if (outOwner == this) {
+            OUT.clear(); // Not written after an error
+            outOwner = null;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            if (error == null) error = e;
+        }
+        done.countDown();
+    }
+
+    // Background thread: the shared buffer is taken from the trace that used it last (its bytes are written to its
+    // file first), and the header is written before the first chunk
+    private void ensureRemaining(int bytes) throws IOException {
+        if (outOwner != this) {
+            if (outOwner != null) {
+                try {
+                    outOwner.flush();
+                } catch (IOException e) {
+                    outOwner.error = e;
+                }
+            }
+            outOwner = this;
+        }
+        if (header != null) {
+            if (OUT.remaining() < header.length) flush();
+            OUT.put(header);
+            header = null;
+        }
+        if (OUT.remaining() < bytes) flush();
+    }
+
+    private void flush() throws IOException {
+        OUT.flip();
+        try {
+            while (OUT.hasRemaining()) {
+                position += channel.write(OUT);
+            }
+        } finally {
+            OUT.clear();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package game.telemetry;
+
+import game.Game;
+import game.agent.Agent;
+import game.agent.Agents;
+import game.agent.Observation;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Traces from the command line:
+//   record <directory> [games] [agent] [level] [maxTicks]   plays headless games with an agent (seeds 0 to games - 1),
+//                                                           without and with a trace (after a first pass to warm up),
+//                                                           and compares their speed
+//   info <files...>                                         level, seed, rows, chunks, size and drops of each trace
+//   csv <file>                                              the rows of a trace as CSV (one line per tick)
+//   events <file>                                           the events of a trace as CSV
+public class Traces {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java game.telemetry.Traces record <directory> [games] [agent] [level] [maxTicks]");
+            System.out.println("       java game.telemetry.Traces info <files...> | csv <file> | events <file>");
+            return;
+        }
+        switch (args[0]) {
+            case "record":
+                record(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 100, args.length > 3 ? args[3] : "greedy",
+                        args.length > 4 ? args[4] : Game.DEFAULT_LEVEL, args.length > 5 ? Integer.parseInt(args[5]) : 60 * 60 * 2);
+                break;
+            case "info":
+                for (int i = 1; i < args.length; i++) {
+                    info(Paths.get(args[i]));
+                }
+                break;
+            case "csv":
+                csv(Trace.read(Paths.get(args[1])), System.out);
+                break;
+            case "events":
+                events(Trace.read(Paths.get(args[1])), System.out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+    }
+
+    private static void record(Path directory, int games, String agentName, String level, int maxTicks) throws IOException {
+        Files.createDirectories(directory);
+        Agent agent = Agents.create(agentName);
+        Observation observation = new Observation();
+        for (int pass = 0; pass < 3; pass++) {
+            boolean traced = pass == 2;
+            long ticks = 0;
+            long bytes = 0;
+            long dropped = 0;
+            long start = System.nanoTime();
+            for (int seed = 0; seed < games; seed++) {
+                Game game = new Game(level, seed);
+                agent.reset(seed);
+                TraceWriter writer = !traced ? null
+                        : new TraceWriter(directory.resolve(String.format("%s-%05d.trace", agentName, seed)), game);
+                for (int tick = 0; tick < maxTicks && !game.isOver(); tick++) {
+                    game.observe(observation);
+                    game.input(agent.act(observation));
+                    game.update();
+                    ticks++;
+                }
+                if (writer != null) {
+                    writer.close();
+                    bytes += writer.getBytes();
+                    dropped += writer.getDroppedTicks();
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (pass == 1) {
+                System.out.printf("%d games without a trace: %.1f s (%.0f ticks/s)%n", games, seconds, ticks / seconds);
+            } else if (traced) {
+                System.out.printf("%d games with a trace: %.1f s (%.0f ticks/s), %.0f bytes per game, %.2f bytes per tick, %d ticks dropped%n",
+                        games, seconds, ticks / seconds, (double) bytes / games, (double) bytes / ticks, dropped);
+            }
+        }
+    }
+
+    private static void info(Path file) {
+        try {
+            Trace trace = Trace.read(file);
+            System.out.printf("%s: %s, seed %d, %d rows, %d chunks, %d bytes, %d chunks (%d rows) dropped%s%n", file,
+                    trace.getLevel(), trace.getSeed(), trace.getRowCount(), trace.getChunkCount(), trace.getSizeInBytes(),
+                    trace.getDroppedChunks(), trace.getDroppedRows(), trace.isComplete() ? "" : " (not closed)");
+        } catch (IOException e) {
+            System.out.println(file + ": " + e.getMessage());
+        }
+    }
+
+    private static void csv(Trace trace, PrintStream out) throws IOException {
+        String[] columns = trace.getColumnNames();
+        out.println(String.join(",", columns));
+        StringBuilder line = new StringBuilder();
+        Trace.Chunk chunk = null;
+        for (int k = 0; k < trace.getChunkCount(); k++) {
+            chunk = trace.readChunk(k, chunk);
+            for (int row = 0; row < chunk.getRowCount(); row++) {
+                line.setLength(0);
+                for (int c = 0; c < columns.length; c++) {
+                    if (c > 0) line.append(',');
+                    line.append(chunk.value(row, c));
+                }
+                out.println(line);
+            }
+        }
+    }
+
+    private static void events(Trace trace, PrintStream out) throws IOException {
+        out.println("tick,event,a,b,c");
+        Trace.Chunk chunk = null;
+        for (int k = 0; k < trace.getChunkCount(); k++) {
+            chunk = trace.readChunk(k, chunk);
+            for (int e = 0; e < chunk.getEventCount(); e++) {
+                int type = chunk.event(e, 1);
+                int a = chunk.event(e, 2);
+                int b = chunk.event(e, 3);
+                int c = chunk.event(e, 4);
+                if (type == Trace.STATE_CHANGE) {
+                    out.printf("%d,%s,%s,%s,%s%n", chunk.event(e, 0), Trace.EVENT_NAMES[type], trace.getGhosts()[a],
+                            trace.getStates()[b], trace.getStates()[c]);
+                } else if (type == Trace.GHOST_COLLISION) {
+                    out.printf("%d,%s,%s,,%n", chunk.event(e, 0), Trace.EVENT_NAMES[type], a >= 0 ? trace.getGhosts()[a] : "");
+                } else {
+                    out.printf("%d,%s,%d,%d,%n", chunk.event(e, 0), Trace.EVENT_NAMES[type], a, b);
+                }
+            }
+        }
+    }
+}
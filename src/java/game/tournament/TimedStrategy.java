@@ -0,0 +1,39 @@
+package game.tournament;
+
+import game.ghostStrategies.IGhostStrategy;
+import game.pathfinding.PathfindingStats;
+
+// Strategy measuring the time spent in each chase decision of the strategy it wraps
+class TimedStrategy implements IGhostStrategy {
+    private final IGhostStrategy strategy;
+    long decisions = 0;
+    long nanos = 0;
+
+    TimedStrategy(IGhostStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @Override
+    public int[] getChaseTargetPosition() {
+        long t = System.nanoTime();
+        int[] position = strategy.getChaseTargetPosition();
+        nanos += System.nanoTime() - t;
+        decisions++;
+        return position;
+    }
+
+    @Override
+    public int[] getScatterTargetPosition() {
+        return strategy.getScatterTargetPosition();
+    }
+
+    @Override
+    public PathfindingStats getStats() {
+        return strategy.getStats();
+    }
+
+    @Override
+    public void planAhead() {
+        strategy.planAhead();
+    }
+}
@@ -0,0 +1,277 @@
+package game.tournament;
+
+import game.Game;
+import game.agent.Agent;
+import game.agent.Agents;
+import game.agent.Observation;
+import game.entities.ghosts.Ghost;
+import game.ghostStrategies.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+// Tournament of the ghost strategies: every line-up (one strategy per ghost slot) plays headless games against every
+// Pacman agent on every maze, for a number of seeds. The games are split in shards run in parallel on all the cores
+// (each thread plays its games one after the other), and the results give, for each line-up and each strategy, the
+// catch rate, the mean number of ticks to catch Pacman and the time spent per chase decision.
+// Usage: java game.tournament.Tournament [--seeds n] [--threads n] [--max-ticks n] [--mazes a.csv,b.csv]
+//        [--agents random,greedy,evasive] [--all-slots]
+// By default each slot only plays the strategies written for its ghost; with --all-slots every strategy plays in every slot.
+public class Tournament {
+    private static final String[] SLOTS = { "Blinky", "Pinky", "Inky", "Clyde" };
+    private static final Map<String, Function<Ghost, IGhostStrategy>> STRATEGIES = new LinkedHashMap<>();
+    private static final Map<String, String[]> SLOT_STRATEGIES = new HashMap<>();
+    private static final int SHARD_SIZE = 25; // Seeds per task
+
+    static {
+        STRATEGIES.put("BlinkyStrategy", BlinkyStrategy::new);
+        STRATEGIES.put("BlinkyStrategy1", ghost -> new BlinkyStrategy1());
+        STRATEGIES.put("PinkyStrategy", PinkyStrategy::new);
+        STRATEGIES.put("PinkyStrategy1", ghost -> new PinkyStrategy1());
+        STRATEGIES.put("InkyStrategy", InkyStrategy::new);
+        STRATEGIES.put("ClydeStrategy", ClydeStrategy::new);
+        SLOT_STRATEGIES.put("Blinky", new String[] { "BlinkyStrategy", "BlinkyStrategy1" });
+        SLOT_STRATEGIES.put("Pinky", new String[] { "PinkyStrategy", "PinkyStrategy1" });
+        SLOT_STRATEGIES.put("Inky", new String[] { "InkyStrategy" });
+        SLOT_STRATEGIES.put("Clyde", new String[] { "ClydeStrategy" });
+    }
+
+    private final int seeds;
+    private final int maxTicks;
+    private final String[] mazes;
+    private final String[] agents;
+    private final List<String[]> lineups;
+
+    public Tournament(int seeds, int maxTicks, String[] mazes, String[] agents, boolean allSlots) {
+        this.seeds = seeds;
+        this.maxTicks = maxTicks;
+        this.mazes = mazes;
+        this.agents = agents;
+        this.lineups = lineups(allSlots);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seeds = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxTicks = 60 * 60 * 2;
+        String[] mazes = { "level/level.csv", "level/leveltest.csv" };
+        String[] agents = Agents.NAMES;
+        boolean allSlots = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seeds": seeds = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--max-ticks": maxTicks = Integer.parseInt(args[++i]); break;
+                case "--mazes": mazes = args[++i].split(","); break;
+                case "--agents": agents = args[++i].split(","); break;
+                case "--all-slots": allSlots = true; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Tournament tournament = new Tournament(seeds, maxTicks, mazes, agents, allSlots);
+        System.out.printf("%d line-ups x %d agents x %d mazes x %d seeds on %d threads%n",
+                tournament.lineups.size(), agents.length, mazes.length, seeds, threads);
+        long startTime = System.nanoTime();
+        Results results = tournament.run(threads);
+        System.out.printf("%d games in %.1f s%n%n", results.games(), (System.nanoTime() - startTime) / 1e9);
+        tournament.print(results);
+    }
+
+    public Results run(int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Results>> futures = new ArrayList<>();
+            for (int lineup = 0; lineup < lineups.size(); lineup++) {
+                for (String agent : agents) {
+                    for (String maze : mazes) {
+                        for (int seed = 0; seed < seeds; seed += SHARD_SIZE) {
+                            int l = lineup;
+                            int first = seed;
+                            int last = Math.min(seeds, seed + SHARD_SIZE);
+                            futures.add(pool.submit(() -> playShard(l, agent, maze, first, last)));
+                        }
+                    }
+                }
+            }
+            Results results = new Results(lineups.size());
+            for (Future<Results> future : futures) {
+                results.merge(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Results playShard(int lineup, String agentName, String maze, int firstSeed, int lastSeed) {
+        Results results = new Results(lineups.size());
+        Agent agent = Agents.create(agentName);
+        Observation observation = new Observation();
+        for (int seed = firstSeed; seed < lastSeed; seed++) {
+            play(lineup, agent, observation, maze, seed, results);
+        }
+        return results;
+    }
+
+    private void play(int lineup, Agent agent, Observation observation, String maze, long seed, Results results) {
+        Game game = new Game(maze, seed);
+        String[] names = lineups.get(lineup);
+        Map<Ghost, TimedStrategy> strategies = new HashMap<>();
+        for (Ghost ghost : game.getGhosts()) {
+            int slot = Arrays.asList(SLOTS).indexOf(ghost.getClass().getSimpleName());
+            TimedStrategy strategy = new TimedStrategy(STRATEGIES.get(names[slot]).apply(ghost));
+            ghost.setStrategy(strategy);
+            strategies.put(ghost, strategy);
+        }
+
+        agent.reset(seed);
+        int ticks = 0;
+        while (ticks < maxTicks && !game.isOver()) {
+            game.observe(observation);
+            game.input(agent.act(observation));
+            game.update();
+            ticks++;
+        }
+
+        Ghost catcher = game.getCaughtBy();
+        results.lineups[lineup].add(catcher != null, ticks, 0, 0);
+        for (Map.Entry<Ghost, TimedStrategy> entry : strategies.entrySet()) {
+            String name = names[Arrays.asList(SLOTS).indexOf(entry.getKey().getClass().getSimpleName())];
+            TimedStrategy strategy = entry.getValue();
+            results.lineups[lineup].addDecisions(strategy.decisions, strategy.nanos);
+            results.strategy(name).add(catcher != null, ticks, strategy.decisions, strategy.nanos);
+            if (catcher == entry.getKey()) {
+                results.strategy(name).credited++;
+            }
+        }
+    }
+
+    // Every combination of strategies over the slots
+    private static List<String[]> lineups(boolean allSlots) {
+        List<String[]> lineups = new ArrayList<>();
+        lineups.add(new String[0]);
+        for (String slot : SLOTS) {
+            String[] candidates = allSlots ? STRATEGIES.keySet().toArray(new String[0]) : SLOT_STRATEGIES.get(slot);
+            List<String[]> extended = new ArrayList<>();
+            for (String[] lineup : lineups) {
+                for (String candidate : candidates) {
+                    String[] next = Arrays.copyOf(lineup, lineup.length + 1);
+                    next[lineup.length] = candidate;
+                    extended.add(next);
+                }
+            }
+            lineups = extended;
+        }
+        return lineups;
+    }
+
+    private void print(Results results) {
+        System.out.printf("%-64s %7s %9s %12s %10s%n", "Line-up (Blinky / Pinky / Inky / Clyde)", "games", "caught", "ticks/catch", "us/decision");
+        Integer[] order = new Integer[lineups.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> -results.lineups[i].catchRate()));
+        for (int i : order) {
+            Stats stats = results.lineups[i];
+            System.out.printf("%-64s %7d %8.1f%% %12.0f %10.2f%n", String.join(" / ", lineups.get(i)),
+                    stats.games, 100 * stats.catchRate(), stats.meanTicksToCatch(), stats.nanosPerDecision() / 1e3);
+        }
+
+        System.out.printf("%n%-20s %7s %9s %12s %10s %11s%n", "Strategy", "games", "caught", "ticks/catch", "catches", "us/decision");
+        String hardest = null;
+        String cheapest = null;
+        for (Map.Entry<String, Stats> entry : results.strategies.entrySet()) {
+            Stats stats = entry.getValue();
+            System.out.printf("%-20s %7d %8.1f%% %12.0f %10d %11.2f%n", entry.getKey(), stats.games,
+                    100 * stats.catchRate(), stats.meanTicksToCatch(), stats.credited, stats.nanosPerDecision() / 1e3);
+            if (hardest == null || isHarder(stats, results.strategies.get(hardest))) hardest = entry.getKey();
+            if (stats.decisions > 0 && (cheapest == null || stats.nanosPerDecision() < results.strategies.get(cheapest).nanosPerDecision())) {
+                cheapest = entry.getKey();
+            }
+        }
+        System.out.printf("%nHardest: %s (line-ups with it catch Pacman in %.1f%% of the games, in %.0f ticks on average)%n",
+                hardest, 100 * results.strategies.get(hardest).catchRate(), results.strategies.get(hardest).meanTicksToCatch());
+        if (cheapest != null) {
+            System.out.printf("Cheapest: %s (%.2f us per decision)%n", cheapest, results.strategies.get(cheapest).nanosPerDecision() / 1e3);
+        }
+    }
+
+    // Higher catch rate, then faster catches
+    private static boolean isHarder(Stats a, Stats b) {
+        if (a.catchRate() != b.catchRate()) return a.catchRate() > b.catchRate();
+        return a.meanTicksToCatch() < b.meanTicksToCatch();
+    }
+
+    // Results of a set of games, merged at the end (each task fills its own)
+    public static class Results {
+        final Stats[] lineups;
+        final Map<String, Stats> strategies = new TreeMap<>();
+
+        Results(int lineupCount) {
+            lineups = new Stats[lineupCount];
+            for (int i = 0; i < lineupCount; i++) lineups[i] = new Stats();
+        }
+
+        Stats strategy(String name) {
+            return strategies.computeIfAbsent(name, n -> new Stats());
+        }
+
+        long games() {
+            long games = 0;
+            for (Stats stats : lineups) games += stats.games;
+            return games;
+        }
+
+        void merge(Results other) {
+            for (int i = 0; i < lineups.length; i++) lineups[i].merge(other.lineups[i]);
+            for (Map.Entry<String, Stats> entry : other.strategies.entrySet()) strategy(entry.getKey()).merge(entry.getValue());
+        }
+    }
+
+    static class Stats {
+        long games;
+        long catches;
+        long ticksToCatch; // Sum over the games where Pacman was caught
+        long credited; // Catches made by the ghost playing the strategy
+        long decisions;
+        long nanos;
+
+        void add(boolean caught, int ticks, long decisions, long nanos) {
+            games++;
+            if (caught) {
+                catches++;
+                ticksToCatch += ticks;
+            }
+            addDecisions(decisions, nanos);
+        }
+
+        void addDecisions(long decisions, long nanos) {
+            this.decisions += decisions;
+            this.nanos += nanos;
+        }
+
+        void merge(Stats other) {
+            games += other.games;
+            catches += other.catches;
+            ticksToCatch += other.ticksToCatch;
+            credited += other.credited;
+            decisions += other.decisions;
+            nanos += other.nanos;
+        }
+
+        double catchRate() {
+            return games == 0 ? 0 : (double) catches / games;
+        }
+
+        double meanTicksToCatch() {
+            return catches == 0 ? 0 : (double) ticksToCatch / catches;
+        }
+
+        double nanosPerDecision() {
+            return decisions == 0 ? 0 : (double) nanos / decisions;
+        }
+    }
+}
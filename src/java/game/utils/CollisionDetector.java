@@ -2,6 +2,7 @@ package game.utils;
 
 import game.Game;
 import game.entities.*;
+import game.profiling.Profiler;
 
 //Classe pour détecter les collision entre deux entités
 public class CollisionDetector {
@@ -14,10 +15,28 @@ public class CollisionDetector {
     //Détection de collision entre des entités de type collisionCheck et une entité obj ; on renvoie l'entité du type testé en cas de collision
     //Les entités de type collisionCheck ont une hitbox rectangulaire, et on considère ici que la hitbox de l'entité obj est un point (pour la collision entre Pacman et les fantôme, ça permet d'avoir une marge et faire en sorte que le jeu ne soit pas trop punitif)
     public Entity checkCollision(Entity obj, Class<? extends Entity> collisionCheck) {
+        long t = Profiler.start();
+        Entity collided = null;
         for (Entity e : game.getEntities()) {
-            if (!e.isDestroyed() && collisionCheck.isInstance(e) && e.getHitbox().contains(obj.getxPos() + obj.getSize() / 2, obj.getyPos() + obj.getSize() / 2)) return e;
+            if (!e.isDestroyed() && collisionCheck.isInstance(e) && e.getHitbox().contains(obj.getxPos() + obj.getSize() / 2, obj.getyPos() + obj.getSize() / 2)) {
+                collided = e;
+                break;
+            }
         }
-        return null;
+        Profiler.stop(Profiler.COLLISION, t);
+        return collided;
+    }
+
+    //Pac-Gum (ou Super Pac-Gum) du niveau qui n'a pas encore été mangée et dont la hitbox contient le centre de l'entité obj, ou -1
+    //Les Pac-Gums appartiennent au niveau : on cherche directement dans la case où se trouve le centre au lieu de parcourir les entités
+    public int checkPacGumCollision(Entity obj) {
+        long t = Profiler.start();
+        int pacGum = Game.getLevel().pacGumAt(obj.getxPos() + obj.getSize() / 2, obj.getyPos() + obj.getSize() / 2);
+        if (pacGum >= 0 && game.isPacGumEaten(pacGum)) {
+            pacGum = -1;
+        }
+        Profiler.stop(Profiler.COLLISION, t);
+        return pacGum;
     }
 
     //Même chose que la méthode précédente, mais toutes les hitboxes sont considérées comme rectangulaires
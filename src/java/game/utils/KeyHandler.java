@@ -1,6 +1,8 @@
 package game.utils;
 
 import game.GameplayPanel;
+import game.pathfinding.PathfindingStats;
+import game.profiling.Profiler;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
@@ -55,6 +57,12 @@ public class KeyHandler implements KeyListener {
 
     @Override
     public void keyPressed(KeyEvent e) {
+        if (e.getKeyCode() == KeyEvent.VK_P) {
+            Profiler.toggleOverlay(); // Show / hide the profiler overlay
+        }
+        if (e.getKeyCode() == KeyEvent.VK_O) {
+            PathfindingStats.toggleCaptureDebug(); // Show / hide the pathfinding debug overlay
+        }
         toggle(e, true);
     }
 
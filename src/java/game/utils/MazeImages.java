@@ -0,0 +1,77 @@
+package game.utils;
+
+import game.Game;
+import game.Level;
+import game.TileMap;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Image of the maze of a level, drawn under the entities: background.png for the levels with the walls of the level
+// files, else drawn once from the cells of the level (the walls that touch a corridor, and the door of the ghosts' house)
+public class MazeImages {
+    private static final Map<String, BufferedImage> cache = new ConcurrentHashMap<>();
+    private static final Color WALL_COLOR = new Color(33, 33, 222);
+    private static final Color DOOR_COLOR = new Color(255, 184, 222);
+
+    public static BufferedImage get(Level level) throws IOException {
+        BufferedImage image = cache.get(level.getName());
+        if (image == null) {
+            image = hasDefaultWalls(level) ? Sprites.get("background.png") : draw(level);
+            BufferedImage previous = cache.putIfAbsent(level.getName(), image);
+            if (previous != null) image = previous;
+        }
+        return image;
+    }
+
+    private static boolean hasDefaultWalls(Level level) {
+        Level defaultLevel = Level.get(Game.DEFAULT_LEVEL);
+        if (level == defaultLevel) return true;
+        if (level.getCols() != defaultLevel.getCols() || level.getRows() != defaultLevel.getRows()) return false;
+        byte[] tiles = level.getTiles();
+        byte[] defaultTiles = defaultLevel.getTiles();
+        for (int i = 0; i < tiles.length; i++) {
+            if (TileMap.isWall(tiles[i], false) != TileMap.isWall(defaultTiles[i], false)) return false;
+        }
+        return true;
+    }
+
+    private static BufferedImage draw(Level level) {
+        int cols = level.getCols();
+        int rows = level.getRows();
+        byte[] tiles = level.getTiles();
+        BufferedImage image = new BufferedImage(cols * 8, rows * 8, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                byte tile = tiles[y * cols + x];
+                if (tile == TileMap.GHOST_HOUSE) {
+                    g.setColor(DOOR_COLOR);
+                    g.fillRect(x * 8, y * 8 + 3, 8, 2);
+                } else if (tile == TileMap.WALL && touchesCorridor(tiles, cols, rows, x, y)) {
+                    g.setColor(WALL_COLOR);
+                    g.fillRect(x * 8 + 1, y * 8 + 1, 6, 6);
+                }
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    // A wall next to a cell without wall (diagonals included): the walls are drawn as outlines
+    private static boolean touchesCorridor(byte[] tiles, int cols, int rows, int x, int y) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = x + dx;
+                int ny = y + dy;
+                if (nx >= 0 && nx < cols && ny >= 0 && ny < rows && !TileMap.isWall(tiles[ny * cols + nx], false)) return true;
+            }
+        }
+        return false;
+    }
+}
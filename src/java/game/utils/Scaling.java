@@ -0,0 +1,104 @@
+package game.utils;
+
+import game.Level;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Scale of the rendering (pixels of the screen per pixel of the level, integer or not), and the images at that scale:
+// each frame of a sprite sheet and the maze of each level are scaled once, when the scale changes (the window is resized),
+// then drawn without scaling. The entities draw at level coordinates through drawFrame() and fillRect()/fillOval().
+public class Scaling {
+    private static volatile double scale = 1;
+    private static final Map<BufferedImage, BufferedImage[]> frames = new ConcurrentHashMap<>(); // By sprite sheet
+    private static final Map<String, Image> mazes = new ConcurrentHashMap<>(); // By level name
+
+    public static double getScale() {
+        return scale;
+    }
+
+    // The images of the previous scale are dropped (they are scaled again when they are next drawn)
+    public static void setScale(double newScale) {
+        if (newScale <= 0) throw new IllegalArgumentException("Scale: " + newScale);
+        if (newScale == scale) return;
+        synchronized (mazes) {
+            scale = newScale;
+            frames.clear();
+            mazes.clear();
+        }
+    }
+
+    // Level coordinate on the screen: the edges of adjacent cells stay adjacent with a fractional scale
+    public static int scaled(int levelPixels) {
+        return (int) Math.round(levelPixels * scale);
+    }
+
+    // Frame `index` of a sprite sheet made of squares of `size` pixels side by side, at (x, y) in level pixels
+    public static void drawFrame(Graphics2D g, BufferedImage sheet, int size, int index, int x, int y) {
+        BufferedImage[] sheetFrames = frames.get(sheet);
+        if (sheetFrames == null) {
+            sheetFrames = new BufferedImage[sheet.getWidth() / size];
+            frames.put(sheet, sheetFrames);
+        }
+        BufferedImage frame = sheetFrames[index];
+        if (frame == null) {
+            frame = scale(sheet.getSubimage(index * size, 0, size, size), Transparency.TRANSLUCENT, scale);
+            sheetFrames[index] = frame;
+        }
+        g.drawImage(frame, scaled(x), scaled(y), null);
+    }
+
+    public static void fillRect(Graphics2D g, int x, int y, int width, int height) {
+        int left = scaled(x);
+        int top = scaled(y);
+        g.fillRect(left, top, scaled(x + width) - left, scaled(y + height) - top);
+    }
+
+    public static void fillOval(Graphics2D g, int x, int y, int width, int height) {
+        int left = scaled(x);
+        int top = scaled(y);
+        g.fillOval(left, top, scaled(x + width) - left, scaled(y + height) - top);
+    }
+
+    // Image of the maze of a level (see MazeImages) at the current scale (the LevelManager prepares it in the background:
+    // it is only kept if the scale didn't change meanwhile)
+    public static Image getMaze(Level level) throws IOException {
+        Image maze = mazes.get(level.getName());
+        if (maze == null) {
+            double at = scale;
+            maze = scale(MazeImages.get(level), Transparency.OPAQUE, at);
+            synchronized (mazes) {
+                if (at == scale) mazes.put(level.getName(), maze);
+            }
+        }
+        return maze;
+    }
+
+    // Image in the format of the screen (copied to it without conversion, and kept in video memory when the pipeline
+    // can), scaled with the nearest pixel for an integer scale (the pixel art stays sharp) and interpolated otherwise
+    private static BufferedImage scale(BufferedImage image, int transparency, double scale) {
+        int width = (int) Math.round(image.getWidth() * scale);
+        int height = (int) Math.round(image.getHeight() * scale);
+        BufferedImage scaledImage = createImage(width, height, transparency);
+        Graphics2D g = scaledImage.createGraphics();
+        boolean integer = scale == Math.rint(scale);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, integer
+                ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR : RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return scaledImage;
+    }
+
+    public static BufferedImage createImage(int width, int height, int transparency) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                    .createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB
+                : BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+}
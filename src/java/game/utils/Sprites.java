@@ -0,0 +1,69 @@
+package game.utils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Images du dossier img/, décodées une seule fois et partagées par toutes les entités (de toutes les parties)
+//Les sprites ne sont jamais modifiés : les entités n'en dessinent que des morceaux
+//Chaque image est décodée par un thread de décodage : preload() lance le décodage de plusieurs images en parallèle
+//(au démarrage, pendant que le niveau est lu et que la fenêtre est créée), get() attend la fin de celui qu'il demande
+public class Sprites {
+    public static final String[] ALL = {
+            "background.png", "pacman.png", "blinky.png", "pinky.png", "inky.png", "clyde.png",
+            "ghost_frightened.png", "ghost_frightened_2.png", "ghost_eaten.png"
+    };
+
+    private static final Map<String, CompletableFuture<BufferedImage>> cache = new ConcurrentHashMap<>();
+    private static final ExecutorService decoders = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(ALL.length, Runtime.getRuntime().availableProcessors())), r -> {
+                Thread thread = new Thread(r, "sprite-decoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        ImageIO.setUseCache(false); //Les images sont petites : pas de fichier temporaire pendant le décodage
+    }
+
+    public static BufferedImage get(String spriteName) throws IOException {
+        try {
+            return decode(spriteName).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            throw e;
+        }
+    }
+
+    //Lance le décodage des images qui ne sont pas encore dans le cache, sans l'attendre
+    public static void preload(String... spriteNames) {
+        for (String spriteName : spriteNames) {
+            decode(spriteName);
+        }
+    }
+
+    private static CompletableFuture<BufferedImage> decode(String spriteName) {
+        CompletableFuture<BufferedImage> sprite = cache.get(spriteName);
+        if (sprite == null) {
+            sprite = cache.computeIfAbsent(spriteName, name -> CompletableFuture.supplyAsync(() -> read(name), decoders));
+        }
+        return sprite;
+    }
+
+    private static BufferedImage read(String spriteName) {
+        try {
+            BufferedImage sprite = ImageIO.read(Sprites.class.getClassLoader().getResource("img/" + spriteName));
+            if (sprite == null) throw new IOException("Can't decode img/" + spriteName);
+            return sprite;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
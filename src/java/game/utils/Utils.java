@@ -1,10 +1,13 @@
 package game.utils;
 
+import game.Game;
+
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 
 //Classe regroupant différentes fonctions utiles
+//(les fonctions trigonométriques sont celles de StrictMath : celles de Math peuvent donner un résultat différent une fois
+//compilées par le JIT, et une partie rejouée, ou rejouée après un retour en arrière, doit donner exactement la même chose)
 public class Utils {
     private static Map<Integer, Double> directionConverterMap = new HashMap<>();
 
@@ -17,19 +20,19 @@ public class Utils {
 
     //Fonction pour obtenir la distance entre deux points
     public static double getDistance(double xA, double yA, double xB, double yB) {
-        return Math.sqrt( Math.pow(xB - xA, 2) + Math.pow(yB - yA, 2) );
+        return StrictMath.sqrt( (xB - xA) * (xB - xA) + (yB - yA) * (yB - yA) );
     }
 
     //Fonction pour obtenir l'angle formé entre deux points
     public static double getDirection(double xA, double yA, double xB, double yB) {
-        return Math.atan2((yB - yA), (xB - xA));
+        return StrictMath.atan2((yB - yA), (xB - xA));
     }
 
     //Fonction pour obtenir le point à partir d'un premier point, d'un angle et d'une distance
     public static int[] getPointDistanceDirection(int x, int y, double distance, double direction) {
         int[] point = new int[2];
-        point[0] = x + (int)(Math.cos(direction) * distance);
-        point[1] = y + (int)(Math.sin(direction) * distance);
+        point[0] = x + (int)(StrictMath.cos(direction) * distance);
+        point[1] = y + (int)(StrictMath.sin(direction) * distance);
         return point;
     }
 
@@ -38,16 +41,14 @@ public class Utils {
         return directionConverterMap.get(spriteDirection);
     }
 
-    //Fonction pour générer un entier entre 0 et n
+    //Fonction pour générer un entier entre 0 et n (avec le générateur de la partie en cours, pour qu'une partie soit reproductible à partir de sa graine)
     public static int randomInt(int n) {
-        Random r = new Random();
-        return r.nextInt(n);
+        return Game.getRandom().nextInt(n);
     }
 
     //Fonction pour générer un entier entre x et y inclus
     public static int randomInt(int min, int max) {
-        Random r = new Random();
-        return r.nextInt(max-min) + min;
+        return Game.getRandom().nextInt(max-min) + min;
     }
 
     //Fonction pour générer un booléen aléatoire
@@ -1,30 +1,43 @@
 package game.utils;
 
 import game.Game;
+import game.TileMap;
 import game.entities.Entity;
-import game.entities.GhostHouse;
-import game.entities.Wall;
-
-import java.awt.*;
+import game.profiling.Profiler;
 
 //Classe pour détecter les collision entre une entité et un mur (par rapport à la classe CollisionDetector, les murs sont statiques)
 public class WallCollisionDetector {
 
     //Fonction pour s'avoir s'il y a un mur à la position d'une entité + un certain delta (ce delta permet de détecter le mur avant de rentrer dedans)
     public static boolean checkWallCollision(Entity obj, int dx, int dy) {
-        Rectangle r = new Rectangle(obj.getxPos() + dx, obj.getyPos() + dy, obj.getSize(), obj.getSize());
-        for (Wall w : Game.getWalls()) {
-            if (w.getHitbox().intersects(r)) return true;
-        }
-        return false;
+        return checkWallCollision(obj, dx, dy, false);
     }
 
     //Même chose que la méthode précédente, mais on peut ignorer ici les collisions avec les murs de la maison des fantômes
+    //Les murs font une case de 8x8 pixels : au lieu de tester la hitbox de chaque mur, on teste les cases de la carte du niveau couvertes par la hitbox de l'entité
     public static boolean checkWallCollision(Entity obj, int dx, int dy, boolean ignoreGhostHouses) {
-        Rectangle r = new Rectangle(obj.getxPos() + dx, obj.getyPos() + dy, obj.getSize(), obj.getSize());
-        for (Wall w : Game.getWalls()) {
-            if (!(ignoreGhostHouses && w instanceof GhostHouse) && w.getHitbox().intersects(r)) return true;
+        long t = Profiler.start();
+        Game game = Game.current();
+        byte[] tiles = Game.getLevel().getTiles();
+        int cols = game.getCellsPerRow();
+        int rows = game.getCellsPerColumn();
+        int left = obj.getxPos() + dx;
+        int top = obj.getyPos() + dy;
+        //Cases dont le rectangle intersecte strictement celui de l'entité (les cases hors du niveau n'ont pas de mur)
+        int minX = Math.max(0, Math.floorDiv(left, 8));
+        int maxX = Math.min(cols - 1, Math.floorDiv(left + obj.getSize() - 1, 8));
+        int minY = Math.max(0, Math.floorDiv(top, 8));
+        int maxY = Math.min(rows - 1, Math.floorDiv(top + obj.getSize() - 1, 8));
+        boolean collision = false;
+        for (int y = minY; y <= maxY && !collision; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                if (TileMap.isWall(tiles[y * cols + x], ignoreGhostHouses)) {
+                    collision = true;
+                    break;
+                }
+            }
         }
-        return false;
+        Profiler.stop(Profiler.COLLISION, t);
+        return collision;
     }
 }